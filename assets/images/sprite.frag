@@ -0,0 +1,24 @@
+#version 120
+
+#ifdef GL_ES
+    #define PRECISION mediump
+    precision PRECISION float;
+    precision PRECISION int;
+#else
+    #define PRECISION
+#endif
+
+varying vec4 v_color;
+varying vec2 v_texCoords;
+uniform sampler2D u_texture;
+
+//The vertex alpha says how to use the vertex color, see SpriteShader. 128 to 254 tints the sprite like the default
+//shader does, 0 to 126 fills the sprite with the color, which is how hit flashes are drawn
+void main()
+{
+	vec4 pixel = texture2D(u_texture, v_texCoords);
+	float alphaByte = v_color.a * 254.0;
+	float fill = 1.0 - step(127.0, alphaByte);
+	float alpha = mix((alphaByte - 128.0) / 126.0, alphaByte / 126.0, fill);
+	gl_FragColor = vec4(mix(pixel.rgb * v_color.rgb, v_color.rgb, fill), pixel.a * alpha);
+}
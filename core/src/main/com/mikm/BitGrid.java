@@ -0,0 +1,269 @@
+package com.mikm;
+
+import java.util.Arrays;
+
+/**
+ * A width x height grid of booleans packed 64 tiles to a long. Each row starts on a fresh word so that
+ * row-wise operations never have to straddle two rows. Bits past the width in the last word of a row are always 0.
+ * Coordinates are (x, y) with y going up, the same as the tiled map.
+ */
+public class BitGrid {
+    private final int width, height;
+    private final int wordsPerRow;
+    private final long lastWordMask;
+    private final long[] words;
+
+    public BitGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("BitGrid must have a positive size, got " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+        lastWordMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        words = new long[wordsPerRow * height];
+    }
+
+    public BitGrid(BitGrid other) {
+        width = other.width;
+        height = other.height;
+        wordsPerRow = other.wordsPerRow;
+        lastWordMask = other.lastWordMask;
+        words = other.words.clone();
+    }
+
+    public BitGrid copy() {
+        return new BitGrid(this);
+    }
+
+    public void copyFrom(BitGrid other) {
+        checkSameSize(other);
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    public boolean isInBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    public void clear(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] &= ~(1L << x);
+    }
+
+    public void set(int x, int y, boolean value) {
+        if (value) {
+            set(x, y);
+        } else {
+            clear(x, y);
+        }
+    }
+
+    public void fill(boolean value) {
+        if (!value) {
+            Arrays.fill(words, 0);
+            return;
+        }
+        Arrays.fill(words, -1L);
+        for (int y = 0; y < height; y++) {
+            words[y * wordsPerRow + wordsPerRow - 1] = lastWordMask;
+        }
+    }
+
+    public long getWord(int y, int wordIndex) {
+        return words[y * wordsPerRow + wordIndex];
+    }
+
+    /**
+     * Same as {@link #getWord(int, int)}, except rows outside of the grid and the bits past the width read as outOfBoundsValue.
+     */
+    public long getWord(int y, int wordIndex, boolean outOfBoundsValue) {
+        if (y < 0 || y >= height) {
+            return outOfBoundsValue ? -1L : 0;
+        }
+        long word = words[y * wordsPerRow + wordIndex];
+        if (outOfBoundsValue && wordIndex == wordsPerRow - 1) {
+            word |= ~lastWordMask;
+        }
+        return word;
+    }
+
+    public void setWord(int y, int wordIndex, long word) {
+        if (wordIndex == wordsPerRow - 1) {
+            word &= lastWordMask;
+        }
+        words[y * wordsPerRow + wordIndex] = word;
+    }
+
+    /**
+     * Returns the word whose bit x holds the tile at x-1, ie. each tile's left neighbor.
+     */
+    public long getLeftNeighborWord(int y, int wordIndex, boolean outOfBoundsValue) {
+        long word = getWord(y, wordIndex, outOfBoundsValue) << 1;
+        if (wordIndex > 0) {
+            return word | (getWord(y, wordIndex - 1, outOfBoundsValue) >>> 63);
+        }
+        return outOfBoundsValue ? word | 1L : word;
+    }
+
+    /**
+     * Returns the word whose bit x holds the tile at x+1, ie. each tile's right neighbor.
+     */
+    public long getRightNeighborWord(int y, int wordIndex, boolean outOfBoundsValue) {
+        long word = getWord(y, wordIndex, outOfBoundsValue) >>> 1;
+        if (wordIndex < wordsPerRow - 1) {
+            return word | (getWord(y, wordIndex + 1, outOfBoundsValue) << 63);
+        }
+        return outOfBoundsValue ? word | (1L << 63) : word;
+    }
+
+    /**
+     * Shifts every tile of row y by dx tiles, positive dx moving tiles towards higher x. Tiles shifted in are cleared.
+     */
+    public void shiftRow(int y, int dx) {
+        if (dx == 0) {
+            return;
+        }
+        int rowStart = y * wordsPerRow;
+        if (Math.abs(dx) >= width) {
+            Arrays.fill(words, rowStart, rowStart + wordsPerRow, 0);
+            return;
+        }
+        int wordShift = Math.abs(dx) >>> 6;
+        int bitShift = Math.abs(dx) & 63;
+        if (dx > 0) {
+            for (int i = wordsPerRow - 1; i >= 0; i--) {
+                int source = i - wordShift;
+                long word = source >= 0 ? words[rowStart + source] << bitShift : 0;
+                if (bitShift != 0 && source - 1 >= 0) {
+                    word |= words[rowStart + source - 1] >>> (64 - bitShift);
+                }
+                words[rowStart + i] = word;
+            }
+            words[rowStart + wordsPerRow - 1] &= lastWordMask;
+        } else {
+            for (int i = 0; i < wordsPerRow; i++) {
+                int source = i + wordShift;
+                long word = source < wordsPerRow ? words[rowStart + source] >>> bitShift : 0;
+                if (bitShift != 0 && source + 1 < wordsPerRow) {
+                    word |= words[rowStart + source + 1] << (64 - bitShift);
+                }
+                words[rowStart + i] = word;
+            }
+        }
+    }
+
+    public void and(BitGrid other) {
+        checkSameSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    public void or(BitGrid other) {
+        checkSameSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    public void andNot(BitGrid other) {
+        checkSameSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    public void xor(BitGrid other) {
+        checkSameSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] ^= other.words[i];
+        }
+    }
+
+    public void invert() {
+        for (int y = 0; y < height; y++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                setWord(y, w, ~words[y * wordsPerRow + w]);
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of set tiles.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The backing words, row by row. Meant for word-parallel algorithms, bits past the width must be kept at 0.
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    private void checkSameSize(BitGrid other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("BitGrid sizes don't match: " + width + "x" + height + " and " + other.width + "x" + other.height);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BitGrid that = (BitGrid) o;
+        return width == that.width && height == that.height && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 31 * width + height;
+        result = 31 * result + Arrays.hashCode(words);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                output.append(get(x, y) ? 'x' : 'o');
+            }
+            output.append('\n');
+        }
+        return output.toString();
+    }
+}
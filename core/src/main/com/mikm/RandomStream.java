@@ -0,0 +1,109 @@
+package com.mikm;
+
+import com.badlogic.gdx.graphics.Color;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A seeded source of random numbers. Anything that has to come out the same every time for a given seed, like floor
+ * generation, draws from its own one of these, so nothing else drawing numbers can change what it gets. Built on
+ * {@link SplittableRandom}, which has no locking, so a stream must only be used by one thread at a time; give other
+ * threads a {@link #split()} or a {@link #getSubstream(String)} instead of sharing it.
+ */
+public class RandomStream {
+    private final long seed;
+    private final SplittableRandom random;
+
+    public RandomStream(long seed) {
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+    }
+
+    private RandomStream(SplittableRandom random) {
+        seed = random.nextLong();
+        this.random = new SplittableRandom(seed);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Combines a seed with a salt, like a floor number, into a new well mixed seed.
+     */
+    public static long deriveSeed(long seed, long salt) {
+        long z = seed + salt * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * A stream seeded from this one's seed and the name, whatever has been drawn from this one so far. The same
+     * seed and name always give the same stream.
+     */
+    public RandomStream getSubstream(String name) {
+        return new RandomStream(deriveSeed(seed, name.hashCode()));
+    }
+
+    /**
+     * A new independent stream, which takes one number from this one. Splitting the same stream in the same order
+     * always gives the same streams.
+     */
+    public RandomStream split() {
+        return new RandomStream(random);
+    }
+
+    public int getInt(int min, int max) {
+        return random.nextInt(min, max+1);
+    }
+
+    /**
+     * Returns an integer from [0, max] inclusive
+     */
+    public int getInt(int max) {
+        return random.nextInt(max+1);
+    }
+
+    public long getLong() {
+        return random.nextLong();
+    }
+
+    public boolean getPercentage(int percentChance) {
+        return getInt(100) < percentChance;
+    }
+
+    public float getFloat(float min, float max) {
+        return min + nextFloat() * (max - min);
+    }
+
+    public boolean getBoolean() {
+        return random.nextBoolean();
+    }
+
+    public float getFloatRoundedToTenths(int max) {
+        return random.nextInt(max * 10)/10f;
+    }
+
+    public Color getColor(Color color1, Color color2) {
+        return new Color(
+                getFloat(Math.min(color1.r, color2.r), Math.max(color1.r, color2.r)),
+                getFloat(Math.min(color1.g, color2.g), Math.max(color1.g, color2.g)),
+                getFloat(Math.min(color1.b, color2.b), Math.max(color1.b, color2.b)),
+                1);
+    }
+
+    //Fisher-Yates, the same walk Collections.shuffle does
+    public <T> void shuffle(List<T> list) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    //SplittableRandom only has doubles before Java 17, 24 bits is all a float holds
+    private float nextFloat() {
+        return (random.nextInt() >>> 8) * 0x1.0p-24f;
+    }
+}
@@ -1,55 +1,23 @@
 package com.mikm;
 
-import com.badlogic.gdx.graphics.Color;
-
-import java.util.Random;
-
+/**
+ * The random streams for gameplay, one per system, so a burst of particles can't change where an enemy wanders or
+ * which attack the boss picks. Each is seeded on its own from the session's seed. They're only for the GL thread;
+ * floor generation doesn't use any of these, it makes its own streams from the floor's seed.
+ */
 public class RandomUtils {
-    private static final long SEED = 21;
-    private static final Random random = new Random();
+    private static final long SESSION_SEED = RandomStream.deriveSeed(System.nanoTime(), System.identityHashCode(RandomUtils.class));
 
-    private RandomUtils() {
-
-    }
-
-    public static Color getColor(Color color1, Color color2) {
-        float minRed = Math.min(color1.r,color2.r);
-        float minBlue = Math.min(color1.g,color2.g);
-        float minGreen = Math.min(color1.b,color2.b);
-        float maxRed = Math.max(color1.r,color2.r);
-        float maxBlue = Math.max(color1.g,color2.g);
-        float maxGreen = Math.max(color1.b,color2.b);
-        return new Color(
-                getFloat(minRed, maxRed),
-                getFloat(minBlue, maxBlue),
-                getFloat(minGreen, maxGreen),
-                1);
-    }
-
-    public static int getInt(int min, int max) {
-        return random.nextInt(min, max+1);
-    }
+    //Seeds for each new run
+    public static final RandomStream RUNS = new RandomStream(RandomStream.deriveSeed(SESSION_SEED, 1));
+    //Entities placed outside of floor generation, like loaded rocks
+    public static final RandomStream SPAWNING = new RandomStream(RandomStream.deriveSeed(SESSION_SEED, 2));
+    public static final RandomStream AI = new RandomStream(RandomStream.deriveSeed(SESSION_SEED, 3));
+    public static final RandomStream FX = new RandomStream(RandomStream.deriveSeed(SESSION_SEED, 4));
+    public static final RandomStream BOSS = new RandomStream(RandomStream.deriveSeed(SESSION_SEED, 5));
+    public static final RandomStream COMBAT = new RandomStream(RandomStream.deriveSeed(SESSION_SEED, 6));
 
-    /**
-     * Returns an integer from [0, max] inclusive
-     */
-    public static int getInt(int max) {
-        return random.nextInt(max+1);
-    }
-
-    public static boolean getPercentage(int percentChance) {
-        return getInt(100) < percentChance;
-    }
-
-    public static float getFloat(float min, float max) {
-        return min + random.nextFloat() * (max - min);
-    }
-
-    public static boolean getBoolean() {
-        return random.nextBoolean();
-    }
+    private RandomUtils() {
 
-    public static float getFloatRoundedToTenths(int max) {
-        return random.nextInt(max * 10)/10f;
     }
 }
@@ -38,12 +38,10 @@ public class Vector2Int {
         return "(" + x + ", " + y + ")";
     }
 
+    //31 * x + y gave (x, y) and (x + 1, y - 31) the same hash, so x and y are spread with different large odd numbers
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + x;
-        result = prime * result + y;
-        return result;
+        int result = x * 0x9E3779B1 ^ y * 0x85EBCA6B;
+        return result ^ (result >>> 16);
     }
 }
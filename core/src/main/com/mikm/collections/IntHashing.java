@@ -0,0 +1,35 @@
+package com.mikm.collections;
+
+//Shared by the open addressing tables. Packed tiles next to each other differ in their low bits only, so keys are
+//mixed before being masked down to a slot.
+final class IntHashing {
+    static final int EMPTY = Integer.MIN_VALUE;
+    static final float LOAD_FACTOR = .5f;
+
+    private IntHashing() {
+    }
+
+    //The murmur3 finalizer
+    static int mix(int key) {
+        key ^= key >>> 16;
+        key *= 0x85EBCA6B;
+        key ^= key >>> 13;
+        key *= 0xC2B2AE35;
+        key ^= key >>> 16;
+        return key;
+    }
+
+    static int getCapacity(int expectedSize) {
+        int capacity = 8;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static void checkKey(int key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Integer.MIN_VALUE can't be used as a key");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.mikm.collections;
+
+import java.util.Arrays;
+
+import static com.mikm.collections.IntHashing.EMPTY;
+
+/**
+ * A map from ints to ints in one open addressing table with linear probing, the same layout as {@link IntSet}.
+ * Integer.MIN_VALUE marks empty slots and can't be used as a key.
+ */
+public class IntIntMap {
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public IntIntMap() {
+        this(16);
+    }
+
+    public IntIntMap(int expectedSize) {
+        allocate(IntHashing.getCapacity(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return findSlot(key) != -1;
+    }
+
+    public int get(int key, int defaultValue) {
+        int slot = findSlot(key);
+        return slot == -1 ? defaultValue : values[slot];
+    }
+
+    public void put(int key, int value) {
+        IntHashing.checkKey(key);
+        int slot = IntHashing.mix(key) & mask;
+        for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * IntHashing.LOAD_FACTOR) {
+            grow();
+        }
+    }
+
+    //Returns the removed value, or defaultValue if the key wasn't there
+    public int remove(int key, int defaultValue) {
+        int slot = findSlot(key);
+        if (slot == -1) {
+            return defaultValue;
+        }
+        int value = values[slot];
+        removeSlot(slot);
+        size--;
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private int findSlot(int key) {
+        IntHashing.checkKey(key);
+        for (int slot = IntHashing.mix(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    //Same backward shift as IntSet.removeSlot, moving the values along with the keys
+    private void removeSlot(int slot) {
+        int next = (slot + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = IntHashing.mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[slot] = EMPTY;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys, oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = IntHashing.mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,142 @@
+package com.mikm.collections;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints, for tiles packed as y * width + x and other indexes that would otherwise be boxed into an
+ * ArrayList.
+ */
+public class IntList {
+    private int[] items;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int capacity) {
+        items = new int[Math.max(capacity, 1)];
+    }
+
+    public IntList(IntList other) {
+        items = Arrays.copyOf(other.items, Math.max(other.size, 1));
+        size = other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(int value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, items.length * 2);
+        }
+        items[size++] = value;
+    }
+
+    public void addAll(int[] values, int from, int to) {
+        ensureCapacity(size + to - from);
+        System.arraycopy(values, from, items, size, to - from);
+        size += to - from;
+    }
+
+    public int get(int index) {
+        checkIndex(index);
+        return items[index];
+    }
+
+    public void set(int index, int value) {
+        checkIndex(index);
+        items[index] = value;
+    }
+
+    //-1 if the value isn't in the list
+    public int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (items[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) != -1;
+    }
+
+    //Keeps the order of the values after it
+    public int removeIndex(int index) {
+        checkIndex(index);
+        int value = items[index];
+        System.arraycopy(items, index + 1, items, index, size - index - 1);
+        size--;
+        return value;
+    }
+
+    public boolean removeValue(int value) {
+        int index = indexOf(value);
+        if (index == -1) {
+            return false;
+        }
+        removeIndex(index);
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > items.length) {
+            items = Arrays.copyOf(items, Math.max(capacity, items.length * 2));
+        }
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of a list of " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntList)) {
+            return false;
+        }
+        IntList other = (IntList) o;
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (items[i] != other.items[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + items[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
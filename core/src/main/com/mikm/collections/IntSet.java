@@ -0,0 +1,109 @@
+package com.mikm.collections;
+
+import java.util.Arrays;
+
+import static com.mikm.collections.IntHashing.EMPTY;
+
+/**
+ * A set of ints in one open addressing table with linear probing, so nothing is boxed and a lookup is usually one
+ * or two array reads. Integer.MIN_VALUE marks empty slots and can't be added.
+ */
+public class IntSet {
+    private int[] keys;
+    private int mask;
+    private int size;
+
+    public IntSet() {
+        this(16);
+    }
+
+    public IntSet(int expectedSize) {
+        allocate(IntHashing.getCapacity(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int key) {
+        IntHashing.checkKey(key);
+        for (int slot = IntHashing.mix(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Returns false if it was already in the set
+    public boolean add(int key) {
+        IntHashing.checkKey(key);
+        int slot = IntHashing.mix(key) & mask;
+        for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return false;
+            }
+        }
+        keys[slot] = key;
+        if (++size > keys.length * IntHashing.LOAD_FACTOR) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean remove(int key) {
+        IntHashing.checkKey(key);
+        for (int slot = IntHashing.mix(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                removeSlot(slot);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    //Shifts the keys after the removed one back, so no probe chain is broken and no tombstones are needed
+    private void removeSlot(int slot) {
+        int next = (slot + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = IntHashing.mix(keys[next]) & mask;
+            //Only move keys whose home slot isn't between the gap and where they are
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[slot] = EMPTY;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        allocate(oldKeys.length * 2);
+        for (int key : oldKeys) {
+            if (key != EMPTY) {
+                int slot = IntHashing.mix(key) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+}
@@ -7,6 +7,7 @@ import com.badlogic.gdx.math.Vector2;
 import com.mikm.Assets;
 import com.mikm.Method;
 import com.mikm.rendering.Camera;
+import com.mikm.rendering.SpriteShader;
 import com.mikm.rendering.screens.Application;
 
 import java.util.ArrayList;
@@ -62,25 +63,25 @@ public class DebugRenderer {
     }
 
     public void drawPoint(float x, float y) {
-        Application.batch.setColor(DEBUG_BLUE);
+        SpriteShader.setTint(Application.batch, DEBUG_BLUE);
         Application.batch.draw(Assets.testTexture, x-1, y-1, 3, 3);
         Application.batch.setColor(Color.WHITE);
     }
 
     public void drawTile(float tileX, float tileY) {
-        Application.batch.setColor(DEBUG_BLUE);
+        SpriteShader.setTint(Application.batch, DEBUG_BLUE);
         Application.batch.draw(Assets.testTexture, tileX * Application.TILE_WIDTH, tileY * Application.TILE_HEIGHT);
         Application.batch.setColor(Color.WHITE);
     }
 
     public void drawTile(float tileX, float tileY, Color color) {
-        Application.batch.setColor(color);
+        SpriteShader.setTint(Application.batch, color);
         Application.batch.draw(Assets.testTexture, tileX * Application.TILE_WIDTH, tileY * Application.TILE_HEIGHT);
         Application.batch.setColor(Color.WHITE);
     }
 
     public void drawTile(float tileX, float tileY, float width, float height) {
-        Application.batch.setColor(DEBUG_BLUE);
+        SpriteShader.setTint(Application.batch, DEBUG_BLUE);
         Application.batch.draw(Assets.testTexture, tileX * Application.TILE_WIDTH, tileY * Application.TILE_HEIGHT, width, height);
         Application.batch.setColor(Color.WHITE);
     }
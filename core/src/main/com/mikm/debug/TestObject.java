@@ -4,6 +4,7 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.mikm.Assets;
 import com.mikm.entities.InanimateEntity;
+import com.mikm.rendering.SpriteShader;
 import com.mikm.rendering.screens.Application;
 
 public class TestObject extends InanimateEntity {
@@ -40,7 +41,7 @@ public class TestObject extends InanimateEntity {
 
     @Override
     public void draw(Batch batch) {
-        batch.setColor(color);
+        SpriteShader.setTint(batch, color);
         batch.draw(Assets.testTexture, x+16-width, y+16-width, width, width);
         batch.setColor(Color.WHITE);
     }
@@ -12,6 +12,7 @@ import com.mikm.entities.animation.AnimationName;
 import com.mikm.entities.animation.DirectionalAnimation;
 import com.mikm.entities.animation.Directions;
 import com.mikm.entities.enemies.states.DamagedState;
+import com.mikm.rendering.SpriteShader;
 import com.mikm.rendering.screens.Application;
 
 import java.util.Map;
@@ -83,13 +84,15 @@ public abstract class Entity extends InanimateEntity {
         currentState.checkForStateTransition();
         handleSquish();
         handleInvincibility();
+        handleFlashTimer();
         moveAndCheckCollisions();
     }
 
     @Override
     public void draw(Batch batch) {
-        handleFlash(batch);
+        setDrawColor(batch, 1);
         animationManager.draw(batch);
+        batch.setColor(Color.WHITE);
     }
 
     public void handleInvincibility() {
@@ -102,17 +105,23 @@ public abstract class Entity extends InanimateEntity {
         }
     }
 
-    public void handleFlash(Batch batch) {
+    //Runs in update so a flash still ends while the entity is off screen and not being drawn
+    public void handleFlashTimer() {
         if (shouldFlash) {
-            Application.setFillColorShader(batch, flashColor);
             flashTimerFrames += DeltaTime.deltaTime();
             if (flashTimerFrames >= MAX_FLASH_TIME) {
                 shouldFlash = false;
-                batch.setShader(null);
                 flashTimerFrames = 0;
             }
+        }
+    }
+
+    //A flash fills the sprite through the vertex color, so flashing doesn't switch shaders and flush the batch
+    public void setDrawColor(Batch batch, float alpha) {
+        if (shouldFlash) {
+            SpriteShader.setFill(batch, flashColor, alpha);
         } else {
-            batch.setShader(null);
+            SpriteShader.setTint(batch, Color.WHITE, alpha);
         }
     }
 
@@ -16,17 +16,14 @@ public abstract class InanimateEntity {
     public float height;
     public InanimateEntity shadow;
     public Collider collider = new Collider(this);
+    //Where the entity is in its RemovableArray's layer, -1 when it isn't in one
+    int removableArraySlot = -1;
 
     public InanimateEntity(float x, float y) {
         this.x = x;
         this.y = y;
     }
 
-    void render(Batch batch) {
-        update();
-        draw(batch);
-    }
-
     public void die() {
         Application.currentScreen.removeInanimateEntity(this);
     }
@@ -65,6 +62,13 @@ public abstract class InanimateEntity {
         return new Rectangle(x, y, getBounds().width, getBounds().height);
     }
 
+    //Where the entity can appear on screen, for culling. The image is drawn height above the bounds.
+    //Runs for every entity every frame, so entities that override getFullBounds override this too.
+    public Rectangle getDrawBounds(Rectangle out) {
+        Rectangle bounds = getBounds();
+        return out.set(x, y, bounds.width, bounds.height + Math.max(0, height));
+    }
+
     public Circle getHitbox() {
         return new Circle(getBounds().x+getBounds().width/2f, getBounds().y+getBounds().height/2f, getBounds().width/2f);
     }
@@ -2,47 +2,113 @@ package com.mikm.entities;
 
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.mikm.Method;
+import com.mikm.rendering.RenderQueue;
+import com.mikm.rendering.ViewCuller;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-public class RemovableArray<T extends InanimateEntity> extends ArrayList<T> {
-    private ArrayList<T> toAdd = new ArrayList<>();
-    private ArrayList<T> toRemove = new ArrayList<>();
+/**
+ * Entities kept in one layer per z-order, lowest first, so adding one never sorts the list. Within a layer entities
+ * stay in the order they were added, or are drawn top to bottom by y if the array sorts by y.
+ *
+ * add() and remove() wait until the end of render(), so entities can add and remove others while updating. Each
+ * entity remembers its slot in its layer, so a removal only clears that slot and the layer is closed up once, in
+ * order. That means an entity can only be in one RemovableArray at a time.
+ */
+public class RemovableArray<T extends InanimateEntity> implements Iterable<T> {
+    private static final Comparator<InanimateEntity> HIGHEST_Y_FIRST = (a, b) -> Float.compare(b.y, a.y);
+
+    private final ArrayList<Layer<T>> layers = new ArrayList<>();
+    private final ArrayList<T> toAdd = new ArrayList<>();
+    private final ArrayList<T> toRemove = new ArrayList<>();
+    private final boolean sortsByY;
+    private int size;
     private boolean executeMethodAfterRender;
     private ArrayList<Method> queuedActionsToDoAfterRender = new ArrayList<>();
 
+    private static class Layer<T extends InanimateEntity> {
+        private final int zOrder;
+        private final ArrayList<T> entities = new ArrayList<>();
+        private boolean hasRemovedEntities;
+
+        private Layer(int zOrder) {
+            this.zOrder = zOrder;
+        }
+    }
+
     public RemovableArray() {
+        this(false);
+    }
 
+    //Sorting by y draws lower entities over higher ones in the same layer, for top down overlap
+    public RemovableArray(boolean sortsByY) {
+        this.sortsByY = sortsByY;
     }
 
-    public RemovableArray(ArrayList<T> list) {
-        this.addAll(list);
+    public RemovableArray(Collection<? extends T> entities) {
+        this(false);
+        addAll(entities);
     }
 
     public void draw(Batch batch) {
-        for (T inanimateEntity : this) {
-            inanimateEntity.draw(batch);
+        draw(batch, null);
+    }
+
+    public void draw(Batch batch, ViewCuller viewCuller) {
+        for (int i = 0; i < layers.size(); i++) {
+            ArrayList<T> entities = layers.get(i).entities;
+            for (int j = 0; j < entities.size(); j++) {
+                T inanimateEntity = entities.get(j);
+                if (viewCuller == null || viewCuller.shouldDraw(inanimateEntity)) {
+                    drawEntity(batch, inanimateEntity);
+                }
+            }
         }
     }
 
-    public void render(Batch batch) {
-        for (T inanimateEntity : this) {
-            inanimateEntity.render(batch);
+    //Queued draws sort by z-order, then top to bottom, so entities from different arrays overlap properly
+    private void drawEntity(Batch batch, T inanimateEntity) {
+        if (batch instanceof RenderQueue) {
+            ((RenderQueue) batch).setSortKey(inanimateEntity.getZOrder(), -inanimateEntity.y);
         }
-        if (toAdd.size() != 0) {
-            super.addAll(toAdd);
-            this.sort(Comparator.comparing(InanimateEntity::getZOrder));
+        inanimateEntity.draw(batch);
+    }
+
+    public void render(Batch batch) {
+        render(batch, null);
+    }
+
+    //Everything updates, then what the culler lets through is drawn
+    public void render(Batch batch, ViewCuller viewCuller) {
+        for (int i = 0; i < layers.size(); i++) {
+            ArrayList<T> entities = layers.get(i).entities;
+            for (int j = 0; j < entities.size(); j++) {
+                entities.get(j).update();
+            }
         }
-        if (toRemove.size() != 0) {
-            super.removeAll(toRemove);
+        if (sortsByY) {
+            for (int i = 0; i < layers.size(); i++) {
+                sortByY(layers.get(i));
+            }
         }
+        draw(batch, viewCuller);
+
         if (toAdd.size() != 0) {
+            for (int i = 0; i < toAdd.size(); i++) {
+                addInstantly(toAdd.get(i));
+            }
             toAdd.clear();
         }
         if (toRemove.size() != 0) {
+            for (int i = 0; i < toRemove.size(); i++) {
+                clearSlot(toRemove.get(i));
+            }
             toRemove.clear();
+            closeUpLayers();
         }
         if (executeMethodAfterRender) {
             executeMethodAfterRender = false;
@@ -54,41 +120,150 @@ public class RemovableArray<T extends InanimateEntity> extends ArrayList<T> {
     }
 
     public void addInstantly(T t) {
-        super.add(t);
-        this.sort(Comparator.comparing(InanimateEntity::getZOrder));
+        Layer<T> layer = getOrCreateLayer(t.getZOrder());
+        t.removableArraySlot = layer.entities.size();
+        layer.entities.add(t);
+        size++;
     }
 
-    @Override
     public void clear() {
-        super.clear();
+        for (int i = 0; i < layers.size(); i++) {
+            ArrayList<T> entities = layers.get(i).entities;
+            for (int j = 0; j < entities.size(); j++) {
+                entities.get(j).removableArraySlot = -1;
+            }
+            entities.clear();
+        }
+        size = 0;
         toAdd.clear();
         toRemove.clear();
     }
 
-    @Override
     public boolean addAll(Collection<? extends T> c) {
-        boolean b = super.addAll(c);
-        this.sort(Comparator.comparing(InanimateEntity::getZOrder));
-        return b;
+        for (T t : c) {
+            addInstantly(t);
+        }
+        return !c.isEmpty();
     }
 
     public void removeInstantly(T t) {
-        super.remove(t);
+        if (clearSlot(t)) {
+            closeUpLayers();
+        }
     }
 
-    @Override
     public boolean add(T t) {
         return toAdd.add(t);
     }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public boolean remove(Object o) {
-        return toRemove.add((T)o);
+    public boolean remove(T t) {
+        return toRemove.add(t);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
     }
 
     public void doAfterRender(Method method) {
         queuedActionsToDoAfterRender.add(method);
         executeMethodAfterRender = true;
     }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int layerIndex, index;
+
+            @Override
+            public boolean hasNext() {
+                while (layerIndex < layers.size()) {
+                    if (index < layers.get(layerIndex).entities.size()) {
+                        return true;
+                    }
+                    layerIndex++;
+                    index = 0;
+                }
+                return false;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return layers.get(layerIndex).entities.get(index++);
+            }
+        };
+    }
+
+    //Layers are few and are never removed, so a scan is cheaper than a map
+    private Layer<T> getOrCreateLayer(int zOrder) {
+        int i = 0;
+        while (i < layers.size() && layers.get(i).zOrder < zOrder) {
+            i++;
+        }
+        if (i < layers.size() && layers.get(i).zOrder == zOrder) {
+            return layers.get(i);
+        }
+        Layer<T> layer = new Layer<>(zOrder);
+        layers.add(i, layer);
+        return layer;
+    }
+
+    private Layer<T> getLayer(int zOrder) {
+        for (int i = 0; i < layers.size(); i++) {
+            if (layers.get(i).zOrder == zOrder) {
+                return layers.get(i);
+            }
+        }
+        return null;
+    }
+
+    //Removing something that was never added, or was already removed, does nothing
+    private boolean clearSlot(T t) {
+        if (t == null) {
+            return false;
+        }
+        Layer<T> layer = getLayer(t.getZOrder());
+        final int slot = t.removableArraySlot;
+        if (layer == null || slot < 0 || slot >= layer.entities.size() || layer.entities.get(slot) != t) {
+            return false;
+        }
+        layer.entities.set(slot, null);
+        layer.hasRemovedEntities = true;
+        t.removableArraySlot = -1;
+        size--;
+        return true;
+    }
+
+    private void closeUpLayers() {
+        for (int i = 0; i < layers.size(); i++) {
+            Layer<T> layer = layers.get(i);
+            if (!layer.hasRemovedEntities) {
+                continue;
+            }
+            int kept = 0;
+            for (int j = 0; j < layer.entities.size(); j++) {
+                T t = layer.entities.get(j);
+                if (t != null) {
+                    t.removableArraySlot = kept;
+                    layer.entities.set(kept++, t);
+                }
+            }
+            layer.entities.subList(kept, layer.entities.size()).clear();
+            layer.hasRemovedEntities = false;
+        }
+    }
+
+    //TimSort is stable and close to linear on a layer that was sorted last frame, which is nearly always
+    private void sortByY(Layer<T> layer) {
+        layer.entities.sort(HIGHEST_Y_FIRST);
+        for (int i = 0; i < layer.entities.size(); i++) {
+            layer.entities.get(i).removableArraySlot = i;
+        }
+    }
 }
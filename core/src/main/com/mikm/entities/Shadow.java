@@ -25,6 +25,12 @@ public class Shadow extends InanimateEntity{
         throw new RuntimeException("tried to access shadow bounds");
     }
 
+    @Override
+    public Rectangle getDrawBounds(Rectangle out) {
+        Rectangle shadowBounds = entity.getShadowBounds();
+        return out.set(shadowBounds.x, shadowBounds.y - 3, shadowBounds.width, shadowBounds.height);
+    }
+
     @Override
     public boolean hasShadow() {
         return false;
@@ -1,11 +1,11 @@
 package com.mikm.entities.collision;
 
 import com.badlogic.gdx.math.Vector2;
+import com.mikm.BitGrid;
 import com.mikm.DeltaTime;
 import com.mikm.ExtraMathUtils;
 import com.mikm.Vector2Int;
 import com.mikm.entities.InanimateEntity;
-import com.mikm.rendering.cave.CaveTilemapCreator;
 import com.mikm.rendering.screens.Application;
 
 import java.util.ArrayList;
@@ -21,7 +21,7 @@ public class Collider {
     }
 
     public void updateCollisions() {
-        boolean[][] collidableMap = Application.currentScreen.isCollidableGrid();
+        BitGrid collidableMap = Application.currentScreen.isCollidableGrid();
 
         tilePosition = ExtraMathUtils.toTileCoordinates(inanimateEntity.getHitbox().x, inanimateEntity.getHitbox().y);
         nextPosition = new Vector2(inanimateEntity.getHitbox().x + inanimateEntity.xVel * DeltaTime.deltaTime(), inanimateEntity.getHitbox().y + inanimateEntity.yVel * DeltaTime.deltaTime());
@@ -29,7 +29,7 @@ public class Collider {
 
         ArrayList<Vector2Int> tilePositionsToCheck = getWallTilePositionsToCheck();
         for (Vector2Int v : tilePositionsToCheck) {
-            if (collidableMap[v.y][v.x]) {
+            if (collidableMap.get(v.x, v.y)) {
                 Vector2 nearestPoint = new Vector2(
                         ExtraMathUtils.clamp(nextPosition.x, v.x * Application.TILE_WIDTH, (v.x+1) * Application.TILE_WIDTH),
                         ExtraMathUtils.clamp(nextPosition.y, v.y * Application.TILE_HEIGHT, (v.y+1) * Application.TILE_HEIGHT)
@@ -69,12 +69,12 @@ public class Collider {
     }
 
     public boolean inWall() {
-        boolean[][] collidableMap = Application.currentScreen.isCollidableGrid();
-        boolean isInBounds = tilePosition.x > 0 && tilePosition.x < collidableMap.length && tilePosition.y > 0 && tilePosition.y < collidableMap[0].length;
+        BitGrid collidableMap = Application.currentScreen.isCollidableGrid();
+        boolean isInBounds = tilePosition.x > 0 && tilePosition.x < collidableMap.getWidth() && tilePosition.y > 0 && tilePosition.y < collidableMap.getHeight();
         if (!isInBounds) {
             return true;
         }
-        return collidableMap[tilePosition.y][tilePosition.x];
+        return collidableMap.get(tilePosition.x, tilePosition.y);
     }
 
     private Vector2Int getTopLeftTilePosition() {
@@ -91,7 +91,8 @@ public class Collider {
         //increase checking area by 1 tile around
         output = new Vector2Int(output.x + 1, output.y + 1);
         //Clamp to world boundaries
-        output = ExtraMathUtils.minComponents(new Vector2Int(CaveTilemapCreator.MAP_WIDTH-1, CaveTilemapCreator.MAP_HEIGHT-1), output);
+        BitGrid collidableMap = Application.currentScreen.isCollidableGrid();
+        output = ExtraMathUtils.minComponents(new Vector2Int(collidableMap.getWidth()-1, collidableMap.getHeight()-1), output);
         return output;
     }
 }
@@ -5,6 +5,7 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.mikm.entities.InanimateEntity;
+import com.mikm.rendering.SpriteShader;
 import com.mikm.rendering.screens.Application;
 
 public class AfterImageEffect extends InanimateEntity {
@@ -40,7 +41,7 @@ public class AfterImageEffect extends InanimateEntity {
 
     @Override
     public void draw(Batch batch) {
-        batch.setColor(new Color(1, 1, 1, alpha));
+        SpriteShader.setTint(batch, Color.WHITE, alpha);
         batch.draw(image, x, y+ height, 0,
                 0, 32, 32, xScale, yScale, 0);
         batch.setColor(Color.WHITE);
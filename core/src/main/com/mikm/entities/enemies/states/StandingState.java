@@ -25,7 +25,7 @@ public class StandingState extends DashInducingState {
     }
 
     private void standingStateEnter() {
-        timeBetweenWanders = RandomUtils.getFloat(TIME_BETWEEN_WANDERS_MIN, TIME_BETWEEN_WANDERS_MAX);
+        timeBetweenWanders = RandomUtils.AI.getFloat(TIME_BETWEEN_WANDERS_MIN, TIME_BETWEEN_WANDERS_MAX);
         entity.xVel = 0;
         entity.yVel = 0;
     }
@@ -43,8 +43,8 @@ public class WanderingState extends DashInducingState {
     }
 
     private float getRandomWanderFloat() {
-        float randomForcePositive = entity.getSpeed() * RandomUtils.getFloat(MIN_WANDER_FORCE, 1);
-        int randomSign = RandomUtils.getBoolean() ? 1 : -1;
+        float randomForcePositive = entity.getSpeed() * RandomUtils.AI.getFloat(MIN_WANDER_FORCE, 1);
+        int randomSign = RandomUtils.AI.getBoolean() ? 1 : -1;
         return randomSign * randomForcePositive;
     }
 
@@ -7,6 +7,7 @@ import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.mikm.ExtraMathUtils;
 import com.mikm.entities.InanimateEntity;
+import com.mikm.rendering.SpriteShader;
 
 class Particle extends InanimateEntity {
     private ParticleTypes parameters;
@@ -101,7 +102,7 @@ class Particle extends InanimateEntity {
             checkedOnce = true;
         }
         if (parameters.usesColor) {
-            batch.setColor(color);
+            SpriteShader.setTint(batch, color);
         }
         batch.draw(parameters.image, x, y+height, 4, 4, 8, 8, xScale, yScale, 0);
         if (parameters.usesColor) {
@@ -17,14 +17,14 @@ public class ParticleEffect {
     }
 
     public void createParticles(ParticleTypes parameters, float angleOffset, float x, float y) {
-        int amount = RandomUtils.getInt(parameters.amountMin, parameters.amountMax);
+        int amount = RandomUtils.FX.getInt(parameters.amountMin, parameters.amountMax);
         particles = new Particle[amount];
         positionOffsetRadius = parameters.positionOffsetRadius;
 
         for (int i = 0; i < amount; i++) {
-            particles[i] = new Particle(parameters, parameters.usesColor ? RandomUtils.getColor(parameters.startColorMin, parameters.startColorMax) : null,
-                    parameters.usesColor ? RandomUtils.getColor(parameters.endColorMin, parameters.endColorMax) :null, RandomUtils.getFloat(parameters.sizeMin, parameters.sizeMax),
-                    RandomUtils.getFloat(parameters.angleMin, parameters.angleMax) + angleOffset, RandomUtils.getFloat(parameters.speedMin, parameters.speedMax));
+            particles[i] = new Particle(parameters, parameters.usesColor ? RandomUtils.FX.getColor(parameters.startColorMin, parameters.startColorMax) : null,
+                    parameters.usesColor ? RandomUtils.FX.getColor(parameters.endColorMin, parameters.endColorMax) :null, RandomUtils.FX.getFloat(parameters.sizeMin, parameters.sizeMax),
+                    RandomUtils.FX.getFloat(parameters.angleMin, parameters.angleMax) + angleOffset, RandomUtils.FX.getFloat(parameters.speedMin, parameters.speedMax));
         }
 
         spawnParticlesAt(x, y);
@@ -33,9 +33,9 @@ public class ParticleEffect {
 
     public void spawnParticlesAt(float x, float y) {
         for (Particle particle : particles) {
-            final float offsetAngle = RandomUtils.getFloat(0, MathUtils.PI2);
-            final float xOffset = MathUtils.cos(offsetAngle) * RandomUtils.getFloat(0, positionOffsetRadius);
-            final float yOffset = MathUtils.sin(offsetAngle) * RandomUtils.getFloat(0, positionOffsetRadius);
+            final float offsetAngle = RandomUtils.FX.getFloat(0, MathUtils.PI2);
+            final float xOffset = MathUtils.cos(offsetAngle) * RandomUtils.FX.getFloat(0, positionOffsetRadius);
+            final float yOffset = MathUtils.sin(offsetAngle) * RandomUtils.FX.getFloat(0, positionOffsetRadius);
             particle.setPosition(x + xOffset, y + yOffset);
             Application.currentScreen.addInanimateEntity(particle);
         }
@@ -6,6 +6,7 @@ import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.mikm.BitGrid;
 import com.mikm.Vector2Int;
 import com.mikm.entities.Entity;
 import com.mikm.entities.animation.AnimationName;
@@ -80,12 +81,12 @@ public class Player extends Entity {
 
     private void checkHolePositions() {
         if (Application.currentScreen == Application.caveScreen && currentState != fallingState && currentState != divingState) {
-            boolean[][] holePositions = Application.caveScreen.getHolePositionsToCheck();
+            BitGrid holePositions = Application.caveScreen.getHolePositionsToCheck();
 
             ArrayList<Vector2Int> wallTilesToCheck = collider.getWallTilePositionsToCheck();
             for (Vector2Int checkedWallTilePosition : wallTilesToCheck) {
-                boolean isInBounds = checkedWallTilePosition.x > 1 && checkedWallTilePosition.x < holePositions.length-1 && checkedWallTilePosition.y > 1 && checkedWallTilePosition.y < holePositions[0].length-1;
-                if (isInBounds && holePositions[checkedWallTilePosition.y][checkedWallTilePosition.x]) {
+                boolean isInBounds = checkedWallTilePosition.x > 1 && checkedWallTilePosition.x < holePositions.getWidth()-1 && checkedWallTilePosition.y > 1 && checkedWallTilePosition.y < holePositions.getHeight()-1;
+                if (isInBounds && holePositions.get(checkedWallTilePosition.x, checkedWallTilePosition.y)) {
                     int x = 0, y;
                     for (y = -1; y <= 1; y += 2) {
                         checkTile(checkedWallTilePosition, holePositions, x, y);
@@ -99,8 +100,8 @@ public class Player extends Entity {
         }
     }
 
-    private void checkTile(Vector2Int checkedWallTilePosition, boolean[][] holePositions, int x, int y) {
-        if (!holePositions[checkedWallTilePosition.y+y][checkedWallTilePosition.x+x]) {
+    private void checkTile(Vector2Int checkedWallTilePosition, BitGrid holePositions, int x, int y) {
+        if (!holePositions.get(checkedWallTilePosition.x+x, checkedWallTilePosition.y+y)) {
             Rectangle checkedTileBounds = new Rectangle((checkedWallTilePosition.x + x) * Application.TILE_WIDTH, (checkedWallTilePosition.y + y) * Application.TILE_HEIGHT, 16, 16);
             if (checkedTileBounds.contains(new Vector2(getHitbox().x, getHitbox().y)) && GameInput.isTalkButtonJustPressed()) {
                 fallingState.enter();
@@ -140,10 +141,7 @@ public class Player extends Entity {
     }
 
     private void drawPlayer(Batch batch) {
-        handleFlash(batch);
-        if (inInvincibility) {
-            batch.setColor(new Color(1,1,1,.5f));
-        }
+        setDrawColor(batch, inInvincibility ? .5f : 1);
         animationManager.draw(batch);
         batch.setColor(Color.WHITE);
     }
@@ -171,6 +169,11 @@ public class Player extends Entity {
         return new Rectangle(x, y, PLAYER_WIDTH_PIXELS, PLAYER_HEIGHT_PIXELS);
     }
 
+    @Override
+    public Rectangle getDrawBounds(Rectangle out) {
+        return out.set(x, y, PLAYER_WIDTH_PIXELS, PLAYER_HEIGHT_PIXELS + Math.max(0, height));
+    }
+
     public Vector2 getCenteredPosition() {
         return new Vector2(x + getFullBounds().width/2, y + getFullBounds().height/2);
     }
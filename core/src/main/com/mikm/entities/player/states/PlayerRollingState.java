@@ -78,7 +78,7 @@ public class PlayerRollingState extends State {
             if (heightSinCounter >= MathUtils.PI) {
                 heightSinCounter = 0;
                 hurtbox.setPosition(player.getCenteredPosition().x, player.getCenteredPosition().y, 0, 0);
-                hurtbox.setDamageInformation(new DamageInformation(RandomUtils.getFloat(0, MathUtils.PI2), KNOCKBACK_MULTIPLIER, DAMAGE));
+                hurtbox.setDamageInformation(new DamageInformation(RandomUtils.COMBAT.getFloat(0, MathUtils.PI2), KNOCKBACK_MULTIPLIER, DAMAGE));
                 hurtbox.checkIfHitEntities();
                 new ParticleEffect(ParticleTypes.getDiveDustParameters(), player.getCenteredPosition().x, player.getBounds().y - 3);
                 player.startSquish(0.01f, 1.2f);
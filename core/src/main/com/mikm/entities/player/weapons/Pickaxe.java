@@ -6,7 +6,6 @@ import com.mikm.entities.InanimateEntity;
 import com.mikm.entities.particles.ParticleTypes;
 import com.mikm.entities.particles.ParticleEffect;
 import com.mikm.entities.projectiles.DamageInformation;
-import com.mikm.rendering.screens.Application;
 import com.mikm.rendering.screens.CaveScreen;
 import com.mikm.rendering.cave.Rock;
 import com.mikm.rendering.cave.RockType;
@@ -22,8 +21,8 @@ public class Pickaxe extends SwingableWeapon {
     public void checkForHit() {
         for (InanimateEntity inanimateEntity : caveScreen.inanimateEntities) {
             if (inanimateEntity.getClass() == Rock.class && Intersector.overlaps(inanimateEntity.getHitbox(), hurtbox.getHurtbox())) {
+                //Removing the rock takes it out of the floor's collision, see CaveEntitySpawner
                 inanimateEntity.die();
-                caveScreen.isCollidableGrid()[(int)inanimateEntity.y/ Application.TILE_HEIGHT][(int)inanimateEntity.x / Application.TILE_WIDTH] = false;
 
                 RockType rockType = ((Rock)inanimateEntity).rockType;
                 if (rockType != RockType.NORMAL) {
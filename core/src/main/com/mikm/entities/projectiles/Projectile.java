@@ -64,6 +64,11 @@ public class Projectile extends InanimateEntity {
         return new Rectangle(x, y, 16, 16);
     }
 
+    @Override
+    public Rectangle getDrawBounds(Rectangle out) {
+        return out.set(x, y, 16, 16 + Math.max(0, height));
+    }
+
     @Override
     public Rectangle getShadowBounds() {
         return new Rectangle(x, y-3, 16, 16);
@@ -0,0 +1,414 @@
+package com.mikm.rendering;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.Matrix4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A Batch that records draws instead of making them, then sorts them and hands them to the real batch in end().
+ * Entities draw into it like they would into the SpriteBatch. The order is layer, then depth, then the order of the
+ * draws within one entity, then texture and shader, then the order they came in. Entities that tie on depth, like a
+ * row of rocks, are grouped by texture, so the batch flushes less.
+ *
+ * Commands live in parallel primitive arrays that only grow, so queueing a draw doesn't allocate. Draws of a Texture
+ * are stored as a TextureRegion that belongs to the command's slot and is reused. Blending and matrices aren't
+ * recorded, they're passed straight to the target batch.
+ *
+ * Draws with rotated texture coordinates, an Affine2 or raw vertices, like Sprite, NinePatch and BitmapFont make, aren't
+ * recorded either. They flush the queue and go straight to the target batch, so they aren't sorted: they come out
+ * over everything queued before them and under everything queued after.
+ */
+public class RenderQueue implements Batch {
+    //Sort key bits, from the top: 6 layer, 22 depth, 4 draw order within an entity, 11 texture and shader, 20 index
+    private static final int LAYER_SHIFT = 57, DEPTH_SHIFT = 35, SUB_ORDER_SHIFT = 31, TEXTURE_KEY_SHIFT = 20;
+    private static final int LAYER_BIAS = 1 << 5, DEPTH_BIAS = 1 << 21, MAX_SUB_ORDER = (1 << 4) - 1, MAX_TEXTURE_KEYS = 1 << 11;
+    public static final int MAX_COMMANDS = 1 << 20;
+    //Half a pixel is as fine as depth gets
+    private static final float DEPTH_STEPS_PER_UNIT = 2;
+
+    private final Batch target;
+    private final Color color = new Color(1, 1, 1, 1);
+    private float packedColor = Color.WHITE_FLOAT_BITS;
+    private ShaderProgram shader;
+    private boolean drawing;
+
+    private int layer, depth, subOrder;
+    private int count;
+    private long[] sortKeys = new long[0];
+    private TextureRegion[] regions = new TextureRegion[0];
+    private TextureRegion[] ownedRegions = new TextureRegion[0];
+    private ShaderProgram[] shaders = new ShaderProgram[0];
+    private float[] colors = new float[0];
+    //x, y, originX, originY, width, height, scaleX, scaleY, rotation
+    private static final int TRANSFORM_SIZE = 9;
+    private float[] transforms = new float[0];
+
+    //Texture and shader pairs seen so far, their index is the key. There are only ever a few
+    private final ArrayList<Texture> keyTextures = new ArrayList<>();
+    private final ArrayList<ShaderProgram> keyShaders = new ArrayList<>();
+    private int lastTextureKey = -1;
+
+    private int submittedCommands, lastSubmittedCommands;
+    //What the target was set to before a draw that isn't sorted
+    private float unsortedDrawTargetColor;
+    private ShaderProgram unsortedDrawTargetShader;
+
+    public RenderQueue(Batch target) {
+        this.target = target;
+    }
+
+    //Sets where the next draws sort, until it's set again. Lower layers and lower depths are drawn first
+    public void setSortKey(int layer, float depth) {
+        this.layer = Math.max(-LAYER_BIAS, Math.min(LAYER_BIAS - 1, layer));
+        this.depth = Math.max(-DEPTH_BIAS, Math.min(DEPTH_BIAS - 1, Math.round(depth * DEPTH_STEPS_PER_UNIT)));
+        subOrder = 0;
+    }
+
+    @Override
+    public void begin() {
+        if (drawing) {
+            throw new IllegalStateException("RenderQueue.end must be called before begin.");
+        }
+        drawing = true;
+        count = 0;
+        submittedCommands = 0;
+        setSortKey(0, 0);
+        setPackedColor(Color.WHITE_FLOAT_BITS);
+        shader = target.getShader();
+    }
+
+    @Override
+    public void end() {
+        if (!drawing) {
+            throw new IllegalStateException("RenderQueue.begin must be called before end.");
+        }
+        flush();
+        drawing = false;
+        lastSubmittedCommands = submittedCommands;
+    }
+
+    //Sorts what's been queued so far and draws it with the target batch
+    @Override
+    public void flush() {
+        if (count == 0) {
+            return;
+        }
+        Arrays.sort(sortKeys, 0, count);
+        final float targetColor = target.getPackedColor();
+        final ShaderProgram targetShader = target.getShader();
+        ShaderProgram currentShader = targetShader;
+        for (int i = 0; i < count; i++) {
+            final int command = (int) (sortKeys[i] & (MAX_COMMANDS - 1));
+            if (shaders[command] != currentShader) {
+                currentShader = shaders[command];
+                target.setShader(currentShader);
+            }
+            target.setPackedColor(colors[command]);
+            final int t = command * TRANSFORM_SIZE;
+            target.draw(regions[command], transforms[t], transforms[t + 1], transforms[t + 2], transforms[t + 3], transforms[t + 4],
+                    transforms[t + 5], transforms[t + 6], transforms[t + 7], transforms[t + 8]);
+            //Don't keep the caller's regions alive
+            regions[command] = null;
+        }
+        if (currentShader != targetShader) {
+            target.setShader(targetShader);
+        }
+        target.setPackedColor(targetColor);
+        submittedCommands += count;
+        count = 0;
+    }
+
+    //Commands drawn by the last begin() and end()
+    public int getLastSubmittedCommands() {
+        return lastSubmittedCommands;
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation) {
+        queue(region, x, y, originX, originY, width, height, scaleX, scaleY, rotation);
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y) {
+        queue(region, x, y, 0, 0, region.getRegionWidth(), region.getRegionHeight(), 1, 1, 0);
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y, float width, float height) {
+        queue(region, x, y, 0, 0, width, height, 1, 1, 0);
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, boolean clockwise) {
+        beginUnsortedDraw();
+        target.draw(region, x, y, originX, originY, width, height, scaleX, scaleY, rotation, clockwise);
+        endUnsortedDraw();
+    }
+
+    @Override
+    public void draw(TextureRegion region, float width, float height, Affine2 transform) {
+        beginUnsortedDraw();
+        target.draw(region, width, height, transform);
+        endUnsortedDraw();
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation,
+                     int srcX, int srcY, int srcWidth, int srcHeight, boolean flipX, boolean flipY) {
+        TextureRegion region = getOwnedRegion(texture);
+        region.setRegion(srcX, srcY, srcWidth, srcHeight);
+        region.flip(flipX, flipY);
+        queue(region, x, y, originX, originY, width, height, scaleX, scaleY, rotation);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, int srcX, int srcY, int srcWidth, int srcHeight, boolean flipX, boolean flipY) {
+        draw(texture, x, y, 0, 0, width, height, 1, 1, 0, srcX, srcY, srcWidth, srcHeight, flipX, flipY);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight) {
+        draw(texture, x, y, 0, 0, srcWidth, srcHeight, 1, 1, 0, srcX, srcY, srcWidth, srcHeight, false, false);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) {
+        TextureRegion region = getOwnedRegion(texture);
+        //The batch puts (u, v) at the bottom left, a region puts (u, v2) there
+        region.setRegion(u, v2, u2, v);
+        queue(region, x, y, 0, 0, width, height, 1, 1, 0);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y) {
+        draw(texture, x, y, texture.getWidth(), texture.getHeight());
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height) {
+        draw(texture, x, y, width, height, 0, 1, 1, 0);
+    }
+
+    @Override
+    public void draw(Texture texture, float[] spriteVertices, int offset, int count) {
+        beginUnsortedDraw();
+        target.draw(texture, spriteVertices, offset, count);
+        endUnsortedDraw();
+    }
+
+    //Everything queued so far is drawn first, then the draw goes to the target with the queue's color and shader
+    private void beginUnsortedDraw() {
+        if (!drawing) {
+            throw new IllegalStateException("RenderQueue.begin must be called before draw.");
+        }
+        flush();
+        unsortedDrawTargetColor = target.getPackedColor();
+        unsortedDrawTargetShader = target.getShader();
+        if (shader != unsortedDrawTargetShader) {
+            target.setShader(shader);
+        }
+        target.setPackedColor(packedColor);
+    }
+
+    private void endUnsortedDraw() {
+        if (shader != unsortedDrawTargetShader) {
+            target.setShader(unsortedDrawTargetShader);
+        }
+        target.setPackedColor(unsortedDrawTargetColor);
+        submittedCommands++;
+    }
+
+    private void queue(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation) {
+        if (!drawing) {
+            throw new IllegalStateException("RenderQueue.begin must be called before draw.");
+        }
+        final int command = count;
+        ensureCapacity(command + 1);
+        regions[command] = region;
+        shaders[command] = shader;
+        colors[command] = packedColor;
+        final int t = command * TRANSFORM_SIZE;
+        transforms[t] = x;
+        transforms[t + 1] = y;
+        transforms[t + 2] = originX;
+        transforms[t + 3] = originY;
+        transforms[t + 4] = width;
+        transforms[t + 5] = height;
+        transforms[t + 6] = scaleX;
+        transforms[t + 7] = scaleY;
+        transforms[t + 8] = rotation;
+        sortKeys[command] = (long) (layer + LAYER_BIAS) << LAYER_SHIFT
+                | (long) (depth + DEPTH_BIAS) << DEPTH_SHIFT
+                | (long) subOrder << SUB_ORDER_SHIFT
+                | (long) getTextureKey(region.getTexture(), shader) << TEXTURE_KEY_SHIFT
+                | command;
+        subOrder = Math.min(subOrder + 1, MAX_SUB_ORDER);
+        count++;
+    }
+
+    private TextureRegion getOwnedRegion(Texture texture) {
+        ensureCapacity(count + 1);
+        if (ownedRegions[count] == null) {
+            ownedRegions[count] = new TextureRegion();
+        }
+        TextureRegion region = ownedRegions[count];
+        region.setTexture(texture);
+        return region;
+    }
+
+    private int getTextureKey(Texture texture, ShaderProgram shader) {
+        if (lastTextureKey != -1 && keyTextures.get(lastTextureKey) == texture && keyShaders.get(lastTextureKey) == shader) {
+            return lastTextureKey;
+        }
+        for (int i = 0; i < keyTextures.size(); i++) {
+            if (keyTextures.get(i) == texture && keyShaders.get(i) == shader) {
+                lastTextureKey = i;
+                return i;
+            }
+        }
+        //Shouldn't happen with one atlas, but past the limit draws just stop being grouped
+        if (keyTextures.size() == MAX_TEXTURE_KEYS) {
+            return MAX_TEXTURE_KEYS - 1;
+        }
+        keyTextures.add(texture);
+        keyShaders.add(shader);
+        lastTextureKey = keyTextures.size() - 1;
+        return lastTextureKey;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= sortKeys.length) {
+            return;
+        }
+        if (capacity > MAX_COMMANDS) {
+            throw new RuntimeException("RenderQueue can't hold more than " + MAX_COMMANDS + " draws before a flush");
+        }
+        int newCapacity = Math.min(MAX_COMMANDS, Math.max(capacity, Math.max(64, sortKeys.length * 2)));
+        sortKeys = Arrays.copyOf(sortKeys, newCapacity);
+        regions = Arrays.copyOf(regions, newCapacity);
+        ownedRegions = Arrays.copyOf(ownedRegions, newCapacity);
+        shaders = Arrays.copyOf(shaders, newCapacity);
+        colors = Arrays.copyOf(colors, newCapacity);
+        transforms = Arrays.copyOf(transforms, newCapacity * TRANSFORM_SIZE);
+    }
+
+    @Override
+    public void setColor(Color tint) {
+        color.set(tint);
+        packedColor = tint.toFloatBits();
+    }
+
+    @Override
+    public void setColor(float r, float g, float b, float a) {
+        color.set(r, g, b, a);
+        packedColor = color.toFloatBits();
+    }
+
+    @Override
+    public Color getColor() {
+        return color;
+    }
+
+    @Override
+    public void setPackedColor(float packedColor) {
+        Color.abgr8888ToColor(color, packedColor);
+        this.packedColor = packedColor;
+    }
+
+    @Override
+    public float getPackedColor() {
+        return packedColor;
+    }
+
+    @Override
+    public void setShader(ShaderProgram shader) {
+        this.shader = shader;
+    }
+
+    @Override
+    public ShaderProgram getShader() {
+        return shader;
+    }
+
+    @Override
+    public boolean isDrawing() {
+        return drawing;
+    }
+
+    @Override
+    public void disableBlending() {
+        target.disableBlending();
+    }
+
+    @Override
+    public void enableBlending() {
+        target.enableBlending();
+    }
+
+    @Override
+    public void setBlendFunction(int srcFunc, int dstFunc) {
+        target.setBlendFunction(srcFunc, dstFunc);
+    }
+
+    @Override
+    public void setBlendFunctionSeparate(int srcFuncColor, int dstFuncColor, int srcFuncAlpha, int dstFuncAlpha) {
+        target.setBlendFunctionSeparate(srcFuncColor, dstFuncColor, srcFuncAlpha, dstFuncAlpha);
+    }
+
+    @Override
+    public int getBlendSrcFunc() {
+        return target.getBlendSrcFunc();
+    }
+
+    @Override
+    public int getBlendDstFunc() {
+        return target.getBlendDstFunc();
+    }
+
+    @Override
+    public int getBlendSrcFuncAlpha() {
+        return target.getBlendSrcFuncAlpha();
+    }
+
+    @Override
+    public int getBlendDstFuncAlpha() {
+        return target.getBlendDstFuncAlpha();
+    }
+
+    @Override
+    public boolean isBlendingEnabled() {
+        return target.isBlendingEnabled();
+    }
+
+    @Override
+    public Matrix4 getProjectionMatrix() {
+        return target.getProjectionMatrix();
+    }
+
+    @Override
+    public Matrix4 getTransformMatrix() {
+        return target.getTransformMatrix();
+    }
+
+    @Override
+    public void setProjectionMatrix(Matrix4 projection) {
+        target.setProjectionMatrix(projection);
+    }
+
+    @Override
+    public void setTransformMatrix(Matrix4 transform) {
+        target.setTransformMatrix(transform);
+    }
+
+    //The queue owns nothing that needs disposing, the target batch is disposed by whoever made it
+    @Override
+    public void dispose() {
+    }
+}
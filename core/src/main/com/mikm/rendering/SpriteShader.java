@@ -0,0 +1,65 @@
+package com.mikm.rendering;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+
+/**
+ * The one shader the batch draws sprites with. Whether a sprite is tinted or filled with a color is packed into its
+ * vertex color's alpha instead of being a shader switch, so flashing entities don't flush the batch.
+ *
+ * The batch packs alpha into an even byte from 0 to 254. 128 to 254 is a tint, like the default shader, with 128 as
+ * fully transparent. 0 to 126 fills the sprite with the color, with 0 as fully transparent. Plain Color.WHITE packs to
+ * 254, which is an opaque tint, so resetting the batch color with it still works. Any other alpha has to go through
+ * setTint() or setFill().
+ */
+public class SpriteShader {
+    static final int TINT_ALPHA_START = 128, ALPHA_STEPS = 63;
+
+    private static ShaderProgram shaderProgram;
+    private static final Color color = new Color();
+
+    public static void setUp(Batch batch) {
+        shaderProgram = new ShaderProgram(batch.getShader().getVertexShaderSource(), Gdx.files.internal("images/sprite.frag").readString());
+        if (!shaderProgram.isCompiled()) {
+            throw new RuntimeException(shaderProgram.getLog());
+        }
+        batch.setShader(shaderProgram);
+    }
+
+    public static void setTint(Batch batch, Color tint) {
+        setTint(batch, tint, tint.a);
+    }
+
+    public static void setTint(Batch batch, Color tint, float alpha) {
+        batch.setColor(color.set(tint.r, tint.g, tint.b, getTintAlpha(alpha)));
+    }
+
+    public static void setFill(Batch batch, Color fill, float alpha) {
+        batch.setColor(color.set(fill.r, fill.g, fill.b, getFillAlpha(alpha)));
+    }
+
+    public static void dispose() {
+        if (shaderProgram != null) {
+            shaderProgram.dispose();
+        }
+    }
+
+    static float getTintAlpha(float alpha) {
+        return toColorAlpha(TINT_ALPHA_START + getAlphaStep(alpha) * 2);
+    }
+
+    static float getFillAlpha(float alpha) {
+        return toColorAlpha(getAlphaStep(alpha) * 2);
+    }
+
+    private static int getAlphaStep(float alpha) {
+        return Math.round(Math.max(0, Math.min(1, alpha)) * ALPHA_STEPS);
+    }
+
+    //The batch truncates alpha*255, so aim for the middle of the byte
+    private static float toColorAlpha(int alphaByte) {
+        return (alphaByte + .5f) / 255f;
+    }
+}
@@ -0,0 +1,53 @@
+package com.mikm.rendering;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.Rectangle;
+import com.mikm.entities.InanimateEntity;
+
+/**
+ * Decides which entities are worth drawing this frame. Anything whose draw bounds don't touch the camera's view,
+ * grown by a margin, is skipped. Culled entities still update, only their draw() call is skipped.
+ */
+public class ViewCuller {
+    //Entities can draw a bit past their bounds, like a squished slime or a swung weapon
+    public static final float MARGIN = 32;
+
+    private final Rectangle view = new Rectangle();
+    private final Rectangle entityBounds = new Rectangle();
+    private boolean hasView;
+    private int drawnCount, culledCount;
+    private int lastDrawnCount, lastCulledCount;
+
+    //Called once a frame before anything is drawn, also ends the last frame's counts
+    public void setView(OrthographicCamera camera) {
+        final float width = camera.viewportWidth * camera.zoom, height = camera.viewportHeight * camera.zoom;
+        view.set(camera.position.x - width/2f - MARGIN, camera.position.y - height/2f - MARGIN, width + MARGIN * 2, height + MARGIN * 2);
+        hasView = true;
+        lastDrawnCount = drawnCount;
+        lastCulledCount = culledCount;
+        drawnCount = 0;
+        culledCount = 0;
+    }
+
+    public boolean shouldDraw(InanimateEntity inanimateEntity) {
+        if (!hasView || view.overlaps(inanimateEntity.getDrawBounds(entityBounds))) {
+            drawnCount++;
+            return true;
+        }
+        culledCount++;
+        return false;
+    }
+
+    public Rectangle getView() {
+        return view;
+    }
+
+    //Counts for the last whole frame
+    public int getDrawnCount() {
+        return lastDrawnCount;
+    }
+
+    public int getCulledCount() {
+        return lastCulledCount;
+    }
+}
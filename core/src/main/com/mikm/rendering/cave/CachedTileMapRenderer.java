@@ -0,0 +1,342 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapLayers;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+
+import java.util.Arrays;
+
+/**
+ * Draws a map of {@link ChunkedTileLayer}s from a SpriteCache instead of pushing every visible tile through a batch
+ * each frame. The first time a chunk is seen, its tiles from every layer are baked into the cache in layer order, and
+ * from then on drawing it is one call. A chunk is only baked again once one of its tiles has changed, which the
+ * layers' chunk versions show. Maps with any other kind of layer are drawn the normal way.
+ *
+ * The scene's batch is ended while the cache draws, since the two draw with different shaders.
+ */
+public class CachedTileMapRenderer extends OrthogonalTiledMapRenderer {
+    //About 8 MB of vertices, far more than the chunks on screen even with every layer full
+    public static final int MAX_CACHED_SPRITES = 65536;
+    private static final int CORNERS = 4, FLOATS_PER_VERTEX = 5;
+    private static final int NOT_BAKED = -1, NO_SPRITES = -2;
+
+    private final Batch sceneBatch;
+    private final SpriteCache spriteCache = new SpriteCache(MAX_CACHED_SPRITES, false);
+
+    //The layers the chunks were baked from, a new floor swaps them out
+    private ChunkedTileLayer[] bakedLayers = new ChunkedTileLayer[0];
+    private int chunksWide, chunksHigh;
+    //Per chunk: its cache, how many sprites that cache has room for, and the sum of the layers' versions when baked
+    private int[] cacheIds = new int[0], cacheCapacities = new int[0], bakedVersions = new int[0];
+    private int cachedSprites;
+
+    private final float[] cornerXs = new float[CORNERS], cornerYs = new float[CORNERS];
+    private final float[] cornerUs = new float[CORNERS], cornerVs = new float[CORNERS];
+    //Two triangles, the way SpriteCache lays out a sprite without indices
+    private static final int[] TRIANGLE_CORNERS = {0, 1, 2, 2, 3, 0};
+    private final float[] spriteVertices = new float[TRIANGLE_CORNERS.length * FLOATS_PER_VERTEX];
+
+    private long chunkBakes, cacheClears;
+
+    public CachedTileMapRenderer(TiledMap map, Batch sceneBatch) {
+        super(map, 1);
+        this.sceneBatch = sceneBatch;
+    }
+
+    @Override
+    public void render() {
+        if (!areLayersCacheable()) {
+            super.render();
+            return;
+        }
+        if (haveLayersChanged()) {
+            resetCache();
+        }
+        final float chunkWidth = ChunkedTileLayer.CHUNK_SIZE * bakedLayers[0].getTileWidth() * unitScale;
+        final float chunkHeight = ChunkedTileLayer.CHUNK_SIZE * bakedLayers[0].getTileHeight() * unitScale;
+        final int firstChunkX = Math.max(0, (int) Math.floor(viewBounds.x / chunkWidth));
+        final int lastChunkX = Math.min(chunksWide - 1, (int) Math.floor((viewBounds.x + viewBounds.width) / chunkWidth));
+        final int firstChunkY = Math.max(0, (int) Math.floor(viewBounds.y / chunkHeight));
+        final int lastChunkY = Math.min(chunksHigh - 1, (int) Math.floor((viewBounds.y + viewBounds.height) / chunkHeight));
+        if (firstChunkX > lastChunkX || firstChunkY > lastChunkY) {
+            return;
+        }
+
+        //Caches can't be made while the cache is drawing, so the stale ones are all baked first
+        if (!bakeChunks(firstChunkX, lastChunkX, firstChunkY, lastChunkY)) {
+            //A full cache only holds chunks that went off screen, once they're gone everything visible fits
+            clearCache();
+            if (!bakeChunks(firstChunkX, lastChunkX, firstChunkY, lastChunkY)) {
+                super.render();
+                return;
+            }
+        }
+
+        boolean sceneBatchWasDrawing = sceneBatch != null && sceneBatch.isDrawing();
+        if (sceneBatchWasDrawing) {
+            sceneBatch.end();
+        }
+        spriteCache.setProjectionMatrix(batch.getProjectionMatrix());
+        spriteCache.begin();
+        for (int chunkY = firstChunkY; chunkY <= lastChunkY; chunkY++) {
+            for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+                int cacheId = cacheIds[chunkY * chunksWide + chunkX];
+                if (cacheId >= 0) {
+                    spriteCache.draw(cacheId);
+                }
+            }
+        }
+        spriteCache.end();
+        if (sceneBatchWasDrawing) {
+            sceneBatch.begin();
+        }
+    }
+
+    public long getChunkBakes() {
+        return chunkBakes;
+    }
+
+    public long getCacheClears() {
+        return cacheClears;
+    }
+
+    public int getCachedSpriteCount() {
+        return cachedSprites;
+    }
+
+    @Override
+    public void dispose() {
+        spriteCache.dispose();
+        super.dispose();
+    }
+
+    //Every layer has to be chunked and the same size, so one chunk covers the same tiles in each
+    private boolean areLayersCacheable() {
+        MapLayers layers = map.getLayers();
+        if (layers.size() == 0 || !(layers.get(0) instanceof ChunkedTileLayer)) {
+            return false;
+        }
+        ChunkedTileLayer first = (ChunkedTileLayer) layers.get(0);
+        for (MapLayer layer : layers) {
+            if (!(layer instanceof ChunkedTileLayer)) {
+                return false;
+            }
+            ChunkedTileLayer chunkedLayer = (ChunkedTileLayer) layer;
+            if (chunkedLayer.getWidth() != first.getWidth() || chunkedLayer.getHeight() != first.getHeight()
+                    || chunkedLayer.getTileWidth() != first.getTileWidth() || chunkedLayer.getTileHeight() != first.getTileHeight()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean haveLayersChanged() {
+        MapLayers layers = map.getLayers();
+        if (layers.size() != bakedLayers.length) {
+            return true;
+        }
+        for (int i = 0; i < bakedLayers.length; i++) {
+            if (layers.get(i) != bakedLayers[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void resetCache() {
+        MapLayers layers = map.getLayers();
+        bakedLayers = new ChunkedTileLayer[layers.size()];
+        for (int i = 0; i < bakedLayers.length; i++) {
+            bakedLayers[i] = (ChunkedTileLayer) layers.get(i);
+        }
+        chunksWide = bakedLayers[0].getChunksWide();
+        chunksHigh = bakedLayers[0].getChunksHigh();
+        cacheIds = new int[chunksWide * chunksHigh];
+        cacheCapacities = new int[chunksWide * chunksHigh];
+        bakedVersions = new int[chunksWide * chunksHigh];
+        clearCache();
+    }
+
+    private void clearCache() {
+        spriteCache.clear();
+        Arrays.fill(cacheIds, NOT_BAKED);
+        cachedSprites = 0;
+        cacheClears++;
+    }
+
+    //Returns false if the cache ran out of room
+    private boolean bakeChunks(int firstChunkX, int lastChunkX, int firstChunkY, int lastChunkY) {
+        for (int chunkY = firstChunkY; chunkY <= lastChunkY; chunkY++) {
+            for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+                int chunk = chunkY * chunksWide + chunkX;
+                int version = getChunkVersion(chunkX, chunkY);
+                if (cacheIds[chunk] != NOT_BAKED && bakedVersions[chunk] == version) {
+                    continue;
+                }
+                if (!bakeChunk(chunkX, chunkY)) {
+                    return false;
+                }
+                bakedVersions[chunk] = version;
+            }
+        }
+        return true;
+    }
+
+    private int getChunkVersion(int chunkX, int chunkY) {
+        int version = 0;
+        for (ChunkedTileLayer layer : bakedLayers) {
+            version += layer.getChunkVersion(chunkX, chunkY);
+        }
+        return version;
+    }
+
+    private boolean bakeChunk(int chunkX, int chunkY) {
+        final int chunk = chunkY * chunksWide + chunkX;
+        final int spriteCount = countSprites(chunkX, chunkY);
+        //A chunk that already has a cache empties it instead, so the room is still there if it fills back up
+        if (spriteCount == 0 && cacheIds[chunk] < 0) {
+            cacheIds[chunk] = NO_SPRITES;
+            return true;
+        }
+        //A cache can be baked again in place as long as it doesn't grow
+        if (cacheIds[chunk] >= 0 && spriteCount <= cacheCapacities[chunk]) {
+            spriteCache.beginCache(cacheIds[chunk]);
+        } else {
+            if (cachedSprites + spriteCount > MAX_CACHED_SPRITES) {
+                return false;
+            }
+            spriteCache.beginCache();
+            cacheCapacities[chunk] = spriteCount;
+            cachedSprites += spriteCount;
+        }
+        addChunkSprites(chunkX, chunkY);
+        cacheIds[chunk] = spriteCache.endCache();
+        chunkBakes++;
+        return true;
+    }
+
+    private int countSprites(int chunkX, int chunkY) {
+        int sprites = 0;
+        for (ChunkedTileLayer layer : bakedLayers) {
+            if (!layer.isVisible() || layer.isChunkEmpty(chunkX, chunkY)) {
+                continue;
+            }
+            for (int y = chunkY * ChunkedTileLayer.CHUNK_SIZE; y < getChunkEnd(chunkY, layer.getHeight()); y++) {
+                for (int x = chunkX * ChunkedTileLayer.CHUNK_SIZE; x < getChunkEnd(chunkX, layer.getWidth()); x++) {
+                    TiledMapTileLayer.Cell cell = layer.getStoredCell(x, y);
+                    if (cell != null && cell.getTile() != null) {
+                        sprites++;
+                    }
+                }
+            }
+        }
+        return sprites;
+    }
+
+    private void addChunkSprites(int chunkX, int chunkY) {
+        for (ChunkedTileLayer layer : bakedLayers) {
+            if (!layer.isVisible() || layer.isChunkEmpty(chunkX, chunkY)) {
+                continue;
+            }
+            final float color = Color.toFloatBits(1f, 1f, 1f, layer.getOpacity());
+            final float layerTileWidth = layer.getTileWidth() * unitScale;
+            final float layerTileHeight = layer.getTileHeight() * unitScale;
+            final float layerOffsetX = layer.getRenderOffsetX() * unitScale;
+            //Tiled's y offset points down
+            final float layerOffsetY = -layer.getRenderOffsetY() * unitScale;
+            for (int y = chunkY * ChunkedTileLayer.CHUNK_SIZE; y < getChunkEnd(chunkY, layer.getHeight()); y++) {
+                for (int x = chunkX * ChunkedTileLayer.CHUNK_SIZE; x < getChunkEnd(chunkX, layer.getWidth()); x++) {
+                    TiledMapTileLayer.Cell cell = layer.getStoredCell(x, y);
+                    if (cell == null || cell.getTile() == null) {
+                        continue;
+                    }
+                    addCell(cell, x * layerTileWidth + layerOffsetX, y * layerTileHeight + layerOffsetY, color);
+                }
+            }
+        }
+    }
+
+    private int getChunkEnd(int chunk, int layerSize) {
+        return Math.min((chunk + 1) * ChunkedTileLayer.CHUNK_SIZE, layerSize);
+    }
+
+    //The same corners OrthogonalTiledMapRenderer draws a cell with, split into two triangles
+    private void addCell(TiledMapTileLayer.Cell cell, float x, float y, float color) {
+        TiledMapTile tile = cell.getTile();
+        TextureRegion region = tile.getTextureRegion();
+        final float x1 = x + tile.getOffsetX() * unitScale;
+        final float y1 = y + tile.getOffsetY() * unitScale;
+        final float x2 = x1 + region.getRegionWidth() * unitScale;
+        final float y2 = y1 + region.getRegionHeight() * unitScale;
+        final float u1 = region.getU(), v1 = region.getV2(), u2 = region.getU2(), v2 = region.getV();
+
+        //Bottom left, top left, top right, bottom right
+        setCorner(0, x1, y1, u1, v1);
+        setCorner(1, x1, y2, u1, v2);
+        setCorner(2, x2, y2, u2, v2);
+        setCorner(3, x2, y1, u2, v1);
+        if (cell.getFlipHorizontally()) {
+            swap(cornerUs, 0, 2);
+            swap(cornerUs, 1, 3);
+        }
+        if (cell.getFlipVertically()) {
+            swap(cornerVs, 0, 2);
+            swap(cornerVs, 1, 3);
+        }
+        switch (cell.getRotation()) {
+            case TiledMapTileLayer.Cell.ROTATE_90:
+                rotateTextureCorners(1);
+                break;
+            case TiledMapTileLayer.Cell.ROTATE_180:
+                rotateTextureCorners(2);
+                break;
+            case TiledMapTileLayer.Cell.ROTATE_270:
+                rotateTextureCorners(3);
+                break;
+        }
+
+        for (int i = 0; i < TRIANGLE_CORNERS.length; i++) {
+            int corner = TRIANGLE_CORNERS[i];
+            int vertex = i * FLOATS_PER_VERTEX;
+            spriteVertices[vertex] = cornerXs[corner];
+            spriteVertices[vertex + 1] = cornerYs[corner];
+            spriteVertices[vertex + 2] = color;
+            spriteVertices[vertex + 3] = cornerUs[corner];
+            spriteVertices[vertex + 4] = cornerVs[corner];
+        }
+        spriteCache.add(region.getTexture(), spriteVertices, 0, spriteVertices.length);
+    }
+
+    private void setCorner(int corner, float x, float y, float u, float v) {
+        cornerXs[corner] = x;
+        cornerYs[corner] = y;
+        cornerUs[corner] = u;
+        cornerVs[corner] = v;
+    }
+
+    //Each quarter turn moves every corner's texture coordinates to the corner before it
+    private void rotateTextureCorners(int quarterTurns) {
+        for (int turn = 0; turn < quarterTurns; turn++) {
+            float firstU = cornerUs[0], firstV = cornerVs[0];
+            for (int corner = 0; corner < CORNERS - 1; corner++) {
+                cornerUs[corner] = cornerUs[corner + 1];
+                cornerVs[corner] = cornerVs[corner + 1];
+            }
+            cornerUs[CORNERS - 1] = firstU;
+            cornerVs[CORNERS - 1] = firstV;
+        }
+    }
+
+    private static void swap(float[] values, int a, int b) {
+        float temp = values[a];
+        values[a] = values[b];
+        values[b] = temp;
+    }
+}
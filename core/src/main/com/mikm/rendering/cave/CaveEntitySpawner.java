@@ -1,81 +1,80 @@
 package com.mikm.rendering.cave;
 
-import com.mikm.RandomUtils;
+import com.mikm.RandomStream;
 import com.mikm.Vector2Int;
-import com.mikm.entities.Rope;
+import com.mikm.entities.Entity;
+import com.mikm.entities.InanimateEntity;
 import com.mikm.entities.enemies.Slime;
 import com.mikm.rendering.screens.Application;
 import com.mikm.rendering.screens.CaveScreen;
 
-import java.util.ArrayList;
+import java.util.IdentityHashMap;
 
 public class CaveEntitySpawner {
     private final CaveScreen caveScreen;
 
-    private boolean[][] ruleCellPositions;
-    private boolean[][] collidablePositions;
-    private ArrayList<Vector2Int> openTilePositions;
-
-    private final int MIN_ENEMIES = 90, MAX_ENEMIES = 100;
+    //Which planned spawn every live entity came from, so removing it can be written to the memento
+    private CaveFloorLayout layout;
+    private CaveFloorMemento memento;
+    private final IdentityHashMap<Entity, Integer> enemySpawnIndexes = new IdentityHashMap<>();
+    private final IdentityHashMap<InanimateEntity, Integer> rockSpawnIndexes = new IdentityHashMap<>();
 
     public CaveEntitySpawner(CaveScreen caveScreen) {
         this.caveScreen = caveScreen;
     }
-    
-    public void generateNewEnemies(CaveTilemapCreator tilemap) {
-        this.ruleCellPositions = tilemap.ruleCellPositions;
-        this.collidablePositions = tilemap.collidablePositions;
-        this.openTilePositions = tilemap.openTiles;
 
+    /**
+     * Spawns the layout's planned enemies and rocks, skipping the ones the memento says are gone.
+     */
+    public void spawnEntities(CaveFloorLayout layout, CaveFloorMemento memento) {
+        this.layout = layout;
+        this.memento = memento;
         resetInanimateAndAnimateEntities();
 
-        spawnEnemies();
-        spawnRocks();
+        for (int i = 0; i < layout.enemyTiles.size(); i++) {
+            if (memento.killedEnemies.get(i)) {
+                continue;
+            }
+            Vector2Int enemyTile = layout.enemyTiles.get(i);
+            Slime slime = new Slime(enemyTile.x * Application.TILE_WIDTH, enemyTile.y * Application.TILE_HEIGHT);
+            caveScreen.addEntityInstantly(slime);
+            enemySpawnIndexes.put(slime, i);
+        }
+        //Seeded from the floor, so coming back shows the same rocks. Mined rocks still roll so the rest keep theirs.
+        RandomStream rockImages = new RandomStream(layout.seed).getSubstream("rock images");
+        for (int i = 0; i < layout.rockTiles.size(); i++) {
+            int imageIndex = rockImages.getInt(Rock.NORMAL_ROCK_IMAGES - 1);
+            if (memento.minedRocks.get(i)) {
+                continue;
+            }
+            Vector2Int rockTile = layout.rockTiles.get(i);
+            Rock rock = new Rock(rockTile.x * Application.TILE_WIDTH, rockTile.y * Application.TILE_HEIGHT, layout.rockTypes.get(i), imageIndex);
+            caveScreen.inanimateEntities.addInstantly(rock);
+            rockSpawnIndexes.put(rock, i);
+        }
+    }
+
+    public void onEntityRemoved(Entity entity) {
+        Integer spawnIndex = enemySpawnIndexes.remove(entity);
+        if (spawnIndex != null) {
+            memento.killedEnemies.set(spawnIndex);
+        }
     }
 
-    public void activate(CaveFloorMemento memento) {
-        resetInanimateAndAnimateEntities();
-        caveScreen.inanimateEntities.addInstantly(new Rope(memento.spawnPosition.x+8, memento.spawnPosition.y+8));
-        caveScreen.inanimateEntities.addAll(memento.inanimateEntities);
-        caveScreen.entities.addAll(memento.enemies);
+    public void onInanimateEntityRemoved(InanimateEntity inanimateEntity) {
+        Integer spawnIndex = rockSpawnIndexes.remove(inanimateEntity);
+        if (spawnIndex != null) {
+            memento.mineRock(layout, spawnIndex);
+        }
     }
 
     private void resetInanimateAndAnimateEntities() {
+        enemySpawnIndexes.clear();
+        rockSpawnIndexes.clear();
         caveScreen.entities.removeInstantly(Application.player);
         caveScreen.entities.clear();
         caveScreen.inanimateEntities.clear();
         caveScreen.entities.addInstantly(Application.player);
         caveScreen.addPlayerShadow();
     }
-
-    private void spawnEnemies() {
-        if (openTilePositions.size() == 0) {
-            return;
-        }
-
-        int enemyAmount = RandomUtils.getInt(MIN_ENEMIES, MAX_ENEMIES);
-        for (int i = 0; i < enemyAmount; i++) {
-            Vector2Int randomTilePosition = openTilePositions.get(RandomUtils.getInt(openTilePositions.size()-1));
-            Slime slime = new Slime(randomTilePosition.x * Application.TILE_WIDTH, randomTilePosition.y * Application.TILE_HEIGHT);
-            caveScreen.addEntityInstantly(slime);
-        }
-    }
-
-    public void spawnRocks() {
-        if (openTilePositions.size() == 0) {
-            return;
-        }
-
-        ArrayList<Vector2Int> positionsToDelete = new ArrayList<>();
-        for (Vector2Int tilePosition : openTilePositions) {
-            SpawnProbability rockDistribution = SpawnProbabilityConstants.ROCK_FILL;
-            if (RandomUtils.getFloatRoundedToTenths(100) < rockDistribution.getProbabilityByFloor(CaveScreen.floor) * 100f) {
-                RockType randomRockType = RockType.getRandomRockType(SpawnProbabilityConstants.getOreDistributionsByFloor(CaveScreen.floor));
-                caveScreen.inanimateEntities.addInstantly(new Rock(tilePosition.x * Application.TILE_WIDTH, tilePosition.y * Application.TILE_HEIGHT, randomRockType));
-                collidablePositions[tilePosition.y][tilePosition.x] = true;
-                positionsToDelete.add(tilePosition);
-            }
-        }
-        openTilePositions.removeAll(positionsToDelete);
-    }
 }
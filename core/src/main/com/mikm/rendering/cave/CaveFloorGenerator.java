@@ -0,0 +1,156 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.mikm.BitGrid;
+import com.mikm.RandomStream;
+import com.mikm.Vector2Int;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import com.mikm.rendering.screens.CaveScreen;
+
+import java.util.ArrayList;
+
+/**
+ * Generates a whole floor as a {@link CaveFloorLayout} without touching the live screen, so it can run off the GL
+ * thread. Only one thread may use a generator at a time. Every random choice comes from the floor's seed, so the
+ * same seed always gives the same floor.
+ *
+ * The work is split into the named stages of a {@link FloorGenerationPipeline}, which can be replaced or skipped
+ * through getPipeline().
+ */
+public class CaveFloorGenerator {
+    public static final String RANDOM_FILL = "random fill", SMOOTHING = "smoothing", ROOMS = "rooms", OPEN_TILES = "open tiles",
+            HOLES = "holes", ENEMIES = "enemies", ROCKS = "rocks", SPAWN_TILE = "spawn tile", TERRAIN = "terrain";
+    private final int MIN_ENEMIES = 90, MAX_ENEMIES = 100, MAX_SCALED_ENEMIES = 2000;
+    //Big enough for every position in the tile and hole metadata
+    private static final int BLANK_SPRITESHEET_SIZE = 16;
+
+    private final RuleCellPositionGenerator ruleCellPositionGenerator = new RuleCellPositionGenerator();
+    private final CaveTileLayerBuilder layerBuilder;
+    private final FloorGenerationPipeline pipeline = new FloorGenerationPipeline();
+
+    CaveFloorGenerator(CaveTileLayerBuilder layerBuilder) {
+        this.layerBuilder = layerBuilder;
+        pipeline.addStage(RANDOM_FILL, context -> {
+            ruleCellPositionGenerator.fillRandomly(context.ruleCellPositions, context.random);
+            return context.ruleCellPositions.cardinality();
+        }).addStage(SMOOTHING, context -> {
+            ruleCellPositionGenerator.smooth(context.ruleCellPositions);
+            return context.ruleCellPositions.cardinality();
+        }).addStage(ROOMS, context -> ruleCellPositionGenerator.processMap(context.ruleCellPositions)).addStage(OPEN_TILES, context -> {
+            CaveFloorLayout layout = context.getLayout();
+            layout.openTiles = findOpenTilePositions(layout.ruleCellPositions);
+            return layout.openTiles.size();
+        }).addStage(HOLES, context -> {
+            CaveFloorLayout layout = context.getLayout();
+            layout.setHoles(new HolePositionGenerator(layout.openTiles, context.random).createHolePositions());
+            return layout.holePositions.size();
+        }).addStage(ENEMIES, context -> {
+            planEnemies(context.getLayout(), context.random);
+            return context.getLayout().enemyTiles.size();
+        }).addStage(ROCKS, context -> {
+            planRocks(context.getLayout(), context.random);
+            return context.getLayout().rockTiles.size();
+        }).addStage(SPAWN_TILE, context -> {
+            planSpawnTile(context.getLayout(), context.random);
+            return 1;
+        }).addStage(TERRAIN, context -> {
+            CaveFloorLayout layout = context.getLayout();
+            layerBuilder.buildLayers(layout);
+            return layout.floorAndWallLayer.getStoredChunkCount() + layout.ruleCellLayer.getStoredChunkCount()
+                    + layout.holeRuleCellLayer.getStoredChunkCount();
+        });
+    }
+
+    /**
+     * A generator with blank tile images, for making floors where there's no GL context, like in tests and tools.
+     * The layers are still autotiled with the given metadata, so they cost what they do in the game.
+     */
+    public static CaveFloorGenerator createHeadless(RuleCellMetadata caveTilesMetadata, RuleCellMetadata holesMetadata) {
+        ArrayList<TextureRegion[][]> tilesetRecolors = new ArrayList<>();
+        for (int i = 0; i < CaveScreen.LAST_FLOOR / CaveScreen.FLOORS_PER_LEVEL + 1; i++) {
+            tilesetRecolors.add(createBlankSpritesheet());
+        }
+        return new CaveFloorGenerator(new CaveTileLayerBuilder(tilesetRecolors, createBlankSpritesheet(), caveTilesMetadata, holesMetadata));
+    }
+
+    static TextureRegion[][] createBlankSpritesheet() {
+        TextureRegion[][] spritesheet = new TextureRegion[BLANK_SPRITESHEET_SIZE][BLANK_SPRITESHEET_SIZE];
+        for (TextureRegion[] row : spritesheet) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = new TextureRegion();
+            }
+        }
+        return spritesheet;
+    }
+
+    public CaveFloorLayout generate(int floor, long seed) {
+        return generate(floor, seed, CaveTilemapCreator.getMapWidth(floor), CaveTilemapCreator.getMapHeight(floor));
+    }
+
+    public CaveFloorLayout generate(int floor, long seed, int mapWidth, int mapHeight) {
+        CaveFloorLayout layout = pipeline.run(floor, seed, mapWidth, mapHeight);
+        //Skipping the terrain stage still has to leave the map something to draw and walls to collide with
+        if (layout.floorAndWallLayer == null) {
+            layout.floorAndWallLayer = CaveTileLayerBuilder.createEmptyLayer(mapWidth, mapHeight);
+            layout.ruleCellLayer = CaveTileLayerBuilder.createEmptyRuleCellLayer(mapWidth, mapHeight);
+            layout.holeRuleCellLayer = CaveTileLayerBuilder.createEmptyRuleCellLayer(mapWidth, mapHeight);
+            layout.collidablePositions.or(layout.ruleCellPositions);
+            layout.collidablePositions.or(layout.holePositionsToCheckGrid);
+        }
+        return layout;
+    }
+
+    FloorGenerationPipeline getPipeline() {
+        return pipeline;
+    }
+
+    private OpenTileSet findOpenTilePositions(BitGrid ruleCellPositions) {
+        final int width = ruleCellPositions.getWidth(), height = ruleCellPositions.getHeight();
+        OpenTileSet output = new OpenTileSet(width, height);
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                boolean isNotInWallTile = y + 1 <= height - 1 && !ruleCellPositions.get(x, y + 1);
+                boolean inOpenTile = !ruleCellPositions.get(x, y) && isNotInWallTile;
+                if (inOpenTile) {
+                    output.add(x, y);
+                }
+            }
+        }
+        return output;
+    }
+
+    private void planEnemies(CaveFloorLayout layout, RandomStream random) {
+        if (layout.openTiles.isEmpty()) {
+            return;
+        }
+
+        //Bigger maps keep the first floors' enemy density, up to a point
+        float areaScale = (float) layout.width * layout.height / (CaveTilemapCreator.MAP_WIDTH * CaveTilemapCreator.MAP_HEIGHT);
+        int enemyAmount = Math.min(MAX_SCALED_ENEMIES, Math.round(random.getInt(MIN_ENEMIES, MAX_ENEMIES) * areaScale));
+        for (int i = 0; i < enemyAmount; i++) {
+            layout.enemyTiles.add(layout.openTiles.getRandom(random));
+        }
+    }
+
+    private void planRocks(CaveFloorLayout layout, RandomStream random) {
+        OpenTileSet openTiles = layout.openTiles;
+        //Backwards, so the tile swapped into a removed slot has already been rolled for
+        for (int i = openTiles.size() - 1; i >= 0; i--) {
+            SpawnProbability rockDistribution = SpawnProbabilityConstants.ROCK_FILL;
+            if (random.getFloatRoundedToTenths(100) < rockDistribution.getProbabilityByFloor(layout.floor) * 100f) {
+                Vector2Int tilePosition = openTiles.get(i);
+                layout.addRock(tilePosition, RockType.getRandomRockType(SpawnProbabilityConstants.getOreDistributionsByFloor(layout.floor), random));
+                openTiles.remove(tilePosition);
+            }
+        }
+    }
+
+    private void planSpawnTile(CaveFloorLayout layout, RandomStream random) {
+        if (layout.openTiles.isEmpty()) {
+            System.err.println("Zero tiles");
+            layout.spawnTile = Vector2Int.ZERO;
+            return;
+        }
+        layout.spawnTile = layout.openTiles.getRandom(random);
+    }
+}
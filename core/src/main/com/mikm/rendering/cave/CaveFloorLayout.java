@@ -0,0 +1,93 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import com.mikm.Vector2Int;
+import com.mikm.collections.IntList;
+import com.mikm.rendering.cave.ruleCell.RuleCellTiledMapTileLayer;
+
+import java.util.ArrayList;
+
+/**
+ * Everything about a floor that can be worked out without the GL thread: the grids, where enemies and rocks go and
+ * the finished tile layers. {@link CaveTilemapCreator} and {@link CaveEntitySpawner} turn it into the live floor.
+ */
+public class CaveFloorLayout {
+    public final int floor;
+    public final long seed;
+    public final int width, height;
+
+    public final BitGrid ruleCellPositions;
+    public final BitGrid collidablePositions;
+    public final BitGrid holePositionsToCheckGrid;
+    //Rocks that are still standing, so editing the terrain under one keeps its collision
+    public final BitGrid rockPositions;
+    //Floor tiles with floor above them and no hole or rock on them
+    public OpenTileSet openTiles;
+    //Packed as y * width + x
+    public IntList holePositions = new IntList();
+
+    //Entities are only created on the GL thread, so the spawns are planned here as tile positions
+    public final ArrayList<Vector2Int> enemyTiles = new ArrayList<>();
+    public final ArrayList<Vector2Int> rockTiles = new ArrayList<>();
+    public final ArrayList<RockType> rockTypes = new ArrayList<>();
+    public Vector2Int spawnTile = Vector2Int.ZERO;
+
+    //How long each stage took to make this floor
+    public FloorGenerationReport generationReport;
+
+    ChunkedTileLayer floorAndWallLayer;
+    RuleCellTiledMapTileLayer ruleCellLayer;
+    RuleCellTiledMapTileLayer holeRuleCellLayer;
+
+    CaveFloorLayout(int floor, long seed, BitGrid ruleCellPositions) {
+        this.floor = floor;
+        this.seed = seed;
+        this.ruleCellPositions = ruleCellPositions;
+        width = ruleCellPositions.getWidth();
+        height = ruleCellPositions.getHeight();
+        //Walls and holes are added when the layers are built, rocks as they're placed
+        collidablePositions = new BitGrid(width, height);
+        holePositionsToCheckGrid = new BitGrid(width, height);
+        rockPositions = new BitGrid(width, height);
+        openTiles = new OpenTileSet(width, height);
+    }
+
+    void setHoles(IntList holePositions) {
+        this.holePositions = holePositions;
+        for (int i = 0; i < holePositions.size(); i++) {
+            holePositionsToCheckGrid.set(holePositions.get(i) % width, holePositions.get(i) / width);
+        }
+    }
+
+    void addRock(Vector2Int tilePosition, RockType rockType) {
+        rockTiles.add(tilePosition);
+        rockTypes.add(rockType);
+        rockPositions.set(tilePosition.x, tilePosition.y);
+        collidablePositions.set(tilePosition.x, tilePosition.y);
+    }
+
+    //Called when a rock is mined, and for every mined rock when a floor is regenerated
+    void removeRock(int rock) {
+        Vector2Int rockTile = rockTiles.get(rock);
+        rockPositions.clear(rockTile.x, rockTile.y);
+        updateCollision(rockTile.x, rockTile.y);
+        updateOpenTile(rockTile.x, rockTile.y);
+    }
+
+    //Collision is wall, hole or rock
+    void updateCollision(int x, int y) {
+        collidablePositions.set(x, y, ruleCellPositions.get(x, y) || holePositionsToCheckGrid.get(x, y) || rockPositions.get(x, y));
+    }
+
+    void updateOpenTile(int x, int y) {
+        if (!ruleCellPositions.isInBounds(x, y)) {
+            return;
+        }
+        boolean isUnderWall = y + 1 > height - 1 || ruleCellPositions.get(x, y + 1);
+        if (ruleCellPositions.get(x, y) || isUnderWall || holePositionsToCheckGrid.get(x, y) || rockPositions.get(x, y)) {
+            openTiles.remove(x, y);
+        } else {
+            openTiles.add(x, y);
+        }
+    }
+}
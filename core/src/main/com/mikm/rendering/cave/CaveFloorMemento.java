@@ -1,32 +1,44 @@
 package com.mikm.rendering.cave;
 
-import com.mikm.serialization.Serializer;
-import com.mikm.Vector2Int;
-import com.mikm.entities.Entity;
-import com.mikm.entities.InanimateEntity;
-import com.mikm.entities.RemovableArray;
-
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 
+/**
+ * What's needed to bring a visited floor back: the seed it was generated from, and which of its planned rocks and
+ * enemies are gone. Revisiting regenerates the floor from the seed and replays the changes on top. Walls and holes
+ * changed through {@link CaveTerrainEditor} aren't recorded.
+ */
 public class CaveFloorMemento {
-    public Vector2Int spawnPosition;
-    public boolean[][] ruleCellPositions;
-    public ArrayList<Vector2Int> holePositions;
-    public RemovableArray<Entity> enemies;
-    public RemovableArray<InanimateEntity> inanimateEntities;
-
-    public CaveFloorMemento(Vector2Int spawnPosition, boolean[][] ruleCellPositions, ArrayList<Vector2Int> holePositions, RemovableArray<InanimateEntity> inanimateEntities, RemovableArray<Entity> enemies) {
-        this.spawnPosition = spawnPosition;
-        this.ruleCellPositions = ruleCellPositions;
-        this.holePositions = holePositions;
-        this.inanimateEntities = inanimateEntities;
-        this.enemies = enemies;
+    public final long seed;
+    //Indexes into CaveFloorLayout.rockTiles and enemyTiles
+    public final BitSet minedRocks;
+    public final BitSet killedEnemies;
+
+    public CaveFloorMemento(long seed) {
+        this(seed, new BitSet(), new BitSet());
+    }
+
+    public CaveFloorMemento(long seed, BitSet minedRocks, BitSet killedEnemies) {
+        this.seed = seed;
+        this.minedRocks = minedRocks;
+        this.killedEnemies = killedEnemies;
+    }
+
+    /**
+     * Removes the mined rocks from a layout regenerated from this memento's seed.
+     */
+    public void applyTo(CaveFloorLayout layout) {
+        for (int rock = minedRocks.nextSetBit(0); rock >= 0; rock = minedRocks.nextSetBit(rock + 1)) {
+            layout.removeRock(rock);
+        }
     }
 
-    public static CaveFloorMemento create(Vector2Int spawnPosition, boolean[][] ruleCellPositions, ArrayList<Vector2Int> holePositions, RemovableArray<InanimateEntity> inanimateEntities, RemovableArray<Entity> enemies) {
-        Serializer.getInstance().write(new CaveFloorMemento(spawnPosition, ruleCellPositions, holePositions, inanimateEntities, enemies));
-        return Serializer.getInstance().read(CaveFloorMemento.class);
+    /**
+     * Records a rock mined on the live floor and takes it out of the layout, so later terrain edits under it don't
+     * bring its collision back.
+     */
+    public void mineRock(CaveFloorLayout layout, int rock) {
+        minedRocks.set(rock);
+        layout.removeRock(rock);
     }
 
     @Override
@@ -38,19 +50,17 @@ public class CaveFloorMemento {
             return false;
         }
         CaveFloorMemento other = (CaveFloorMemento) obj;
-        return spawnPosition.equals(other.spawnPosition)
-                && Arrays.deepEquals(ruleCellPositions, other.ruleCellPositions)
-                && enemies.equals(other.enemies)
-                && inanimateEntities.equals(other.inanimateEntities);
+        return seed == other.seed
+                && minedRocks.equals(other.minedRocks)
+                && killedEnemies.equals(other.killedEnemies);
     }
 
     @Override
     public int hashCode() {
         int result = 17;
-        result = 31 * result + spawnPosition.hashCode();
-        result = 31 * result + Arrays.deepHashCode(ruleCellPositions);
-        result = 31 * result + enemies.hashCode();
-        result = 31 * result + inanimateEntities.hashCode();
+        result = 31 * result + Long.hashCode(seed);
+        result = 31 * result + minedRocks.hashCode();
+        result = 31 * result + killedEnemies.hashCode();
         return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+package com.mikm.rendering.cave;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates upcoming floors on a worker thread while the current one is played. Only the GL thread should call
+ * this class; the worker only ever runs {@link CaveFloorGenerator#generate}.
+ *
+ * The floors most recently left are retained, so walking back onto one swaps its finished layers straight back in
+ * rather than generating it again.
+ */
+public class CaveFloorPrefetcher {
+    public static final int MAX_IN_FLIGHT = 2;
+    //Big floors are tens of megabytes, so only the floor just left is kept
+    public static final int MAX_RETAINED = 1;
+
+    public enum Source {
+        RETAINED, PREFETCHED, GENERATED
+    }
+
+    private final CaveFloorGenerator generator;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Cave floor prefetcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //Oldest request first, so it's the one dropped when the queue is full
+    private final LinkedHashMap<Integer, Future<CaveFloorLayout>> inFlight = new LinkedHashMap<>();
+    //Least recently left first
+    private final LinkedHashMap<Integer, CaveFloorLayout> retained = new LinkedHashMap<>();
+    private Source lastTakeSource;
+
+    public CaveFloorPrefetcher(CaveTilemapCreator caveTilemapCreator) {
+        this(new CaveFloorGenerator(caveTilemapCreator.layerBuilder));
+    }
+
+    CaveFloorPrefetcher(CaveFloorGenerator generator) {
+        this.generator = generator;
+    }
+
+    public void prefetch(int floor, long seed) {
+        if (inFlight.containsKey(floor) || isRetained(floor, seed)) {
+            return;
+        }
+        if (inFlight.size() >= MAX_IN_FLIGHT) {
+            Iterator<Future<CaveFloorLayout>> oldest = inFlight.values().iterator();
+            oldest.next().cancel(true);
+            oldest.remove();
+        }
+        inFlight.put(floor, submit(floor, seed));
+    }
+
+    /**
+     * Returns the floor, waiting for it if it's still generating. Floors that weren't prefetched, or were prefetched
+     * from another seed, get generated now, still on the worker so the generator is never shared between threads.
+     */
+    public CaveFloorLayout take(int floor, long seed) {
+        CaveFloorLayout retainedLayout = retained.remove(floor);
+        if (retainedLayout != null && retainedLayout.seed == seed) {
+            lastTakeSource = Source.RETAINED;
+            return retainedLayout;
+        }
+        Future<CaveFloorLayout> future = inFlight.remove(floor);
+        lastTakeSource = Source.PREFETCHED;
+        if (future == null) {
+            future = submit(floor, seed);
+            lastTakeSource = Source.GENERATED;
+        }
+        try {
+            CaveFloorLayout layout = future.get();
+            if (layout.seed != seed) {
+                lastTakeSource = Source.GENERATED;
+                return submit(floor, seed).get();
+            }
+            return layout;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for floor " + floor, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Couldn't generate floor " + floor, e.getCause());
+        }
+    }
+
+    /**
+     * Keeps a floor that's being left, with whatever happened to it, for take() to give back. Only for floors whose
+     * memento still matches, since the memento is applied to it again.
+     */
+    public void retain(CaveFloorLayout layout) {
+        retained.remove(layout.floor);
+        retained.put(layout.floor, layout);
+        if (retained.size() > MAX_RETAINED) {
+            Iterator<CaveFloorLayout> oldest = retained.values().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    public boolean isRetained(int floor, long seed) {
+        CaveFloorLayout layout = retained.get(floor);
+        return layout != null && layout.seed == seed;
+    }
+
+    //Where the last floor handed out by take() came from
+    public Source getLastTakeSource() {
+        return lastTakeSource;
+    }
+
+    public void cancelAll() {
+        for (Future<CaveFloorLayout> future : inFlight.values()) {
+            future.cancel(true);
+        }
+        inFlight.clear();
+    }
+
+    public void cancelAllExcept(int floor) {
+        Iterator<Map.Entry<Integer, Future<CaveFloorLayout>>> iterator = inFlight.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Future<CaveFloorLayout>> entry = iterator.next();
+            if (entry.getKey() != floor) {
+                entry.getValue().cancel(true);
+                iterator.remove();
+            }
+        }
+    }
+
+    public void dispose() {
+        cancelAll();
+        retained.clear();
+        executor.shutdownNow();
+    }
+
+    private Future<CaveFloorLayout> submit(int floor, long seed) {
+        return executor.submit(() -> generator.generate(floor, seed));
+    }
+}
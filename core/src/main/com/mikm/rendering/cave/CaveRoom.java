@@ -1,50 +1,59 @@
 package com.mikm.rendering.cave;
 
 import com.mikm.Vector2Int;
+import com.mikm.collections.IntList;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
 class CaveRoom implements Comparable<CaveRoom> {
-    public List<Vector2Int> tiles;
-    public List<Vector2Int> edgeTiles;
+    //Packed as y * width + x
+    public IntList tiles;
+    public IntList edgeTiles;
+    public final int width;
     public List<CaveRoom> connectedRooms;
     public int roomSize;
     public boolean isAccesibleFromMainRoom;
     public boolean isMainRoom;
+    //Position in the sorted room list, set by RoomConnector
+    int index;
 
-    public CaveRoom()
-    {
+    public CaveRoom(TileRegions roomRegions, int region) {
+        width = roomRegions.width;
+        tiles = roomRegions.getTiles(region);
+        roomSize = tiles.size();
+        connectedRooms = new ArrayList<>();
+        edgeTiles = roomRegions.getEdgeTiles(region);
+    }
 
+    public int getX(int packedTile) {
+        return packedTile % width;
     }
 
-    public CaveRoom(List<Vector2Int> roomTiles, boolean[][] ruleCellPositions) {
-        tiles = roomTiles;
-        roomSize = tiles.size();
-        connectedRooms = new ArrayList<>();
-        edgeTiles = new ArrayList<>();
+    public int getY(int packedTile) {
+        return packedTile / width;
+    }
 
-        for(Vector2Int tile : tiles)
-        {
-            for (int y = tile.y - 1; y <= tile.y + 1; y++) {
-                for (int x = tile.x - 1; x <= tile.x + 1; x++) {
-                    if (x == tile.x || y == tile.y) {
-                        if (ruleCellPositions[y][x])
-                        {
-                            edgeTiles.add(tile);
-                        }
-                    }
-                }
-            }
-        }
+    public Vector2Int getEdgeTile(int index) {
+        int tile = edgeTiles.get(index);
+        return new Vector2Int(getX(tile), getY(tile));
     }
 
+    //Walks the connections with a stack instead of recursing, big maps can chain thousands of rooms
     public void SetAccesibleFromMainRoom() {
-        if (!isAccesibleFromMainRoom) {
-            isAccesibleFromMainRoom = true;
-            for(CaveRoom connectedRoom : connectedRooms)
-            {
-                connectedRoom.SetAccesibleFromMainRoom();
+        ArrayDeque<CaveRoom> roomsToVisit = new ArrayDeque<>();
+        roomsToVisit.push(this);
+        while (!roomsToVisit.isEmpty()) {
+            CaveRoom room = roomsToVisit.pop();
+            if (room.isAccesibleFromMainRoom) {
+                continue;
+            }
+            room.isAccesibleFromMainRoom = true;
+            for (CaveRoom connectedRoom : room.connectedRooms) {
+                if (!connectedRoom.isAccesibleFromMainRoom) {
+                    roomsToVisit.push(connectedRoom);
+                }
             }
         }
     }
@@ -0,0 +1,90 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.Vector2Int;
+
+import java.util.List;
+
+/**
+ * Changes walls and holes of a floor that's already built. The grids change straight away, the tiles that look
+ * different because of it are redrawn by refreshDirtyTiles(), which runs once at the end of a tick. That's the
+ * changed tiles' neighbours in the autotiled layers, and the wall faces below them.
+ *
+ * Collision is wall, hole or rock. Editing the tile under a rock changes its wall or hole, and the rock keeps it
+ * collidable until it's mined. The layout's open tiles follow the edits too.
+ *
+ * Edits aren't written to the floor's {@link CaveFloorMemento}. Leaving and coming straight back keeps them, since
+ * the prefetcher holds on to the layout, but a floor regenerated from its seed comes back without them.
+ */
+class CaveTerrainEditor {
+    private final CaveTileLayerBuilder layerBuilder;
+    private final CaveFloorLayout layout;
+    private final DirtyTileSet dirtyFloorAndWallTiles;
+
+    CaveTerrainEditor(CaveTileLayerBuilder layerBuilder, CaveFloorLayout layout) {
+        this.layerBuilder = layerBuilder;
+        this.layout = layout;
+        dirtyFloorAndWallTiles = new DirtyTileSet(layout.width, layout.height);
+    }
+
+    void setWall(int x, int y, boolean isWall) {
+        if (!layout.ruleCellPositions.isInBounds(x, y) || layout.ruleCellPositions.get(x, y) == isWall) {
+            return;
+        }
+        layout.ruleCellPositions.set(x, y, isWall);
+        layout.updateCollision(x, y);
+        //Whether the tile below is open depends on this one being a wall
+        layout.updateOpenTile(x, y);
+        layout.updateOpenTile(x, y - 1);
+        layout.ruleCellLayer.setRuleCellAndRefresh(x, y, isWall ? layerBuilder.getRuleCell(layout) : null);
+        //The tile's own face, and the faces below that look at it
+        dirtyFloorAndWallTiles.mark(x, y);
+        for (int i = -1; i <= 1; i++) {
+            dirtyFloorAndWallTiles.mark(x + i, y - 1);
+        }
+    }
+
+    void setWalls(List<Vector2Int> positions, boolean isWall) {
+        for (Vector2Int position : positions) {
+            setWall(position.x, position.y, isWall);
+        }
+    }
+
+    void setHole(int x, int y, boolean isHole) {
+        if (!layout.holePositionsToCheckGrid.isInBounds(x, y) || layout.holePositionsToCheckGrid.get(x, y) == isHole) {
+            return;
+        }
+        layout.holePositionsToCheckGrid.set(x, y, isHole);
+        layout.updateCollision(x, y);
+        layout.updateOpenTile(x, y);
+        if (isHole) {
+            layout.holePositions.add(y * layout.width + x);
+        } else {
+            layout.holePositions.removeValue(y * layout.width + x);
+        }
+        layout.holeRuleCellLayer.setRuleCellAndRefresh(x, y, isHole ? layerBuilder.getHoleRuleCell() : null);
+    }
+
+    void setHoles(List<Vector2Int> positions, boolean isHole) {
+        for (Vector2Int position : positions) {
+            setHole(position.x, position.y, isHole);
+        }
+    }
+
+    boolean hasDirtyTiles() {
+        return !dirtyFloorAndWallTiles.isEmpty() || layout.ruleCellLayer.hasDirtyCells() || layout.holeRuleCellLayer.hasDirtyCells();
+    }
+
+    //Returns how many tiles were redrawn across the layers
+    int refreshDirtyTiles() {
+        int refreshed = dirtyFloorAndWallTiles.size();
+        final int recolorLevel = layerBuilder.getRecolorLevel(layout);
+        for (int i = 0; i < dirtyFloorAndWallTiles.size(); i++) {
+            int x = dirtyFloorAndWallTiles.getX(i), y = dirtyFloorAndWallTiles.getY(i);
+            layout.floorAndWallLayer.setCell(x, y, layerBuilder.getFloorOrWallCell(layout.ruleCellPositions, x, y, recolorLevel));
+        }
+        dirtyFloorAndWallTiles.clear();
+        refreshed += layout.ruleCellLayer.refreshDirtyCells();
+        refreshed += layout.holeRuleCellLayer.refreshDirtyCells();
+        return refreshed;
+    }
+}
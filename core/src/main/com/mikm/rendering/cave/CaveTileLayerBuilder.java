@@ -0,0 +1,160 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.mikm.BitGrid;
+import com.mikm.rendering.cave.ruleCell.RuleCell;
+import com.mikm.rendering.cave.ruleCell.RuleCellLookupTable;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import com.mikm.rendering.cave.ruleCell.RuleCellTiledMapTileLayer;
+import com.mikm.rendering.screens.Application;
+import com.mikm.rendering.screens.CaveScreen;
+
+import java.util.ArrayList;
+
+/**
+ * Builds fresh floor, wall and hole layers for a {@link CaveFloorLayout} as {@link ChunkedTileLayer}s. Cells for every recolor level are made
+ * up front, so building only reads shared state and can run on the prefetch thread. Each recolor level's cells come
+ * from its own {@link TileCellCache}, so every floor of a level shares the same few cell objects.
+ */
+class CaveTileLayerBuilder {
+    //dx, dy of the 8 neighbours
+    private static final int[] NEIGHBOUR_OFFSETS = {-1, -1, 0, -1, 1, -1, -1, 0, 1, 0, -1, 1, 0, 1, 1, 1};
+    private final TileCellCache[] cellCaches;
+    private final TileCellCache holeCellCache = new TileCellCache();
+    private final RuleCell[] ruleCells;
+    private final RuleCell holeRuleCell;
+    private final TiledMapTileLayer.Cell[] floorCells;
+    private final TiledMapTileLayer.Cell[][] wallCellTypes;
+
+    CaveTileLayerBuilder(ArrayList<TextureRegion[][]> caveTilesetRecolors, TextureRegion[][] holeSpritesheet,
+                         RuleCellMetadata ruleCellMetadata, RuleCellMetadata holeRuleCellMetadata) {
+        final int recolorLevels = caveTilesetRecolors.size();
+        cellCaches = new TileCellCache[recolorLevels];
+        ruleCells = new RuleCell[recolorLevels];
+        floorCells = new TiledMapTileLayer.Cell[recolorLevels];
+        wallCellTypes = new TiledMapTileLayer.Cell[recolorLevels][5];
+        for (int i = 0; i < recolorLevels; i++) {
+            cellCaches[i] = new TileCellCache();
+            createRecolorLevelCells(i, caveTilesetRecolors.get(i), ruleCellMetadata);
+        }
+        holeRuleCell = new RuleCell(holeSpritesheet, holeRuleCellMetadata, holeCellCache);
+    }
+
+    private void createRecolorLevelCells(int recolorLevel, TextureRegion[][] tileset, RuleCellMetadata ruleCellMetadata) {
+        TileCellCache cellCache = cellCaches[recolorLevel];
+        ruleCells[recolorLevel] = new RuleCell(tileset, ruleCellMetadata, cellCache);
+        floorCells[recolorLevel] = cellCache.getCell(tileset[2][4]);
+        for (int j = 0; j < 4; j++) {
+            wallCellTypes[recolorLevel][j] = cellCache.getCell(tileset[2][j]);
+        }
+        wallCellTypes[recolorLevel][4] = cellCache.getCell(tileset[1][2]);
+    }
+
+    //Every level's cell cache added together, holes included
+    float getCellCacheHitRate() {
+        long hits = holeCellCache.getHits(), lookups = hits + holeCellCache.getMisses();
+        for (TileCellCache cellCache : cellCaches) {
+            hits += cellCache.getHits();
+            lookups += cellCache.getHits() + cellCache.getMisses();
+        }
+        return lookups == 0 ? 0 : (float) hits / lookups;
+    }
+
+    int getLiveCellCacheObjectCount() {
+        int liveObjects = holeCellCache.getLiveObjectCount();
+        for (TileCellCache cellCache : cellCaches) {
+            liveObjects += cellCache.getLiveObjectCount();
+        }
+        return liveObjects;
+    }
+
+    /**
+     * Makes the floor and wall, wall and hole layers, and marks walls and holes collidable, in one pass over the map.
+     * Every tile's three cells come from the wall and hole grids around it, so nothing has to be read back out of a
+     * layer that was just filled in.
+     */
+    void buildLayers(CaveFloorLayout layout) {
+        final int width = layout.width, height = layout.height;
+        final int recolorLevel = getRecolorLevel(layout);
+        final RuleCell ruleCell = getRuleCell(layout);
+        BitGrid walls = layout.ruleCellPositions, holes = layout.holePositionsToCheckGrid, collidable = layout.collidablePositions;
+        ChunkedTileLayer floorAndWallLayer = createEmptyLayer(width, height);
+        RuleCellTiledMapTileLayer ruleCellLayer = createEmptyRuleCellLayer(width, height);
+        RuleCellTiledMapTileLayer holeRuleCellLayer = createEmptyRuleCellLayer(width, height);
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                floorAndWallLayer.setCell(x, y, getFloorOrWallCell(walls, x, y, recolorLevel));
+                if (walls.get(x, y)) {
+                    ruleCellLayer.setRuleCell(x, y, ruleCell);
+                    ruleCellLayer.setCell(x, y, ruleCell.getCell(getNeighbourMask(walls, x, y)));
+                }
+                if (holes.get(x, y)) {
+                    holeRuleCellLayer.setRuleCell(x, y, holeRuleCell);
+                    holeRuleCellLayer.setCell(x, y, holeRuleCell.getCell(getNeighbourMask(holes, x, y)));
+                }
+            }
+            for (int word = 0; word < collidable.getWordsPerRow(); word++) {
+                collidable.setWord(y, word, collidable.getWord(y, word) | walls.getWord(y, word) | holes.getWord(y, word));
+            }
+        }
+        floorAndWallLayer.compact();
+        ruleCellLayer.compact();
+        holeRuleCellLayer.compact();
+        layout.floorAndWallLayer = floorAndWallLayer;
+        layout.ruleCellLayer = ruleCellLayer;
+        layout.holeRuleCellLayer = holeRuleCellLayer;
+    }
+
+    //Out of bounds counts as full, the same as RuleCellTiledMapTileLayer
+    private static int getNeighbourMask(BitGrid grid, int x, int y) {
+        int mask = 0;
+        for (int i = 0; i < NEIGHBOUR_OFFSETS.length; i += 2) {
+            int neighbourX = x + NEIGHBOUR_OFFSETS[i], neighbourY = y + NEIGHBOUR_OFFSETS[i + 1];
+            if (!grid.isInBounds(neighbourX, neighbourY) || grid.get(neighbourX, neighbourY)) {
+                mask |= RuleCellLookupTable.getNeighbourBit(NEIGHBOUR_OFFSETS[i], NEIGHBOUR_OFFSETS[i + 1]);
+            }
+        }
+        return mask;
+    }
+
+    int getRecolorLevel(CaveFloorLayout layout) {
+        return Math.min(CaveScreen.getRecolorLevel(layout.floor), ruleCells.length - 1);
+    }
+
+    RuleCell getRuleCell(CaveFloorLayout layout) {
+        return ruleCells[getRecolorLevel(layout)];
+    }
+
+    RuleCell getHoleRuleCell() {
+        return holeRuleCell;
+    }
+
+    static ChunkedTileLayer createEmptyLayer(int width, int height) {
+        return new ChunkedTileLayer(width, height, Application.TILE_WIDTH, Application.TILE_HEIGHT);
+    }
+
+    static RuleCellTiledMapTileLayer createEmptyRuleCellLayer(int width, int height) {
+        return new RuleCellTiledMapTileLayer(width, height, Application.TILE_WIDTH, Application.TILE_HEIGHT);
+    }
+
+    //Wall faces go below walls, which one depends on the walls beside the one above
+    TiledMapTileLayer.Cell getFloorOrWallCell(BitGrid ruleCellPositions, int x, int y, int recolorLevel) {
+        final int width = ruleCellPositions.getWidth(), height = ruleCellPositions.getHeight();
+        boolean isWallFace = y + 1 <= height - 1 && ruleCellPositions.get(x, y + 1) && !ruleCellPositions.get(x, y);
+        if (!isWallFace) {
+            return floorCells[recolorLevel];
+        }
+        TiledMapTileLayer.Cell[] wallCells = wallCellTypes[recolorLevel];
+        boolean wallOnLeft = x - 1 >= 0 && ruleCellPositions.get(x - 1, y + 1);
+        boolean wallOnRight = x + 1 <= width - 1 && ruleCellPositions.get(x + 1, y + 1);
+        if (!wallOnLeft) {
+            return wallOnRight ? wallCells[0] : wallCells[4];
+        }
+        if (!wallOnRight) {
+            return wallCells[3];
+        }
+        //Alternates along a wall, by position so one tile can be redrawn without the rest
+        return x % 2 == 0 ? wallCells[1] : wallCells[2];
+    }
+}
@@ -0,0 +1,126 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+
+/**
+ * Smooths a cave with the "more than 4 walls around you makes you a wall, less than 4 makes you floor" rule,
+ * counting the neighbors of 64 tiles at a time with bit-sliced adders. Tiles outside of the grid count as walls.
+ */
+class CellularAutomatonSmoother {
+    enum SmoothingMode {
+        /**
+         * Same result as updating tile by tile, top row first and left to right, reading tiles that were already
+         * updated this pass. This is how caves were always generated.
+         */
+        IN_PLACE,
+        /**
+         * Every tile reads the previous pass only, so the result doesn't depend on the scan order.
+         */
+        DOUBLE_BUFFERED
+    }
+
+    private final SmoothingMode smoothingMode;
+    private BitGrid buffer;
+
+    CellularAutomatonSmoother(SmoothingMode smoothingMode) {
+        this.smoothingMode = smoothingMode;
+    }
+
+    void smooth(BitGrid ruleCellPositions) {
+        if (smoothingMode == SmoothingMode.IN_PLACE) {
+            smoothInPlace(ruleCellPositions);
+        } else {
+            smoothDoubleBuffered(ruleCellPositions);
+        }
+    }
+
+    private void smoothDoubleBuffered(BitGrid ruleCellPositions) {
+        if (buffer == null || buffer.getWidth() != ruleCellPositions.getWidth() || buffer.getHeight() != ruleCellPositions.getHeight()) {
+            buffer = new BitGrid(ruleCellPositions.getWidth(), ruleCellPositions.getHeight());
+        }
+        BitGrid previous = buffer;
+        previous.copyFrom(ruleCellPositions);
+        for (int y = previous.getHeight() - 1; y >= 0; y--) {
+            for (int w = 0; w < previous.getWordsPerRow(); w++) {
+                long upLeft = previous.getLeftNeighborWord(y + 1, w, true);
+                long up = previous.getWord(y + 1, w, true);
+                long upRight = previous.getRightNeighborWord(y + 1, w, true);
+                long left = previous.getLeftNeighborWord(y, w, true);
+                long right = previous.getRightNeighborWord(y, w, true);
+                long downLeft = previous.getLeftNeighborWord(y - 1, w, true);
+                long down = previous.getWord(y - 1, w, true);
+                long downRight = previous.getRightNeighborWord(y - 1, w, true);
+
+                //Adds up the 8 neighbors into a 4 bit count per tile: ones, twos, fours, eights
+                long sumA = upLeft ^ up ^ upRight;
+                long carryA = (upLeft & up) | (upRight & (upLeft ^ up));
+                long sumB = left ^ right ^ downLeft;
+                long carryB = (left & right) | (downLeft & (left ^ right));
+                long sumC = down ^ downRight;
+                long carryC = down & downRight;
+
+                long ones = sumA ^ sumB ^ sumC;
+                long onesCarry = (sumA & sumB) | (sumC & (sumA ^ sumB));
+                long twosSum = carryA ^ carryB ^ carryC;
+                long twosCarry = (carryA & carryB) | (carryC & (carryA ^ carryB));
+                long twos = twosSum ^ onesCarry;
+                long twosSumCarry = twosSum & onesCarry;
+                long fours = twosCarry ^ twosSumCarry;
+                long eights = twosCarry & twosSumCarry;
+
+                long moreThanFour = eights | (fours & (twos | ones));
+                long exactlyFour = fours & ~eights & ~twos & ~ones;
+                long old = previous.getWord(y, w);
+                ruleCellPositions.setWord(y, w, moreThanFour | (exactlyFour & old));
+            }
+        }
+    }
+
+    //Rows above the current one are already smoothed and the row below isn't yet, so the only neighbor that changed
+    //during this row is the left one. Every tile either becomes a wall, becomes floor, or copies its left neighbor,
+    //which is exactly a carry chain, so an addition resolves the whole word at once.
+    private void smoothInPlace(BitGrid ruleCellPositions) {
+        for (int y = ruleCellPositions.getHeight() - 1; y >= 0; y--) {
+            //Out of bounds counts as a wall
+            long leftNeighborCarry = 1;
+            for (int w = 0; w < ruleCellPositions.getWordsPerRow(); w++) {
+                long upLeft = ruleCellPositions.getLeftNeighborWord(y + 1, w, true);
+                long up = ruleCellPositions.getWord(y + 1, w, true);
+                long upRight = ruleCellPositions.getRightNeighborWord(y + 1, w, true);
+                long right = ruleCellPositions.getRightNeighborWord(y, w, true);
+                long downLeft = ruleCellPositions.getLeftNeighborWord(y - 1, w, true);
+                long down = ruleCellPositions.getWord(y - 1, w, true);
+                long downRight = ruleCellPositions.getRightNeighborWord(y - 1, w, true);
+
+                //Adds up the 7 neighbors that aren't the left one into a 3 bit count per tile
+                long sumA = upLeft ^ up ^ upRight;
+                long carryA = (upLeft & up) | (upRight & (upLeft ^ up));
+                long sumB = downLeft ^ down ^ downRight;
+                long carryB = (downLeft & down) | (downRight & (downLeft ^ down));
+
+                long ones = sumA ^ sumB ^ right;
+                long onesCarry = (sumA & sumB) | (right & (sumA ^ sumB));
+                long twos = carryA ^ carryB ^ onesCarry;
+                long fours = (carryA & carryB) | (onesCarry & (carryA ^ carryB));
+
+                long old = ruleCellPositions.getWord(y, w);
+                long countIsThree = ~fours & twos & ones;
+                long countIsFour = fours & ~twos & ~ones;
+                long countAtLeastFive = fours & (twos | ones);
+
+                long becomesWall = countAtLeastFive | (countIsFour & old);
+                long copiesLeftNeighbor = (countIsFour & ~old) | (countIsThree & old);
+
+                long a = becomesWall | copiesLeftNeighbor;
+                long b = becomesWall;
+                long sum = a + b + leftNeighborCarry;
+                long carries = sum ^ a ^ b;
+                long carryOut = ((a & b) | ((a | b) & ~sum)) >>> 63;
+
+                long smoothed = (carries >>> 1) | (carryOut << 63);
+                ruleCellPositions.setWord(y, w, smoothed);
+                leftNeighborCarry = carryOut;
+            }
+        }
+    }
+}
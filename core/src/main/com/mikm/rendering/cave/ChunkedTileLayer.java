@@ -0,0 +1,286 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A tile layer stored as CHUNK_SIZE x CHUNK_SIZE chunks of indexes into a palette of distinct cells. Chunks whose
+ * tiles are all the same cell are kept as that one index. Only the chunks the renderer has asked for recently are
+ * unpacked into cells, up to a cap, and the least recently used one is dropped when the cap is passed.
+ *
+ * Cells are interned by image, rotation and flips when they're set, so getCell gives back an equal cell rather than
+ * the same object, and changing a cell after setting it does nothing.
+ */
+public class ChunkedTileLayer extends TiledMapTileLayer {
+    public static final int CHUNK_SIZE = 32;
+    //A 1080p screen at 16 pixel tiles sees at most 6x4 chunks, this leaves room for a few screens of walking
+    public static final int DEFAULT_MAX_MATERIALISED_CHUNKS = 96;
+    private static final char EMPTY = 0;
+
+    private final int width, height;
+    private final int chunksWide, chunksHigh;
+    private final int maxMaterialisedChunks;
+
+    //Per chunk either an index for every tile, or null when every tile is chunkFills[chunk]
+    private final char[][] chunkIndexes;
+    private final char[] chunkFills;
+    //Goes up every time a tile in the chunk changes, so whatever was drawn from the chunk knows it's stale
+    private final int[] chunkVersions;
+    //Index 0 is reserved for no cell
+    private final ArrayList<Cell> palette = new ArrayList<>();
+    private final HashMap<TileCellCache.CellKey, Character> paletteIndexes = new HashMap<>();
+
+    private final LinkedHashMap<Integer, Cell[]> materialisedChunks;
+    private int lastChunk = -1;
+    private Cell[] lastChunkCells;
+
+    //Filling a layer sets the same cell object over and over
+    private Cell lastSetCell;
+    private char lastSetPaletteIndex;
+
+    private long chunkHits, chunkMisses, chunkEvictions;
+
+    public ChunkedTileLayer(int width, int height, int tileWidth, int tileHeight) {
+        this(width, height, tileWidth, tileHeight, DEFAULT_MAX_MATERIALISED_CHUNKS);
+    }
+
+    public ChunkedTileLayer(int width, int height, int tileWidth, int tileHeight, int maxMaterialisedChunks) {
+        //TiledMapTileLayer allocates a cell reference for every tile, so it only gets told about one
+        super(1, 1, tileWidth, tileHeight);
+        this.width = width;
+        this.height = height;
+        this.maxMaterialisedChunks = maxMaterialisedChunks;
+        chunksWide = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunksHigh = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunkIndexes = new char[chunksWide * chunksHigh][];
+        chunkFills = new char[chunksWide * chunksHigh];
+        chunkVersions = new int[chunksWide * chunksHigh];
+        palette.add(null);
+        materialisedChunks = new LinkedHashMap<Integer, Cell[]>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Cell[]> eldest) {
+                if (size() <= ChunkedTileLayer.this.maxMaterialisedChunks) {
+                    return false;
+                }
+                chunkEvictions++;
+                if (eldest.getKey() == lastChunk) {
+                    lastChunk = -1;
+                    lastChunkCells = null;
+                }
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public Cell getCell(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return null;
+        }
+        int chunk = getChunk(x, y);
+        if (chunk != lastChunk) {
+            if (chunkIndexes[chunk] == null) {
+                //Uniform chunks are a single lookup, there's nothing to unpack
+                return palette.get(chunkFills[chunk]);
+            }
+            lastChunkCells = getMaterialisedChunk(chunk);
+            lastChunk = chunk;
+        }
+        return lastChunkCells[getIndexInChunk(x, y)];
+    }
+
+    @Override
+    public void setCell(int x, int y, Cell cell) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return;
+        }
+        int chunk = getChunk(x, y);
+        char paletteIndex = getPaletteIndex(cell);
+        if (chunkIndexes[chunk] == null) {
+            if (chunkFills[chunk] == paletteIndex) {
+                return;
+            }
+            expandChunk(chunk);
+        }
+        int indexInChunk = getIndexInChunk(x, y);
+        if (chunkIndexes[chunk][indexInChunk] == paletteIndex) {
+            return;
+        }
+        chunkIndexes[chunk][indexInChunk] = paletteIndex;
+        chunkVersions[chunk]++;
+        Cell[] materialisedChunk = materialisedChunks.isEmpty() ? null : materialisedChunks.get(chunk);
+        if (materialisedChunk != null) {
+            materialisedChunk[indexInChunk] = palette.get(paletteIndex);
+        }
+    }
+
+    /**
+     * Folds every chunk whose tiles are all the same cell back into a single index. Call it once a layer has been
+     * filled in, most of a cave is plain floor or solid rock.
+     */
+    public void compact() {
+        for (int chunk = 0; chunk < chunkIndexes.length; chunk++) {
+            char[] indexes = chunkIndexes[chunk];
+            if (indexes == null) {
+                continue;
+            }
+            boolean isUniform = true;
+            for (int i = 1; i < indexes.length; i++) {
+                if (indexes[i] != indexes[0]) {
+                    isUniform = false;
+                    break;
+                }
+            }
+            if (isUniform) {
+                chunkFills[chunk] = indexes[0];
+                chunkIndexes[chunk] = null;
+                removeMaterialisedChunk(chunk);
+            }
+        }
+    }
+
+    /**
+     * Reads a cell straight from the packed chunks, without unpacking the chunk or counting as a use of it. For
+     * walking whole chunks once, like baking them, where going through getCell would push out the chunks being drawn.
+     */
+    public Cell getStoredCell(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return null;
+        }
+        int chunk = getChunk(x, y);
+        char[] indexes = chunkIndexes[chunk];
+        return palette.get(indexes == null ? chunkFills[chunk] : indexes[getIndexInChunk(x, y)]);
+    }
+
+    public int getChunksWide() {
+        return chunksWide;
+    }
+
+    public int getChunksHigh() {
+        return chunksHigh;
+    }
+
+    public int getChunkVersion(int chunkX, int chunkY) {
+        return chunkVersions[chunkY * chunksWide + chunkX];
+    }
+
+    //True when the chunk has no cells at all
+    public boolean isChunkEmpty(int chunkX, int chunkY) {
+        int chunk = chunkY * chunksWide + chunkX;
+        return chunkIndexes[chunk] == null && chunkFills[chunk] == EMPTY;
+    }
+
+    public long getChunkHits() {
+        return chunkHits;
+    }
+
+    public long getChunkMisses() {
+        return chunkMisses;
+    }
+
+    public long getChunkEvictions() {
+        return chunkEvictions;
+    }
+
+    public int getMaterialisedChunkCount() {
+        return materialisedChunks.size();
+    }
+
+    //Chunks that need an index per tile, the rest are a single cell
+    public int getStoredChunkCount() {
+        int storedChunks = 0;
+        for (char[] indexes : chunkIndexes) {
+            if (indexes != null) {
+                storedChunks++;
+            }
+        }
+        return storedChunks;
+    }
+
+    public int getPaletteSize() {
+        return palette.size() - 1;
+    }
+
+    private Cell[] getMaterialisedChunk(int chunk) {
+        Cell[] cells = materialisedChunks.get(chunk);
+        if (cells != null) {
+            chunkHits++;
+            return cells;
+        }
+        chunkMisses++;
+        char[] indexes = chunkIndexes[chunk];
+        cells = new Cell[CHUNK_SIZE * CHUNK_SIZE];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = palette.get(indexes[i]);
+        }
+        materialisedChunks.put(chunk, cells);
+        return cells;
+    }
+
+    private void removeMaterialisedChunk(int chunk) {
+        materialisedChunks.remove(chunk);
+        if (chunk == lastChunk) {
+            lastChunk = -1;
+            lastChunkCells = null;
+        }
+    }
+
+    private void expandChunk(int chunk) {
+        char[] indexes = new char[CHUNK_SIZE * CHUNK_SIZE];
+        if (chunkFills[chunk] != EMPTY) {
+            Arrays.fill(indexes, chunkFills[chunk]);
+        }
+        chunkIndexes[chunk] = indexes;
+        chunkFills[chunk] = EMPTY;
+    }
+
+    private char getPaletteIndex(Cell cell) {
+        if (cell == null) {
+            return EMPTY;
+        }
+        if (cell == lastSetCell) {
+            return lastSetPaletteIndex;
+        }
+        TileCellCache.CellKey key = new TileCellCache.CellKey(cell);
+        Character paletteIndex = paletteIndexes.get(key);
+        if (paletteIndex == null) {
+            paletteIndex = addToPalette(cell, key);
+        }
+        lastSetCell = cell;
+        lastSetPaletteIndex = paletteIndex;
+        return paletteIndex;
+    }
+
+    private char addToPalette(Cell cell, TileCellCache.CellKey key) {
+        if (palette.size() > Character.MAX_VALUE) {
+            throw new IllegalStateException("More than " + (int) Character.MAX_VALUE + " different cells in one layer");
+        }
+        char newIndex = (char) palette.size();
+        palette.add(cell);
+        paletteIndexes.put(key, newIndex);
+        return newIndex;
+    }
+
+    private int getChunk(int x, int y) {
+        return (y / CHUNK_SIZE) * chunksWide + x / CHUNK_SIZE;
+    }
+
+    private int getIndexInChunk(int x, int y) {
+        return (y % CHUNK_SIZE) * CHUNK_SIZE + x % CHUNK_SIZE;
+    }
+}
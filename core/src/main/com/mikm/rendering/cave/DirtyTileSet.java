@@ -0,0 +1,64 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+
+/**
+ * Tiles waiting to be redrawn, each listed once however often it's marked. Clearing only touches the marked tiles,
+ * so a few changes a tick cost nothing like the size of the map.
+ */
+public class DirtyTileSet {
+    private final BitGrid marked;
+    //Packed as y * width + x
+    private int[] tiles = new int[16];
+    private int size;
+
+    public DirtyTileSet(int width, int height) {
+        marked = new BitGrid(width, height);
+    }
+
+    //Tiles off the map are ignored
+    public void mark(int x, int y) {
+        if (!marked.isInBounds(x, y) || marked.get(x, y)) {
+            return;
+        }
+        marked.set(x, y);
+        if (size == tiles.length) {
+            int[] grown = new int[tiles.length * 2];
+            System.arraycopy(tiles, 0, grown, 0, size);
+            tiles = grown;
+        }
+        tiles[size++] = y * marked.getWidth() + x;
+    }
+
+    //The tile and its 8 neighbours
+    public void markNeighbourhood(int x, int y) {
+        for (int i = -1; i <= 1; i++) {
+            for (int j = -1; j <= 1; j++) {
+                mark(x + j, y + i);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getX(int index) {
+        return tiles[index] % marked.getWidth();
+    }
+
+    public int getY(int index) {
+        return tiles[index] / marked.getWidth();
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            marked.clear(getX(i), getY(i));
+        }
+        size = 0;
+    }
+}
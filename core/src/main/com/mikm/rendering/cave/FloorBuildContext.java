@@ -0,0 +1,42 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import com.mikm.RandomStream;
+
+/**
+ * What the stages of a {@link FloorGenerationPipeline} share while one floor is being made. Every stage reads and
+ * writes the same context. Each stage draws from its own stream, made from the floor's seed and the stage's name, so
+ * replacing or skipping one stage doesn't change what the others roll.
+ */
+class FloorBuildContext {
+    final int floor;
+    final long seed;
+    final int mapWidth, mapHeight;
+    private final RandomStream floorRandom;
+    //The running stage's stream
+    RandomStream random;
+    //Starts all open, the random fill stage fills it in
+    final BitGrid ruleCellPositions;
+    private CaveFloorLayout layout;
+
+    FloorBuildContext(int floor, long seed, int mapWidth, int mapHeight) {
+        this.floor = floor;
+        this.seed = seed;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        floorRandom = new RandomStream(seed);
+        ruleCellPositions = new BitGrid(mapWidth, mapHeight);
+    }
+
+    void startStage(String name) {
+        random = floorRandom.getSubstream(name);
+    }
+
+    //The layout copies the walls when it's made, so only ask for it once the rule cells are done
+    CaveFloorLayout getLayout() {
+        if (layout == null) {
+            layout = new CaveFloorLayout(floor, seed, ruleCellPositions);
+        }
+        return layout;
+    }
+}
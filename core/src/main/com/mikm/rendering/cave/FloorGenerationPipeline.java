@@ -0,0 +1,104 @@
+package com.mikm.rendering.cave;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Makes a floor by running named stages in order on a shared {@link FloorBuildContext}. Any stage can be replaced
+ * or skipped by name. Every run times each stage and counts what it allocated, and the layout it makes carries the
+ * resulting {@link FloorGenerationReport}.
+ */
+class FloorGenerationPipeline {
+    private final LinkedHashMap<String, FloorGenerationStage> stages = new LinkedHashMap<>();
+    private final HashSet<String> skippedStages = new HashSet<>();
+
+    //Allocation counting needs HotSpot's extension of the bean, other VMs report -1
+    private static final com.sun.management.ThreadMXBean threadMXBean = getAllocationCountingThreadMXBean();
+
+    FloorGenerationPipeline addStage(String name, FloorGenerationStage stage) {
+        if (stages.containsKey(name)) {
+            throw new IllegalArgumentException("There's already a stage called " + name);
+        }
+        stages.put(name, stage);
+        return this;
+    }
+
+    //Keeps the stage's place in the order
+    void replaceStage(String name, FloorGenerationStage stage) {
+        checkHasStage(name);
+        stages.put(name, stage);
+    }
+
+    void setSkipped(String name, boolean skipped) {
+        checkHasStage(name);
+        if (skipped) {
+            skippedStages.add(name);
+        } else {
+            skippedStages.remove(name);
+        }
+    }
+
+    ArrayList<String> getStageNames() {
+        return new ArrayList<>(stages.keySet());
+    }
+
+    CaveFloorLayout run(int floor, long seed, int mapWidth, int mapHeight) {
+        FloorBuildContext context = new FloorBuildContext(floor, seed, mapWidth, mapHeight);
+        FloorGenerationReport report = new FloorGenerationReport(floor, seed, mapWidth, mapHeight);
+        for (Map.Entry<String, FloorGenerationStage> stage : stages.entrySet()) {
+            checkIfCancelled();
+            if (skippedStages.contains(stage.getKey())) {
+                report.addSkippedStage(stage.getKey());
+                continue;
+            }
+            context.startStage(stage.getKey());
+            long allocatedBefore = getAllocatedBytes();
+            long start = System.nanoTime();
+            long outputSize = stage.getValue().run(context);
+            long wallNanos = System.nanoTime() - start;
+            long allocatedBytes = allocatedBefore == -1 ? -1 : getAllocatedBytes() - allocatedBefore;
+            report.addStage(stage.getKey(), wallNanos, allocatedBytes, outputSize);
+        }
+        CaveFloorLayout layout = context.getLayout();
+        layout.generationReport = report;
+        return layout;
+    }
+
+    //A cancelled prefetch gets interrupted, there's no point finishing a floor nobody will read
+    private void checkIfCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+
+    private void checkHasStage(String name) {
+        if (!stages.containsKey(name)) {
+            throw new IllegalArgumentException("No stage called " + name + ", the stages are " + stages.keySet());
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        if (threadMXBean == null) {
+            return -1;
+        }
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationCountingThreadMXBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocationCountingBean = (com.sun.management.ThreadMXBean) bean;
+        if (!allocationCountingBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        allocationCountingBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationCountingBean;
+    }
+}
@@ -0,0 +1,108 @@
+package com.mikm.rendering.cave;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per stage wall time, allocated bytes and output size of one floor's generation. toString() gives a table to log,
+ * toCsv() gives one line per stage to diff between builds.
+ */
+public class FloorGenerationReport {
+    public static class StageReport {
+        public final String name;
+        public final boolean skipped;
+        public final long wallNanos;
+        //-1 when the VM can't count allocations
+        public final long allocatedBytes;
+        public final long outputSize;
+
+        StageReport(String name, boolean skipped, long wallNanos, long allocatedBytes, long outputSize) {
+            this.name = name;
+            this.skipped = skipped;
+            this.wallNanos = wallNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.outputSize = outputSize;
+        }
+    }
+
+    public static final String CSV_HEADER = "floor,seed,width,height,stage,skipped,wallMicros,allocatedBytes,outputSize";
+
+    public final int floor;
+    public final long seed;
+    public final int mapWidth, mapHeight;
+    private final ArrayList<StageReport> stages = new ArrayList<>();
+
+    FloorGenerationReport(int floor, long seed, int mapWidth, int mapHeight) {
+        this.floor = floor;
+        this.seed = seed;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+    }
+
+    void addStage(String name, long wallNanos, long allocatedBytes, long outputSize) {
+        stages.add(new StageReport(name, false, wallNanos, allocatedBytes, outputSize));
+    }
+
+    void addSkippedStage(String name) {
+        stages.add(new StageReport(name, true, 0, 0, 0));
+    }
+
+    public List<StageReport> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    public StageReport getStage(String name) {
+        for (StageReport stage : stages) {
+            if (stage.name.equals(name)) {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+    public long getTotalWallNanos() {
+        long total = 0;
+        for (StageReport stage : stages) {
+            total += stage.wallNanos;
+        }
+        return total;
+    }
+
+    //-1 when the VM can't count allocations
+    public long getTotalAllocatedBytes() {
+        long total = 0;
+        for (StageReport stage : stages) {
+            if (stage.allocatedBytes < 0) {
+                return -1;
+            }
+            total += stage.allocatedBytes;
+        }
+        return total;
+    }
+
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder();
+        for (StageReport stage : stages) {
+            csv.append(String.format(Locale.ROOT, "%d,%d,%d,%d,%s,%b,%d,%d,%d%n", floor, seed, mapWidth, mapHeight,
+                    stage.name, stage.skipped, stage.wallNanos / 1000, stage.allocatedBytes, stage.outputSize));
+        }
+        return csv.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.ROOT, "Floor %d (seed %d, %dx%d) took %.1f ms%n", floor, seed, mapWidth, mapHeight, getTotalWallNanos() / 1e6));
+        for (StageReport stage : stages) {
+            if (stage.skipped) {
+                table.append(String.format(Locale.ROOT, "  %-14s skipped%n", stage.name));
+                continue;
+            }
+            String allocated = stage.allocatedBytes == -1 ? "?" : String.format(Locale.ROOT, "%.1f", stage.allocatedBytes / 1024.0);
+            table.append(String.format(Locale.ROOT, "  %-14s %9.2f ms %12s KB allocated %10d made%n", stage.name, stage.wallNanos / 1e6, allocated, stage.outputSize));
+        }
+        return table.toString();
+    }
+}
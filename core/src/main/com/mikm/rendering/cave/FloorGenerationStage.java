@@ -0,0 +1,12 @@
+package com.mikm.rendering.cave;
+
+/**
+ * One named step of making a floor, see {@link FloorGenerationPipeline}.
+ */
+interface FloorGenerationStage {
+    /**
+     * Does the stage's work on the context and returns how much it made, for the report: tiles, holes, enemies,
+     * chunks and so on, whatever fits the stage.
+     */
+    long run(FloorBuildContext context);
+}
@@ -0,0 +1,31 @@
+package com.mikm.rendering.cave;
+
+import java.util.Locale;
+
+/**
+ * How long the GL thread spent switching to a floor: waiting for its layout, swapping its layers into the map and
+ * spawning its entities, and whether the layout was retained, prefetched or generated while waiting.
+ */
+public class FloorSwapReport {
+    public final int floor;
+    public final CaveFloorPrefetcher.Source source;
+    public final long waitNanos, swapNanos, spawnNanos;
+
+    public FloorSwapReport(int floor, CaveFloorPrefetcher.Source source, long waitNanos, long swapNanos, long spawnNanos) {
+        this.floor = floor;
+        this.source = source;
+        this.waitNanos = waitNanos;
+        this.swapNanos = swapNanos;
+        this.spawnNanos = spawnNanos;
+    }
+
+    public long getTotalNanos() {
+        return waitNanos + swapNanos + spawnNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Floor %d swap (%s): %.2f ms waiting, %.2f ms swapping layers, %.2f ms spawning, %.2f ms total",
+                floor, source.name().toLowerCase(Locale.ROOT), waitNanos / 1e6, swapNanos / 1e6, spawnNanos / 1e6, getTotalNanos() / 1e6);
+    }
+}
@@ -1,38 +1,49 @@
 package com.mikm.rendering.cave;
 
 import com.badlogic.gdx.math.MathUtils;
-import com.mikm.RandomUtils;
+import com.mikm.BitGrid;
+import com.mikm.RandomStream;
 import com.mikm.Vector2Int;
-
-import java.util.*;
+import com.mikm.collections.IntList;
 
 public class HolePositionGenerator {
-    private CaveTilemapCreator caveTilemap;
-    private ArrayList<Vector2Int> openTiles;
-    private Set<Vector2Int> output;
+    private final OpenTileSet openTiles;
+    private OpenTileSet output;
+    private final int mapWidth, mapHeight;
+    private final RandomStream random;
+    private final TileGenerationUtils.TileVisitor lineTileVisitor = this::addHoleIfOpen;
 
-    HolePositionGenerator(CaveTilemapCreator caveTilemap) {
-        this.caveTilemap = caveTilemap;
-        openTiles = caveTilemap.openTiles;
+    HolePositionGenerator(OpenTileSet openTiles, RandomStream random) {
+        this.openTiles = openTiles;
+        this.mapWidth = openTiles.getWidth();
+        this.mapHeight = openTiles.getHeight();
+        this.random = random;
     }
 
-    ArrayList<Vector2Int> createHolePositions() {
-        output = new HashSet<>();
+    //Packed as y * mapWidth + x
+    IntList createHolePositions() {
+        output = new OpenTileSet(mapWidth, mapHeight);
         generateLines();
-        deleteOverlappingHoles();
         deleteIfSmall();
         openTiles.removeAll(output);
-        return new ArrayList<>(output);
+        IntList holePositions = new IntList(output.size());
+        for (int i = 0; i < output.size(); i++) {
+            holePositions.add(output.getTile(i));
+        }
+        return holePositions;
     }
 
     private void generateLines() {
-        ArrayList<Vector2Int> shuffledOpenTiles = new ArrayList<>(openTiles);
-        Collections.shuffle(shuffledOpenTiles);
-        for (int i = 0; i < CaveTilemapCreator.CHASM_AMOUNT; i++) {
-            Vector2Int randomizedNearbyPosition = new Vector2Int(shuffledOpenTiles.get(i));
+        if (openTiles.isEmpty()) {
+            return;
+        }
+        //Bigger maps get the same amount of chasms per tile as the first floors
+        long chasmAmount = (long) CaveTilemapCreator.CHASM_AMOUNT * mapWidth * mapHeight / (CaveTilemapCreator.MAP_WIDTH * CaveTilemapCreator.MAP_HEIGHT);
+        for (int i = 0; i < chasmAmount; i++) {
+            Vector2Int randomizedNearbyPosition = openTiles.getRandom(random);
             int forks = 0;
-            while (RandomUtils.getPercentage(70)) {
-                randomizedNearbyPosition = new Vector2Int(randomizedNearbyPosition.x + RandomUtils.getInt(-2, 2), randomizedNearbyPosition.y + RandomUtils.getInt(-2, 2));
+            while (random.getPercentage(70)) {
+                randomizedNearbyPosition = new Vector2Int(randomizedNearbyPosition.x + random.getInt(-2, 2), randomizedNearbyPosition.y + random.getInt(-2, 2));
                 addLineAt(randomizedNearbyPosition);
                 forks++;
                 if (forks > 20) {
@@ -45,20 +56,29 @@ public class HolePositionGenerator {
     }
 
     private void addLineAt(Vector2Int tile) {
-        ArrayList<Vector2Int> line = TileGenerationUtils.getLinePositions(tile, RandomUtils.getFloat(0, MathUtils.PI2),
-                RandomUtils.getInt(CaveTilemapCreator.CHASM_LENGTH_MIN, CaveTilemapCreator.CHASM_LENGTH_MAX), CaveTilemapCreator.CHASM_WIDTH);
-        output.addAll(line);
+        TileGenerationUtils.visitLinePositions(tile.x, tile.y, random.getFloat(0, MathUtils.PI2),
+                random.getInt(CaveTilemapCreator.CHASM_LENGTH_MIN, CaveTilemapCreator.CHASM_LENGTH_MAX), CaveTilemapCreator.CHASM_WIDTH, mapWidth, mapHeight, lineTileVisitor);
     }
 
-    private void deleteOverlappingHoles() {
-        output.removeIf(holePosition -> !openTiles.contains(holePosition));
+    //Holes can only go on open tiles, anything else on the line is dropped
+    private void addHoleIfOpen(int x, int y) {
+        if (openTiles.contains(x, y)) {
+            output.add(x, y);
+        }
     }
 
     private void deleteIfSmall() {
-        ArrayList<ArrayList<Vector2Int>> regions = TileGenerationUtils.getRegions(output,true);
-        for (Collection<Vector2Int> region : regions) {
-            if (region.size() < CaveTilemapCreator.CHASM_MIN_SIZE) {
-                output.removeAll(region);
+        BitGrid holeGrid = new BitGrid(mapWidth, mapHeight);
+        for (int i = 0; i < output.size(); i++) {
+            holeGrid.set(output.getX(i), output.getY(i));
+        }
+        TileRegions regions = RegionLabeller.label(holeGrid, true);
+        for (int region = 0; region < regions.getRegionCount(); region++) {
+            if (regions.getSize(region) < CaveTilemapCreator.CHASM_MIN_SIZE) {
+                for (int i = 0; i < regions.getSize(region); i++) {
+                    int tile = regions.getTile(region, i);
+                    output.remove(regions.getX(tile), regions.getY(tile));
+                }
             }
         }
     }
@@ -0,0 +1,119 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import com.mikm.RandomStream;
+import com.mikm.Vector2Int;
+
+/**
+ * A set of tiles on a width x height map with O(1) add, contains, remove and random picks. Membership is a
+ * {@link BitGrid}, and the tiles themselves are packed as y * width + x into a dense array, which is what gets
+ * indexed and sampled. Removing swaps the last tile into the removed one's slot, so order isn't kept, but it only
+ * ever changes because of the calls made, and the same calls always give the same order.
+ */
+public class OpenTileSet {
+    private final int width, height;
+    private final BitGrid members;
+    //Where each member sits in denseTiles. Only meaningful while the tile's member bit is set.
+    private final int[] denseIndexes;
+    private int[] denseTiles = new int[64];
+    private int size;
+
+    public OpenTileSet(int width, int height) {
+        this.width = width;
+        this.height = height;
+        members = new BitGrid(width, height);
+        denseIndexes = new int[width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int x, int y) {
+        return members.isInBounds(x, y) && members.get(x, y);
+    }
+
+    public boolean contains(Vector2Int tile) {
+        return contains(tile.x, tile.y);
+    }
+
+    public boolean add(int x, int y) {
+        if (members.get(x, y)) {
+            return false;
+        }
+        if (size == denseTiles.length) {
+            int[] grown = new int[denseTiles.length * 2];
+            System.arraycopy(denseTiles, 0, grown, 0, size);
+            denseTiles = grown;
+        }
+        int tile = y * width + x;
+        members.set(x, y);
+        denseIndexes[tile] = size;
+        denseTiles[size++] = tile;
+        return true;
+    }
+
+    public boolean remove(int x, int y) {
+        if (!contains(x, y)) {
+            return false;
+        }
+        members.clear(x, y);
+        int tile = y * width + x;
+        int index = denseIndexes[tile];
+        int lastTile = denseTiles[--size];
+        denseTiles[index] = lastTile;
+        denseIndexes[lastTile] = index;
+        return true;
+    }
+
+    public boolean remove(Vector2Int tile) {
+        return remove(tile.x, tile.y);
+    }
+
+    /**
+     * Removes every tile that's also in other, in time proportional to the size of other. Returns how many were
+     * removed.
+     */
+    public int removeAll(OpenTileSet other) {
+        int removed = 0;
+        for (int i = 0; i < other.size; i++) {
+            if (remove(other.getX(i), other.getY(i))) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    //Packed as y * width + x
+    public int getTile(int index) {
+        return denseTiles[index];
+    }
+
+    public int getX(int index) {
+        return denseTiles[index] % width;
+    }
+
+    public int getY(int index) {
+        return denseTiles[index] / width;
+    }
+
+    public Vector2Int get(int index) {
+        return new Vector2Int(getX(index), getY(index));
+    }
+
+    public Vector2Int getRandom(RandomStream random) {
+        return get(random.getInt(size - 1));
+    }
+}
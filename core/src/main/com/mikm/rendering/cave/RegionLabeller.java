@@ -0,0 +1,213 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+
+import java.util.Arrays;
+
+/**
+ * Finds every 4-connected region of one tile type in two scans. The first scan splits each row into runs of the tile
+ * type and unions every run with the runs it overlaps in the row above. The second gives every set of runs its
+ * final region number and fills in the sizes, bounds and tile lists.
+ */
+public class RegionLabeller {
+    private int[] runRows = new int[256];
+    private int[] runStarts = new int[256];
+    private int[] runEnds = new int[256];
+    private int[] parents = new int[256];
+    private int runCount;
+
+    public static TileRegions label(BitGrid tilePositions, boolean tileType) {
+        return new RegionLabeller().createRegions(tilePositions, tileType);
+    }
+
+    private TileRegions createRegions(BitGrid tilePositions, boolean tileType) {
+        BitGrid tilesOfType = tilePositions.copy();
+        if (!tileType) {
+            tilesOfType.invert();
+        }
+        findAndUnionRuns(tilesOfType);
+        return createRegionsFromRuns(tilesOfType);
+    }
+
+    private void findAndUnionRuns(BitGrid tilesOfType) {
+        runCount = 0;
+        int lastRowStart = 0, lastRowEnd = 0;
+        for (int y = tilesOfType.getHeight() - 1; y >= 0; y--) {
+            int rowStart = runCount;
+            int x = nextTileOfType(tilesOfType, y, 0);
+            while (x < tilesOfType.getWidth()) {
+                int end = nextTileNotOfType(tilesOfType, y, x);
+                addRun(y, x, end - 1);
+                x = nextTileOfType(tilesOfType, y, end);
+            }
+
+            //Both rows are sorted by x, so overlapping runs can be found walking them side by side
+            int above = lastRowStart;
+            for (int run = rowStart; run < runCount; run++) {
+                while (above < lastRowEnd && runEnds[above] < runStarts[run]) {
+                    above++;
+                }
+                int overlapping = above;
+                while (overlapping < lastRowEnd && runStarts[overlapping] <= runEnds[run]) {
+                    union(run, overlapping);
+                    overlapping++;
+                }
+            }
+            lastRowStart = rowStart;
+            lastRowEnd = runCount;
+        }
+    }
+
+    private TileRegions createRegionsFromRuns(BitGrid tilesOfType) {
+        final int width = tilesOfType.getWidth(), height = tilesOfType.getHeight();
+        int[] runLabels = new int[runCount];
+        int[] rootLabels = new int[runCount];
+        Arrays.fill(rootLabels, -1);
+        int regionCount = 0;
+        for (int run = 0; run < runCount; run++) {
+            int root = find(run);
+            if (rootLabels[root] == -1) {
+                rootLabels[root] = regionCount++;
+            }
+            runLabels[run] = rootLabels[root];
+        }
+
+        int[] labels = new int[width * height];
+        Arrays.fill(labels, -1);
+        int[] sizes = new int[regionCount];
+        int[] minX = new int[regionCount], minY = new int[regionCount], maxX = new int[regionCount], maxY = new int[regionCount];
+        Arrays.fill(minX, Integer.MAX_VALUE);
+        Arrays.fill(minY, Integer.MAX_VALUE);
+        Arrays.fill(maxX, -1);
+        Arrays.fill(maxY, -1);
+        for (int run = 0; run < runCount; run++) {
+            int label = runLabels[run];
+            int y = runRows[run];
+            sizes[label] += runEnds[run] - runStarts[run] + 1;
+            minX[label] = Math.min(minX[label], runStarts[run]);
+            maxX[label] = Math.max(maxX[label], runEnds[run]);
+            minY[label] = Math.min(minY[label], y);
+            maxY[label] = Math.max(maxY[label], y);
+            Arrays.fill(labels, y * width + runStarts[run], y * width + runEnds[run] + 1, label);
+        }
+
+        int[] tileStarts = new int[regionCount + 1];
+        for (int label = 0; label < regionCount; label++) {
+            tileStarts[label + 1] = tileStarts[label] + sizes[label];
+        }
+        int[] tiles = new int[tileStarts[regionCount]];
+        int[] nextTile = Arrays.copyOf(tileStarts, regionCount);
+        for (int run = 0; run < runCount; run++) {
+            int label = runLabels[run];
+            for (int x = runStarts[run]; x <= runEnds[run]; x++) {
+                tiles[nextTile[label]++] = runRows[run] * width + x;
+            }
+        }
+
+        BitGrid edges = findEdges(tilesOfType);
+        int[] edgeTileStarts = new int[regionCount + 1];
+        for (int y = height - 1; y >= 0; y--) {
+            for (int w = 0; w < edges.getWordsPerRow(); w++) {
+                long word = edges.getWord(y, w);
+                while (word != 0) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(word);
+                    edgeTileStarts[labels[y * width + x] + 1]++;
+                    word &= word - 1;
+                }
+            }
+        }
+        for (int label = 0; label < regionCount; label++) {
+            edgeTileStarts[label + 1] += edgeTileStarts[label];
+        }
+        int[] edgeTiles = new int[edgeTileStarts[regionCount]];
+        int[] nextEdgeTile = Arrays.copyOf(edgeTileStarts, regionCount);
+        for (int y = height - 1; y >= 0; y--) {
+            for (int w = 0; w < edges.getWordsPerRow(); w++) {
+                long word = edges.getWord(y, w);
+                while (word != 0) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(word);
+                    edgeTiles[nextEdgeTile[labels[y * width + x]]++] = y * width + x;
+                    word &= word - 1;
+                }
+            }
+        }
+
+        return new TileRegions(width, height, regionCount, labels, sizes, minX, minY, maxX, maxY, tileStarts, tiles, edgeTileStarts, edgeTiles);
+    }
+
+    //A tile is on the edge if one of its 4 neighbors inside the map is of the other type
+    private BitGrid findEdges(BitGrid tilesOfType) {
+        BitGrid edges = new BitGrid(tilesOfType.getWidth(), tilesOfType.getHeight());
+        for (int y = 0; y < tilesOfType.getHeight(); y++) {
+            for (int w = 0; w < tilesOfType.getWordsPerRow(); w++) {
+                long surrounded = tilesOfType.getWord(y + 1, w, true) & tilesOfType.getWord(y - 1, w, true)
+                        & tilesOfType.getLeftNeighborWord(y, w, true) & tilesOfType.getRightNeighborWord(y, w, true);
+                edges.setWord(y, w, tilesOfType.getWord(y, w) & ~surrounded);
+            }
+        }
+        return edges;
+    }
+
+    private int nextTileOfType(BitGrid tilesOfType, int y, int fromX) {
+        int w = fromX >>> 6;
+        if (w >= tilesOfType.getWordsPerRow()) {
+            return tilesOfType.getWidth();
+        }
+        long word = tilesOfType.getWord(y, w) & (-1L << fromX);
+        while (word == 0) {
+            w++;
+            if (w == tilesOfType.getWordsPerRow()) {
+                return tilesOfType.getWidth();
+            }
+            word = tilesOfType.getWord(y, w);
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private int nextTileNotOfType(BitGrid tilesOfType, int y, int fromX) {
+        int w = fromX >>> 6;
+        long word = ~tilesOfType.getWord(y, w) & (-1L << fromX);
+        while (word == 0) {
+            w++;
+            if (w == tilesOfType.getWordsPerRow()) {
+                return tilesOfType.getWidth();
+            }
+            word = ~tilesOfType.getWord(y, w);
+        }
+        return Math.min((w << 6) + Long.numberOfTrailingZeros(word), tilesOfType.getWidth());
+    }
+
+    private void addRun(int y, int start, int end) {
+        if (runCount == runRows.length) {
+            int newLength = runRows.length * 2;
+            runRows = Arrays.copyOf(runRows, newLength);
+            runStarts = Arrays.copyOf(runStarts, newLength);
+            runEnds = Arrays.copyOf(runEnds, newLength);
+            parents = Arrays.copyOf(parents, newLength);
+        }
+        runRows[runCount] = y;
+        runStarts[runCount] = start;
+        runEnds[runCount] = end;
+        parents[runCount] = runCount;
+        runCount++;
+    }
+
+    private int find(int run) {
+        while (parents[run] != run) {
+            parents[run] = parents[parents[run]];
+            run = parents[run];
+        }
+        return run;
+    }
+
+    //Keeps the earliest run as the root so region numbers follow scan order
+    private void union(int runA, int runB) {
+        int rootA = find(runA);
+        int rootB = find(runB);
+        if (rootA < rootB) {
+            parents[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parents[rootA] = rootB;
+        }
+    }
+}
@@ -10,11 +10,18 @@ public class Rock extends InanimateEntity {
     private final TextureRegion image;
     public final RockType rockType;
 
+    public static final int NORMAL_ROCK_IMAGES = 3;
+
     public Rock(int x, int y, RockType rockType) {
+        this(x, y, rockType, RandomUtils.SPAWNING.getInt(NORMAL_ROCK_IMAGES - 1));
+    }
+
+    //Which of the normal rock images to use, ores only have one
+    public Rock(int x, int y, RockType rockType, int imageIndex) {
         super(x, y);
         this.rockType = rockType;
         if (rockType == RockType.NORMAL) {
-            this.image = CaveScreen.rockImages[CaveScreen.getRecolorLevel()][RandomUtils.getInt(2)];
+            this.image = CaveScreen.rockImages[CaveScreen.getRecolorLevel()][imageIndex];
         } else {
             this.image = CaveScreen.oreImages[rockType.spritesheetPosition];
         }
@@ -2,7 +2,7 @@ package com.mikm.rendering.cave;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.mikm.Assets;
-import com.mikm.RandomUtils;
+import com.mikm.RandomStream;
 import com.mikm.rendering.screens.CaveScreen;
 
 import java.util.Arrays;
@@ -46,7 +46,7 @@ public enum RockType {
         return Assets.particleImages[1][spritesheetPosition+1];
     }
 
-    public static RockType getRandomRockType(float[] chances) {
+    public static RockType getRandomRockType(float[] chances, RandomStream random) {
         float sum = 0;
         for (float num : chances) {
             sum += num;
@@ -56,7 +56,7 @@ public enum RockType {
         }
 
         float totalChance = 0;
-        float randomFloat = RandomUtils.getFloat(0, 1);
+        float randomFloat = random.getFloat(0, 1);
         for (int i =0; i < chances.length; i++) {
             totalChance += chances[i];
             if (randomFloat < totalChance) {
@@ -0,0 +1,433 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import com.mikm.Vector2Int;
+import com.mikm.collections.IntIntMap;
+import com.mikm.collections.IntList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Decides which rooms get a passage between them and where. Closest edge tiles are found through a uniform grid of
+ * every room's edge tiles, searched in rings around the query tile until no closer tile can exist.
+ */
+class RoomConnector {
+    enum ConnectionMode {
+        /**
+         * Connects every room to its closest room, then keeps connecting the closest unreachable room to the main
+         * room until everything is reachable. Gives the same passages as the original all-pairs search, which broke
+         * distance ties by the order its flood fill reached the edge tiles in, so each room's edge tiles are put back
+         * in that order first.
+         */
+        COMPATIBLE,
+        /**
+         * Connects the rooms along a minimum spanning tree of the closest edge tile distances between nearby rooms,
+         * then adds the shortest leftover links so the cave isn't a pure tree.
+         */
+        MINIMUM_SPANNING_TREE
+    }
+
+    static class RoomConnection {
+        final CaveRoom roomA, roomB;
+        final Vector2Int tileA, tileB;
+        final int distanceSquared;
+
+        RoomConnection(CaveRoom roomA, CaveRoom roomB, Vector2Int tileA, Vector2Int tileB, int distanceSquared) {
+            this.roomA = roomA;
+            this.roomB = roomB;
+            this.tileA = tileA;
+            this.tileB = tileB;
+            this.distanceSquared = distanceSquared;
+        }
+    }
+
+    private static final int CELL_SIZE = 8, NEARBY_RINGS = 2;
+
+    private final ConnectionMode connectionMode;
+    private final int extraConnections;
+
+    private ArrayList<CaveRoom> rooms;
+    private int gridWidth, gridHeight;
+    private int[] cellStarts;
+    private int[] entryXs, entryYs, entryRooms, entryTileIndexes;
+    //A search only finds tiles of rooms whose group isn't the excluded one
+    private int[] roomGroups;
+    private int excludedGroup;
+
+    //Result of the last nearest tile search
+    private int nearestDistance, nearestRoom, nearestTileIndex;
+
+    RoomConnector(ConnectionMode connectionMode, int extraConnections) {
+        this.connectionMode = connectionMode;
+        this.extraConnections = extraConnections;
+    }
+
+    /**
+     * Returns the passages to dig in the order they were decided, and connects the rooms to each other.
+     * The rooms must be sorted so the main room comes first.
+     */
+    ArrayList<RoomConnection> connectRooms(ArrayList<CaveRoom> rooms, int mapWidth, int mapHeight) {
+        this.rooms = rooms;
+        for (int i = 0; i < rooms.size(); i++) {
+            rooms.get(i).index = i;
+        }
+        roomGroups = new int[rooms.size()];
+        if (connectionMode == ConnectionMode.COMPATIBLE) {
+            sortEdgeTilesInFloodFillOrder(mapWidth, mapHeight);
+        }
+        buildIndex(mapWidth, mapHeight);
+
+        ArrayList<RoomConnection> connections = new ArrayList<>();
+        if (connectionMode == ConnectionMode.COMPATIBLE) {
+            connectEachRoomToClosest(connections);
+            while (connectClosestUnreachableRoom(connections)) {
+                //keep connecting
+            }
+        } else {
+            connectMinimumSpanningTree(connections);
+        }
+        return connections;
+    }
+
+    //The labeller lists edge tiles row by row. The old rooms were flood filled from their first tile in that order,
+    //looking at the tile below, left, right and above, and only the first time an edge tile was listed could win a tie.
+    private void sortEdgeTilesInFloodFillOrder(int mapWidth, int mapHeight) {
+        //Tiles not yet reached by a room's flood fill, and which of them are edge tiles
+        BitGrid unvisitedTiles = new BitGrid(mapWidth, mapHeight);
+        BitGrid edgeTiles = new BitGrid(mapWidth, mapHeight);
+        int largestRoomSize = 0;
+        for (CaveRoom room : rooms) {
+            for (int i = 0; i < room.tiles.size(); i++) {
+                int tile = room.tiles.get(i);
+                unvisitedTiles.set(tile % mapWidth, tile / mapWidth);
+            }
+            for (int i = 0; i < room.edgeTiles.size(); i++) {
+                int tile = room.edgeTiles.get(i);
+                edgeTiles.set(tile % mapWidth, tile / mapWidth);
+            }
+            largestRoomSize = Math.max(largestRoomSize, room.tiles.size());
+        }
+
+        int[] queue = new int[largestRoomSize];
+        for (CaveRoom room : rooms) {
+            IntList sortedEdgeTiles = new IntList(room.edgeTiles.size());
+            int head = 0, tail = 0;
+            int start = room.tiles.get(0);
+            unvisitedTiles.clear(start % mapWidth, start / mapWidth);
+            queue[tail++] = start;
+            while (head < tail) {
+                int tile = queue[head++];
+                int x = tile % mapWidth, y = tile / mapWidth;
+                if (edgeTiles.get(x, y)) {
+                    sortedEdgeTiles.add(tile);
+                }
+                tail = visit(unvisitedTiles, x, y - 1, mapWidth, queue, tail);
+                tail = visit(unvisitedTiles, x - 1, y, mapWidth, queue, tail);
+                tail = visit(unvisitedTiles, x + 1, y, mapWidth, queue, tail);
+                tail = visit(unvisitedTiles, x, y + 1, mapWidth, queue, tail);
+            }
+            room.edgeTiles = sortedEdgeTiles;
+        }
+    }
+
+    private int visit(BitGrid unvisitedTiles, int x, int y, int mapWidth, int[] queue, int tail) {
+        if (x >= 0 && x < unvisitedTiles.getWidth() && y >= 0 && y < unvisitedTiles.getHeight() && unvisitedTiles.get(x, y)) {
+            unvisitedTiles.clear(x, y);
+            queue[tail++] = y * mapWidth + x;
+        }
+        return tail;
+    }
+
+    private void connectEachRoomToClosest(ArrayList<RoomConnection> connections) {
+        //Rooms are only looked at while they have no connections, so every other room is eligible
+        for (int i = 0; i < roomGroups.length; i++) {
+            roomGroups[i] = i;
+        }
+        for (CaveRoom roomA : rooms) {
+            if (roomA.connectedRooms.size() > 0) {
+                continue;
+            }
+            excludedGroup = roomA.index;
+            RoomConnection connection = findClosestConnectionFrom(roomA);
+            if (connection != null) {
+                connect(connection, connections);
+            }
+        }
+    }
+
+    private boolean connectClosestUnreachableRoom(ArrayList<RoomConnection> connections) {
+        for (CaveRoom room : rooms) {
+            roomGroups[room.index] = room.isAccesibleFromMainRoom ? 0 : -1;
+        }
+        excludedGroup = -1;
+        RoomConnection bestConnection = null;
+        for (CaveRoom roomA : rooms) {
+            if (roomA.isAccesibleFromMainRoom) {
+                continue;
+            }
+            RoomConnection connection = findClosestConnectionFrom(roomA);
+            if (connection != null && (bestConnection == null || connection.distanceSquared < bestConnection.distanceSquared)) {
+                bestConnection = connection;
+            }
+        }
+        if (bestConnection == null) {
+            return false;
+        }
+        connect(bestConnection, connections);
+        return true;
+    }
+
+    //Kruskal's algorithm over the links between rooms that are close to each other. Rooms walled off further than
+    //that are joined afterwards by searching outwards from them, Borůvka style, until everything is one group.
+    private void connectMinimumSpanningTree(ArrayList<RoomConnection> connections) {
+        int[] groups = new int[rooms.size()];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = i;
+        }
+        ArrayList<RoomConnection> nearbyLinks = findNearbyLinks();
+        nearbyLinks.sort((a, b) -> isBetter(a, b) ? -1 : isBetter(b, a) ? 1 : 0);
+        ArrayList<RoomConnection> leftoverLinks = new ArrayList<>();
+        int groupCount = rooms.size();
+        for (RoomConnection link : nearbyLinks) {
+            int groupA = findGroup(groups, link.roomA.index);
+            int groupB = findGroup(groups, link.roomB.index);
+            if (groupA != groupB) {
+                groups[Math.max(groupA, groupB)] = Math.min(groupA, groupB);
+                connect(link, connections);
+                groupCount--;
+            } else {
+                leftoverLinks.add(link);
+            }
+        }
+
+        while (groupCount > 1) {
+            int[] groupSizes = new int[rooms.size()];
+            for (int i = 0; i < roomGroups.length; i++) {
+                roomGroups[i] = findGroup(groups, i);
+                groupSizes[roomGroups[i]]++;
+            }
+            //Searching out of the biggest group would walk past most of the map, every other group will reach it anyway
+            int largestGroup = 0;
+            for (int group = 1; group < groupSizes.length; group++) {
+                if (groupSizes[group] > groupSizes[largestGroup]) {
+                    largestGroup = group;
+                }
+            }
+            RoomConnection[] bestPerGroup = new RoomConnection[rooms.size()];
+            for (CaveRoom roomA : rooms) {
+                int groupA = roomGroups[roomA.index];
+                if (groupA == largestGroup) {
+                    continue;
+                }
+                excludedGroup = groupA;
+                RoomConnection connection = findClosestConnectionFrom(roomA);
+                if (connection != null && (bestPerGroup[groupA] == null || isBetter(connection, bestPerGroup[groupA]))) {
+                    bestPerGroup[groupA] = connection;
+                }
+            }
+            boolean connectedAny = false;
+            for (RoomConnection connection : bestPerGroup) {
+                if (connection == null) {
+                    continue;
+                }
+                int groupA = findGroup(groups, connection.roomA.index);
+                int groupB = findGroup(groups, connection.roomB.index);
+                if (groupA != groupB) {
+                    groups[Math.max(groupA, groupB)] = Math.min(groupA, groupB);
+                    connect(connection, connections);
+                    groupCount--;
+                    connectedAny = true;
+                }
+            }
+            if (!connectedAny) {
+                break;
+            }
+        }
+
+        //Leftover links are still sorted shortest first
+        int added = 0;
+        for (RoomConnection link : leftoverLinks) {
+            if (added >= extraConnections) {
+                break;
+            }
+            if (!link.roomA.IsConnected(link.roomB)) {
+                connect(link, connections);
+                added++;
+            }
+        }
+    }
+
+    //The closest link from every room to each later room with an edge tile within NEARBY_RINGS cells of its own
+    private ArrayList<RoomConnection> findNearbyLinks() {
+        ArrayList<RoomConnection> links = new ArrayList<>();
+        //Which of links is the best one so far from roomA to each room
+        IntIntMap bestLinkPerRoom = new IntIntMap();
+        for (CaveRoom roomA : rooms) {
+            bestLinkPerRoom.clear();
+            for (int tileIndexA = 0; tileIndexA < roomA.edgeTiles.size(); tileIndexA++) {
+                final int tileA = roomA.edgeTiles.get(tileIndexA);
+                final int tileAX = roomA.getX(tileA), tileAY = roomA.getY(tileA);
+                final int cellX = tileAX / CELL_SIZE, cellY = tileAY / CELL_SIZE;
+                for (int searchedCellY = Math.max(cellY - NEARBY_RINGS, 0); searchedCellY <= Math.min(cellY + NEARBY_RINGS, gridHeight - 1); searchedCellY++) {
+                    for (int searchedCellX = Math.max(cellX - NEARBY_RINGS, 0); searchedCellX <= Math.min(cellX + NEARBY_RINGS, gridWidth - 1); searchedCellX++) {
+                        int cell = searchedCellY * gridWidth + searchedCellX;
+                        for (int entry = cellStarts[cell]; entry < cellStarts[cell + 1]; entry++) {
+                            int room = entryRooms[entry];
+                            if (room <= roomA.index) {
+                                continue;
+                            }
+                            int dx = entryXs[entry] - tileAX;
+                            int dy = entryYs[entry] - tileAY;
+                            int distance = dx * dx + dy * dy;
+                            int bestLink = bestLinkPerRoom.get(room, -1);
+                            if (bestLink == -1 || distance < links.get(bestLink).distanceSquared) {
+                                CaveRoom roomB = rooms.get(room);
+                                RoomConnection link = new RoomConnection(roomA, roomB, roomA.getEdgeTile(tileIndexA), roomB.getEdgeTile(entryTileIndexes[entry]), distance);
+                                if (bestLink == -1) {
+                                    bestLinkPerRoom.put(room, links.size());
+                                    links.add(link);
+                                } else {
+                                    links.set(bestLink, link);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return links;
+    }
+
+    private boolean isBetter(RoomConnection connection, RoomConnection other) {
+        if (connection.distanceSquared != other.distanceSquared) {
+            return connection.distanceSquared < other.distanceSquared;
+        }
+        if (connection.roomA.index != other.roomA.index) {
+            return connection.roomA.index < other.roomA.index;
+        }
+        return connection.roomB.index < other.roomB.index;
+    }
+
+    private int findGroup(int[] groups, int room) {
+        while (groups[room] != room) {
+            groups[room] = groups[groups[room]];
+            room = groups[room];
+        }
+        return room;
+    }
+
+    private void connect(RoomConnection connection, ArrayList<RoomConnection> connections) {
+        CaveRoom.ConnectRooms(connection.roomA, connection.roomB);
+        connections.add(connection);
+    }
+
+    //Ties go to the earliest room, then the earliest tile of roomA, then the earliest tile of roomB,
+    //which is the order the all-pairs search used to compare them in once the edge tiles are in flood fill order.
+    private RoomConnection findClosestConnectionFrom(CaveRoom roomA) {
+        int bestDistance = Integer.MAX_VALUE, bestRoom = -1, bestTileIndexA = -1, bestTileIndexB = -1;
+        for (int tileIndexA = 0; tileIndexA < roomA.edgeTiles.size(); tileIndexA++) {
+            int tileA = roomA.edgeTiles.get(tileIndexA);
+            findNearestEligibleTile(roomA.getX(tileA), roomA.getY(tileA));
+            if (nearestRoom == -1) {
+                continue;
+            }
+            if (nearestDistance < bestDistance || (nearestDistance == bestDistance && nearestRoom < bestRoom)) {
+                bestDistance = nearestDistance;
+                bestRoom = nearestRoom;
+                bestTileIndexA = tileIndexA;
+                bestTileIndexB = nearestTileIndex;
+            }
+        }
+        if (bestRoom == -1) {
+            return null;
+        }
+        CaveRoom roomB = rooms.get(bestRoom);
+        return new RoomConnection(roomA, roomB, roomA.getEdgeTile(bestTileIndexA), roomB.getEdgeTile(bestTileIndexB), bestDistance);
+    }
+
+    private void findNearestEligibleTile(int x, int y) {
+        nearestDistance = Integer.MAX_VALUE;
+        nearestRoom = -1;
+        nearestTileIndex = -1;
+        final int cellX = x / CELL_SIZE, cellY = y / CELL_SIZE;
+        final int maxRing = Math.max(gridWidth, gridHeight);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (ring > 0 && nearestRoom != -1) {
+                int closestPossible = (ring - 1) * CELL_SIZE + 1;
+                if (closestPossible * closestPossible > nearestDistance) {
+                    return;
+                }
+            }
+            for (int dy = -ring; dy <= ring; dy++) {
+                int searchedCellY = cellY + dy;
+                if (searchedCellY < 0 || searchedCellY >= gridHeight) {
+                    continue;
+                }
+                boolean fullRow = dy == -ring || dy == ring;
+                int step = fullRow || ring == 0 ? 1 : 2 * ring;
+                for (int dx = -ring; dx <= ring; dx += step) {
+                    int searchedCellX = cellX + dx;
+                    if (searchedCellX >= 0 && searchedCellX < gridWidth) {
+                        searchCell(searchedCellY * gridWidth + searchedCellX, x, y);
+                    }
+                }
+            }
+        }
+    }
+
+    private void searchCell(int cell, int x, int y) {
+        for (int entry = cellStarts[cell]; entry < cellStarts[cell + 1]; entry++) {
+            int room = entryRooms[entry];
+            if (roomGroups[room] == excludedGroup) {
+                continue;
+            }
+            int dx = entryXs[entry] - x;
+            int dy = entryYs[entry] - y;
+            int distance = dx * dx + dy * dy;
+            if (distance < nearestDistance
+                    || (distance == nearestDistance && (room < nearestRoom || (room == nearestRoom && entryTileIndexes[entry] < nearestTileIndex)))) {
+                nearestDistance = distance;
+                nearestRoom = room;
+                nearestTileIndex = entryTileIndexes[entry];
+            }
+        }
+    }
+
+    private void buildIndex(int mapWidth, int mapHeight) {
+        gridWidth = (mapWidth + CELL_SIZE - 1) / CELL_SIZE;
+        gridHeight = (mapHeight + CELL_SIZE - 1) / CELL_SIZE;
+        cellStarts = new int[gridWidth * gridHeight + 1];
+        int entryCount = 0;
+        for (CaveRoom room : rooms) {
+            for (int tileIndex = 0; tileIndex < room.edgeTiles.size(); tileIndex++) {
+                int tile = room.edgeTiles.get(tileIndex);
+                cellStarts[getCell(room.getX(tile), room.getY(tile)) + 1]++;
+                entryCount++;
+            }
+        }
+        for (int cell = 0; cell < gridWidth * gridHeight; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+        entryXs = new int[entryCount];
+        entryYs = new int[entryCount];
+        entryRooms = new int[entryCount];
+        entryTileIndexes = new int[entryCount];
+        int[] nextEntry = Arrays.copyOf(cellStarts, gridWidth * gridHeight);
+        for (CaveRoom room : rooms) {
+            for (int tileIndex = 0; tileIndex < room.edgeTiles.size(); tileIndex++) {
+                int tile = room.edgeTiles.get(tileIndex);
+                final int x = room.getX(tile), y = room.getY(tile);
+                int entry = nextEntry[getCell(x, y)]++;
+                entryXs[entry] = x;
+                entryYs[entry] = y;
+                entryRooms[entry] = room.index;
+                entryTileIndexes[entry] = tileIndex;
+            }
+        }
+    }
+
+    private int getCell(int x, int y) {
+        return (y / CELL_SIZE) * gridWidth + x / CELL_SIZE;
+    }
+}
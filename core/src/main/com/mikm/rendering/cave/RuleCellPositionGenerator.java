@@ -1,209 +1,120 @@
 package com.mikm.rendering.cave;
 
-import com.mikm.RandomUtils;
+import com.mikm.BitGrid;
+import com.mikm.RandomStream;
 import com.mikm.Vector2Int;
 
 import java.util.*;
 
-import static com.mikm.rendering.cave.CaveTilemapCreator.MAP_WIDTH;
-import static com.mikm.rendering.cave.CaveTilemapCreator.MAP_HEIGHT;
-
 //Thanks to Sebastian Lague
 
 class RuleCellPositionGenerator {
-    public final int WALL_THRESHOLD_SIZE = 50, ROOM_THRESHOLD_SIZE = 50, PASSAGE_WIDTH = 1;
-
-    private boolean[][] ruleCellPositions;
+    public final int WALL_THRESHOLD_SIZE = 50, ROOM_THRESHOLD_SIZE = 50, PASSAGE_WIDTH = 1, LARGE_MAP_EXTRA_CONNECTIONS = 8, SMOOTHING_ITERATIONS = 5;
+
+    private BitGrid ruleCellPositions;
+    private int mapWidth, mapHeight;
+    private RandomStream random;
+    private final RoomConnector roomConnector = new RoomConnector(RoomConnector.ConnectionMode.COMPATIBLE, 0);
+    //The compatible search reconnects one unreachable room at a time, which doesn't scale to the room counts of bigger maps
+    private final RoomConnector largeMapRoomConnector = new RoomConnector(RoomConnector.ConnectionMode.MINIMUM_SPANNING_TREE, LARGE_MAP_EXTRA_CONNECTIONS);
+    private final CellularAutomatonSmoother smoother = new CellularAutomatonSmoother(CellularAutomatonSmoother.SmoothingMode.IN_PLACE);
+
+    public BitGrid createRuleCellPositions(int mapWidth, int mapHeight, RandomStream random) {
+        BitGrid ruleCellPositions = new BitGrid(mapWidth, mapHeight);
+        fillRandomly(ruleCellPositions, random);
+        smooth(ruleCellPositions);
+        processMap(ruleCellPositions);
+        return ruleCellPositions;
+    }
 
-    public boolean[][] createRuleCellPositions() {
-        ruleCellPositions = new boolean[MAP_HEIGHT][MAP_WIDTH];
+    //The three steps are also run one at a time as stages of the floor generation pipeline
+    void fillRandomly(BitGrid ruleCellPositions, RandomStream random) {
+        use(ruleCellPositions);
+        this.random = random;
         fillRuleCellPositionsRandomly();
-        for (int i = 0; i < 5; i++) {
-            smoothRuleCellPositions();
-        }
-        processMap();
-        return ruleCellPositions;
     }
 
-    private void fillRuleCellPositionsRandomly() {
-        for (int y = MAP_HEIGHT - 1; y >= 0; y--) {
-            for (int x = 0; x < MAP_WIDTH; x++) {
-                if (x == 0 || x == MAP_WIDTH - 1 || y == 0 || y == MAP_HEIGHT - 1) {
-                    ruleCellPositions[y][x] = true;
-                } else {
-                    ruleCellPositions[y][x] = RandomUtils.getPercentage(CaveTilemapCreator.FILL_CELL_PERCENT_CHANCE);
-                }
-            }
+    void smooth(BitGrid ruleCellPositions) {
+        for (int i = 0; i < SMOOTHING_ITERATIONS; i++) {
+            smoother.smooth(ruleCellPositions);
         }
     }
 
-    private void smoothRuleCellPositions() {
-        for (int y = MAP_HEIGHT - 1; y >= 0; y--) {
-            for (int x = 0; x < MAP_WIDTH; x++) {
-                int neighboringWallCount = getNeighboringCellCount(y, x);
-                if (neighboringWallCount > 4) {
-                    ruleCellPositions[y][x] = true;
-                } else if (neighboringWallCount < 4){
-                    ruleCellPositions[y][x] = false;
-                }
-            }
-        }
+    //Returns how many rooms were left to connect
+    int processMap(BitGrid ruleCellPositions) {
+        use(ruleCellPositions);
+        return processMap();
     }
 
-    private int getNeighboringCellCount(int y, int x) {
-        int count = 0;
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                if (i == 0 && j == 0) {
-                    continue;
-                }
-                boolean outOfBounds = (x+j < 0 || x+j > MAP_WIDTH - 1 || y+i < 0 || y+i > MAP_HEIGHT - 1);
-                if (outOfBounds) {
-                    count++;
-                    continue;
-                }
-                if (ruleCellPositions[y + i][x + j]) {
-                    count++;
+    private void use(BitGrid ruleCellPositions) {
+        this.ruleCellPositions = ruleCellPositions;
+        mapWidth = ruleCellPositions.getWidth();
+        mapHeight = ruleCellPositions.getHeight();
+    }
+
+    private void fillRuleCellPositionsRandomly() {
+        for (int y = mapHeight - 1; y >= 0; y--) {
+            for (int x = 0; x < mapWidth; x++) {
+                if (x == 0 || x == mapWidth - 1 || y == 0 || y == mapHeight - 1) {
+                    ruleCellPositions.set(x, y);
+                } else {
+                    ruleCellPositions.set(x, y, random.getPercentage(CaveTilemapCreator.FILL_CELL_PERCENT_CHANCE));
                 }
             }
         }
-        return count;
     }
 
-    private void processMap()
+    private int processMap()
     {
-        ArrayList<ArrayList<Vector2Int>> wallRegions = TileGenerationUtils.getRegions(ruleCellPositions, true);
+        TileRegions wallRegions = RegionLabeller.label(ruleCellPositions, true);
 
-        for(ArrayList<Vector2Int> wallRegion : wallRegions)
+        for (int region = 0; region < wallRegions.getRegionCount(); region++)
         {
-            if (wallRegion.size() < WALL_THRESHOLD_SIZE)
+            if (wallRegions.getSize(region) < WALL_THRESHOLD_SIZE)
             {
-                for(Vector2Int tile : wallRegion)
+                for (int i = 0; i < wallRegions.getSize(region); i++)
                 {
-                    ruleCellPositions[tile.y][tile.x] = false;
+                    int tile = wallRegions.getTile(region, i);
+                    ruleCellPositions.clear(wallRegions.getX(tile), wallRegions.getY(tile));
                 }
             }
         }
 
-        ArrayList<ArrayList<Vector2Int>> roomRegions = TileGenerationUtils.getRegions(ruleCellPositions, false);
+        TileRegions roomRegions = RegionLabeller.label(ruleCellPositions, false);
         ArrayList<CaveRoom> survivingRooms = new ArrayList<>();
 
-        for (ArrayList<Vector2Int> roomRegion : roomRegions)
+        for (int region = 0; region < roomRegions.getRegionCount(); region++)
         {
-            if (roomRegion.size() < ROOM_THRESHOLD_SIZE)
+            if (roomRegions.getSize(region) < ROOM_THRESHOLD_SIZE)
             {
-                for (Vector2Int tile : roomRegion)
+                for (int i = 0; i < roomRegions.getSize(region); i++)
                 {
-                    ruleCellPositions[tile.y][tile.x] = true;
+                    int tile = roomRegions.getTile(region, i);
+                    ruleCellPositions.set(roomRegions.getX(tile), roomRegions.getY(tile));
                 }
             } else
             {
-                survivingRooms.add(new CaveRoom(roomRegion, ruleCellPositions));
+                survivingRooms.add(new CaveRoom(roomRegions, region));
             }
         }
         if (survivingRooms.size() == 0) {
             System.out.println("Map was empty");
-            return;
+            return 0;
         }
         survivingRooms.sort(Comparator.naturalOrder());
         survivingRooms.get(0).isMainRoom = true;
         survivingRooms.get(0).isAccesibleFromMainRoom = true;
-        connectClosestRooms(survivingRooms, false);
-    }
-
-    private void connectClosestRooms(ArrayList<CaveRoom> allRooms, boolean forceAccessibilityFromMainRoom)
-    {
-        ArrayList<CaveRoom> roomListA = new ArrayList<>();
-        ArrayList<CaveRoom> roomListB = new ArrayList<>();
-
-        if (forceAccessibilityFromMainRoom)
-        {
-            for (CaveRoom room : allRooms)
-            {
-                if (room.isAccesibleFromMainRoom)
-                {
-                    roomListB.add(room);
-                } else
-                {
-                    roomListA.add(room);
-                }
-            }
-        } else
-        {
-            roomListA = allRooms;
-            roomListB = allRooms;
-        }
-
-        int bestDistance = 0;
-        Vector2Int bestTileA = new Vector2Int();
-        Vector2Int bestTileB = new Vector2Int();
-        CaveRoom bestRoomA = new CaveRoom();
-        CaveRoom bestRoomB = new CaveRoom();
-        boolean possibleConnectionFound = false;
-
-        for (CaveRoom roomA : roomListA)
-        {
-            if (!forceAccessibilityFromMainRoom)
-            {
-                possibleConnectionFound = false;
-                if (roomA.connectedRooms.size() > 0)
-                {
-                    continue;
-                }
-            }
-            for (CaveRoom roomB : roomListB)
-            {
-                if (roomA == roomB || roomA.IsConnected(roomB))
-                {
-                    continue;
-                }
-                for (int tileIndexA = 0; tileIndexA < roomA.edgeTiles.size(); tileIndexA++)
-                {
-                    for (int tileIndexB = 0; tileIndexB < roomB.edgeTiles.size(); tileIndexB++)
-                    {
-                        Vector2Int tileA = roomA.edgeTiles.get(tileIndexA);
-                        Vector2Int tileB = roomB.edgeTiles.get(tileIndexB);
-                        int distanceBetweenRooms = (int)(Math.pow(tileA.x - tileB.x, 2) + Math.pow(tileA.y - tileB.y, 2));
-
-                        if (distanceBetweenRooms < bestDistance || !possibleConnectionFound)
-                        {
-                            bestDistance = distanceBetweenRooms;
-                            possibleConnectionFound = true;
-                            bestTileA = tileA;
-                            bestTileB = tileB;
-                            bestRoomA = roomA;
-                            bestRoomB = roomB;
-
-                        }
-                    }
-                }
-            }
-            if (possibleConnectionFound && !forceAccessibilityFromMainRoom)
-            {
-                createPassage(bestRoomA, bestRoomB, bestTileA, bestTileB);
-            }
-        }
-        if (possibleConnectionFound && forceAccessibilityFromMainRoom)
-        {
-            createPassage(bestRoomA, bestRoomB, bestTileA, bestTileB);
-            connectClosestRooms(allRooms, true);
-        }
-        if (!forceAccessibilityFromMainRoom)
-        {
-            connectClosestRooms(allRooms, true);
+        boolean isLargeMap = mapWidth * mapHeight > CaveTilemapCreator.MAP_WIDTH * CaveTilemapCreator.MAP_HEIGHT;
+        RoomConnector connector = isLargeMap ? largeMapRoomConnector : roomConnector;
+        for (RoomConnector.RoomConnection connection : connector.connectRooms(survivingRooms, mapWidth, mapHeight)) {
+            createPassage(connection.tileA, connection.tileB);
         }
+        return survivingRooms.size();
     }
 
-    private void createPassage(CaveRoom roomA, CaveRoom roomB, Vector2Int tileA, Vector2Int tileB)
+    private void createPassage(Vector2Int tileA, Vector2Int tileB)
     {
-        CaveRoom.ConnectRooms(roomA, roomB);
-
-        ArrayList<Vector2Int> passagePositions = TileGenerationUtils.getLinePositions(tileA, tileB, PASSAGE_WIDTH);
-        for (Vector2Int c : passagePositions)
-        {
-            ruleCellPositions[c.y][c.x] = false;
-        }
-
+        TileGenerationUtils.stampLine(ruleCellPositions, tileA.x, tileA.y, tileB.x, tileB.y, PASSAGE_WIDTH, false);
     }
 
 
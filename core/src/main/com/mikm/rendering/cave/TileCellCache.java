@@ -0,0 +1,130 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+
+import java.util.HashMap;
+
+/**
+ * Hands out one shared cell per image, rotation and flips, and one shared tile per image, so autotiling a floor
+ * makes a handful of cells instead of one per tile. The cells can't be changed once they're made, since every layer
+ * that uses them would change too.
+ *
+ * There's one cache per recolor level, filled when the layer builder makes that level's cells. Recolor images never
+ * change while the game runs, so a level's cache is never emptied.
+ */
+public class TileCellCache {
+    private final HashMap<CellKey, TiledMapTileLayer.Cell> cells = new HashMap<>();
+    private final HashMap<TextureRegion, StaticTiledMapTile> tiles = new HashMap<>();
+    private long hits, misses;
+
+    public synchronized TiledMapTileLayer.Cell getCell(TextureRegion image, int rotation, boolean flipHorizontally, boolean flipVertically) {
+        CellKey key = new CellKey(image, rotation, flipHorizontally, flipVertically);
+        TiledMapTileLayer.Cell cell = cells.get(key);
+        if (cell != null) {
+            hits++;
+            return cell;
+        }
+        misses++;
+        StaticTiledMapTile tile = tiles.get(image);
+        if (tile == null) {
+            tile = new StaticTiledMapTile(image);
+            tiles.put(image, tile);
+        }
+        cell = new SharedCell(tile, rotation, flipHorizontally, flipVertically);
+        cells.put(key, cell);
+        return cell;
+    }
+
+    public TiledMapTileLayer.Cell getCell(TextureRegion image) {
+        return getCell(image, 0, false, false);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized float getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (float) hits / lookups;
+    }
+
+    //Cells and tiles held right now
+    public synchronized int getLiveObjectCount() {
+        return cells.size() + tiles.size();
+    }
+
+    private static class SharedCell extends TiledMapTileLayer.Cell {
+        SharedCell(TiledMapTile tile, int rotation, boolean flipHorizontally, boolean flipVertically) {
+            super.setTile(tile);
+            super.setRotation(rotation);
+            super.setFlipHorizontally(flipHorizontally);
+            super.setFlipVertically(flipVertically);
+        }
+
+        @Override
+        public TiledMapTileLayer.Cell setTile(TiledMapTile tile) {
+            throw new UnsupportedOperationException("Shared cells can't be changed");
+        }
+
+        @Override
+        public TiledMapTileLayer.Cell setRotation(int rotation) {
+            throw new UnsupportedOperationException("Shared cells can't be changed");
+        }
+
+        @Override
+        public TiledMapTileLayer.Cell setFlipHorizontally(boolean flipHorizontally) {
+            throw new UnsupportedOperationException("Shared cells can't be changed");
+        }
+
+        @Override
+        public TiledMapTileLayer.Cell setFlipVertically(boolean flipVertically) {
+            throw new UnsupportedOperationException("Shared cells can't be changed");
+        }
+    }
+
+    //Two cells draw the same when they show the same image the same way
+    static class CellKey {
+        private final TextureRegion image;
+        private final int rotation;
+        private final boolean flipHorizontally, flipVertically;
+
+        CellKey(TextureRegion image, int rotation, boolean flipHorizontally, boolean flipVertically) {
+            this.image = image;
+            this.rotation = rotation;
+            this.flipHorizontally = flipHorizontally;
+            this.flipVertically = flipVertically;
+        }
+
+        CellKey(TiledMapTileLayer.Cell cell) {
+            this(cell.getTile() == null ? null : cell.getTile().getTextureRegion(), cell.getRotation(),
+                    cell.getFlipHorizontally(), cell.getFlipVertically());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CellKey)) {
+                return false;
+            }
+            CellKey other = (CellKey) o;
+            //using == for address comparison, regions are shared between tiles
+            return image == other.image && rotation == other.rotation
+                    && flipHorizontally == other.flipHorizontally && flipVertically == other.flipVertically;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(image);
+            result = 31 * result + rotation;
+            result = 31 * result + (flipHorizontally ? 1 : 0);
+            result = 31 * result + (flipVertically ? 1 : 0);
+            return result;
+        }
+    }
+}
@@ -1,107 +1,64 @@
 package com.mikm.rendering.cave;
 
 import com.badlogic.gdx.math.MathUtils;
+import com.mikm.BitGrid;
 import com.mikm.Vector2Int;
+import com.mikm.collections.IntSet;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
-
-import static com.mikm.rendering.cave.CaveTilemapCreator.MAP_HEIGHT;
-import static com.mikm.rendering.cave.CaveTilemapCreator.MAP_WIDTH;
 
 public class TileGenerationUtils {
-    public static ArrayList<ArrayList<Vector2Int>> getRegions(boolean[][] tilePositions, boolean tileType)
-    {
-        ArrayList<ArrayList<Vector2Int>> regions = new ArrayList<>();
-        boolean[][] mapFlags = new boolean[MAP_HEIGHT][MAP_WIDTH];
-
-        for (int y = MAP_HEIGHT - 1; y >= 0; y--)
-        {
-            for (int x = 0; x < MAP_WIDTH; x++)
-            {
-                if (!mapFlags[y][x] && tilePositions[y][x] == tileType)
-                {
-                    ArrayList<Vector2Int> newRegion = getRegionTiles(y, x, tilePositions);
-                    regions.add(newRegion);
+    //Gets every tile of a line one at a time, so drawing one doesn't need a list of points
+    public interface TileVisitor {
+        void visit(int x, int y);
+    }
 
-                    for (Vector2Int tile : newRegion)
-                    {
-                        mapFlags[tile.y][tile.x] = true;
-                    }
-                }
+    //Repeats are checked in an IntSet so it doesn't get slower the longer the line is. Lines of width 0 aren't
+    //clipped, so points are packed as 16 bits each of x and y rather than by the map's width.
+    public static ArrayList<Vector2Int> getLinePositions(Vector2Int from, Vector2Int to, int lineWidth, int mapWidth, int mapHeight) {
+        ArrayList<Vector2Int> output = new ArrayList<>();
+        IntSet visited = new IntSet();
+        visitLinePositions(from.x, from.y, to.x, to.y, lineWidth, mapWidth, mapHeight, (x, y) -> {
+            if (visited.add((x << 16) ^ (y & 0xFFFF))) {
+                output.add(new Vector2Int(x, y));
             }
-        }
-        return regions;
+        });
+        return output;
     }
 
-    public static ArrayList<ArrayList<Vector2Int>> getRegions(Collection<Vector2Int> tiles, boolean tileType) {
-        boolean[][] tilePositions = new boolean[MAP_HEIGHT][MAP_WIDTH];
-        for (Vector2Int tile : tiles) {
-            tilePositions[tile.y][tile.x] = true;
-        }
-        return getRegions(tilePositions, tileType);
+    public static ArrayList<Vector2Int> getLinePositions(Vector2Int startingPoint, float angle, int lineLength, int lineWidth, int mapWidth, int mapHeight) {
+        Vector2Int lineEndPoint = new Vector2Int(startingPoint.x + (int)(MathUtils.cos(angle) * lineLength),
+                startingPoint.y + (int)(MathUtils.sin(angle) * lineLength));
+        return TileGenerationUtils.getLinePositions(startingPoint, lineEndPoint, lineWidth, mapWidth, mapHeight);
     }
 
-    private static ArrayList<Vector2Int> getRegionTiles(int startY, int startX, boolean[][] ruleCellPositions)
-    {
-        ArrayList<Vector2Int> tiles = new ArrayList<>();
-        boolean[][] mapFlags = new boolean[MAP_HEIGHT][MAP_WIDTH];
-        boolean tileType = ruleCellPositions[startY][startX];
-
-        LinkedList<Vector2Int> queue = new LinkedList<>();
-        queue.add(new Vector2Int(startX, startY));
-        mapFlags[startY][startX] = true;
-
-        while (queue.size() > 0)
-        {
-            Vector2Int tile = queue.remove();
-            tiles.add(tile);
-
-            for (int y = tile.y - 1; y <= tile.y + 1; y++)
-            {
-                for(int x = tile.x - 1; x <= tile.x + 1; x++)
-                {
-                    if (isInMapRange(y, x) && (y == tile.y || x == tile.x))
-                    {
-                        if (!mapFlags[y][x] && ruleCellPositions[y][x] == tileType)
-                        {
-                            mapFlags[y][x] = true;
-                            queue.add(new Vector2Int(x, y));
-                        }
-                    }
-                }
+    /**
+     * Sets every tile of a line to value, skipping the parts that fall off the grid.
+     */
+    public static void stampLine(BitGrid target, int fromX, int fromY, int toX, int toY, int lineWidth, boolean value) {
+        visitLinePositions(fromX, fromY, toX, toY, lineWidth, target.getWidth(), target.getHeight(), (x, y) -> {
+            if (target.isInBounds(x, y)) {
+                target.set(x, y, value);
             }
-        }
-        return tiles;
+        });
     }
 
-    public static ArrayList<Vector2Int> getLinePositions(Vector2Int from, Vector2Int to, int lineWidth) {
-        ArrayList<Vector2Int> output = new ArrayList<>();
-        ArrayList<Vector2Int> line = drawLine(from, to);
-        for (Vector2Int c : line)
-        {
-            drawCircle(output, c, lineWidth);
-        }
-        return output;
+    public static void visitLinePositions(int startX, int startY, float angle, int lineLength, int lineWidth, int mapWidth, int mapHeight, TileVisitor visitor) {
+        visitLinePositions(startX, startY, startX + (int)(MathUtils.cos(angle) * lineLength), startY + (int)(MathUtils.sin(angle) * lineLength),
+                lineWidth, mapWidth, mapHeight, visitor);
     }
 
-    public static ArrayList<Vector2Int> getLinePositions(Vector2Int startingPoint, float angle, int lineLength, int lineWidth) {
-        Vector2Int lineEndPoint = new Vector2Int(startingPoint.x + (int)(MathUtils.cos(angle) * lineLength),
-                startingPoint.y + (int)(MathUtils.sin(angle) * lineLength));
-        return TileGenerationUtils.getLinePositions(startingPoint, lineEndPoint, lineWidth);
-    }
-
-    private static ArrayList<Vector2Int> drawLine(Vector2Int from, Vector2Int to)
+    /**
+     * Visits the tiles of a lineWidth thick line in the order getLinePositions lists them. Tiles where the line's
+     * circles overlap are visited more than once. Lines of width 0 aren't clipped to the map.
+     */
+    public static void visitLinePositions(int fromX, int fromY, int toX, int toY, int lineWidth, int mapWidth, int mapHeight, TileVisitor visitor)
     {
-        ArrayList<Vector2Int> line = new ArrayList<>();
-
-        int x = from.x;
-        int y = from.y;
+        int x = fromX;
+        int y = fromY;
 
-        int dx = to.x - from.x;
-        int dy = to.y - from.y;
+        int dx = toX - fromX;
+        int dy = toY - fromY;
 
         boolean inverted = false;
         int step = sign(dx);
@@ -122,7 +79,7 @@ public class TileGenerationUtils {
         int gradientAccumulation = longest / 2;
         for (int i = 0; i < longest; i++)
         {
-            line.add(new Vector2Int(x, y));
+            visitCircle(x, y, lineWidth, mapWidth, mapHeight, visitor);
             if (inverted)
             {
                 y += step;
@@ -144,15 +101,14 @@ public class TileGenerationUtils {
                 gradientAccumulation -= longest;
             }
         }
-        return line;
     }
 
-    private static void drawCircle(List<Vector2Int> addTo, Vector2Int center, int r)
+    private static void visitCircle(int centerX, int centerY, int r, int mapWidth, int mapHeight, TileVisitor visitor)
     {
         if (r == 0) {
-            addTo.add(center);
-            addTo.add(new Vector2Int(center.x +1, center.y));
-            addTo.add(new Vector2Int(center.x, center.y+1));
+            visitor.visit(centerX, centerY);
+            visitor.visit(centerX + 1, centerY);
+            visitor.visit(centerX, centerY + 1);
             return;
         }
         for (int x = -r; x <= r; x++)
@@ -161,14 +117,11 @@ public class TileGenerationUtils {
             {
                 if (x*x + y*y <= r*r)
                 {
-                    int drawX = center.x + x;
-                    int drawY = center.y + y;
-                    if (isInMapRange(drawY, drawX))
+                    int drawX = centerX + x;
+                    int drawY = centerY + y;
+                    if (isInMapRange(drawY, drawX, mapWidth, mapHeight))
                     {
-                        Vector2Int point = new Vector2Int(drawX, drawY);
-                        if (!addTo.contains(point)) {
-                            addTo.add(point);
-                        }
+                        visitor.visit(drawX, drawY);
                     }
                 }
             }
@@ -180,8 +133,8 @@ public class TileGenerationUtils {
         return Integer.compare(num, 0);
     }
 
-    private static boolean isInMapRange(int y, int x)
+    private static boolean isInMapRange(int y, int x, int mapWidth, int mapHeight)
     {
-        return x >= 0 && x < MAP_WIDTH && y >= 0 && y < MAP_HEIGHT;
+        return x >= 0 && x < mapWidth && y >= 0 && y < mapHeight;
     }
 }
@@ -0,0 +1,103 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.collections.IntList;
+
+/**
+ * The 4-connected regions of one tile type, as found by {@link RegionLabeller}. Regions are numbered in the order
+ * their first tile is met scanning from the top row down and left to right. Tiles are packed as y * width + x.
+ */
+public class TileRegions {
+    final int width, height;
+    final int regionCount;
+    //Region of every tile in the map, -1 if the tile isn't of the labelled type
+    final int[] labels;
+    final int[] sizes;
+    final int[] minX, minY, maxX, maxY;
+    //Tiles of region i are tiles[tileStarts[i]] until tiles[tileStarts[i+1]], same for edge tiles
+    final int[] tileStarts, tiles;
+    final int[] edgeTileStarts, edgeTiles;
+
+    TileRegions(int width, int height, int regionCount, int[] labels, int[] sizes, int[] minX, int[] minY, int[] maxX, int[] maxY,
+                int[] tileStarts, int[] tiles, int[] edgeTileStarts, int[] edgeTiles) {
+        this.width = width;
+        this.height = height;
+        this.regionCount = regionCount;
+        this.labels = labels;
+        this.sizes = sizes;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.tileStarts = tileStarts;
+        this.tiles = tiles;
+        this.edgeTileStarts = edgeTileStarts;
+        this.edgeTiles = edgeTiles;
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    /**
+     * Returns the region the tile belongs to, or -1 if it isn't of the labelled type.
+     */
+    public int getLabel(int x, int y) {
+        return labels[y * width + x];
+    }
+
+    public int getSize(int region) {
+        return sizes[region];
+    }
+
+    public int getMinX(int region) {
+        return minX[region];
+    }
+
+    public int getMinY(int region) {
+        return minY[region];
+    }
+
+    public int getMaxX(int region) {
+        return maxX[region];
+    }
+
+    public int getMaxY(int region) {
+        return maxY[region];
+    }
+
+    public int getTile(int region, int i) {
+        return tiles[tileStarts[region] + i];
+    }
+
+    /**
+     * Tiles of the region that touch a tile of the other type on one of their 4 sides. Every edge tile is listed once.
+     */
+    public int getEdgeTileCount(int region) {
+        return edgeTileStarts[region + 1] - edgeTileStarts[region];
+    }
+
+    public int getEdgeTile(int region, int i) {
+        return edgeTiles[edgeTileStarts[region] + i];
+    }
+
+    public int getX(int packedTile) {
+        return packedTile % width;
+    }
+
+    public int getY(int packedTile) {
+        return packedTile / width;
+    }
+
+    //A copy of the region's tiles, packed the same way
+    public IntList getTiles(int region) {
+        IntList output = new IntList(sizes[region]);
+        output.addAll(tiles, tileStarts[region], tileStarts[region + 1]);
+        return output;
+    }
+
+    public IntList getEdgeTiles(int region) {
+        IntList output = new IntList(getEdgeTileCount(region));
+        output.addAll(edgeTiles, edgeTileStarts[region], edgeTileStarts[region + 1]);
+        return output;
+    }
+}
@@ -1,12 +1,38 @@
 package com.mikm.rendering.cave.ruleCell;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.mikm.Vector2Int;
+import com.mikm.rendering.cave.TileCellCache;
 
 public class RuleCell {
     public TextureRegion[][] spritesheet;
     public RuleCellMetadata metadata;
+    //The cell every neighbour mask autotiles to, null where no ruleset fits
+    private final TiledMapTileLayer.Cell[] cellsByMask = new TiledMapTileLayer.Cell[RuleCellLookupTable.MASK_COUNT];
+
     public RuleCell(TextureRegion[][] spritesheet, RuleCellMetadata metadata) {
+        this(spritesheet, metadata, new TileCellCache());
+    }
+
+    public RuleCell(TextureRegion[][] spritesheet, RuleCellMetadata metadata, TileCellCache cellCache) {
         this.spritesheet = spritesheet;
         this.metadata = metadata;
+        RuleCellLookupTable lookupTable = metadata.getLookupTable();
+        for (int mask = 0; mask < RuleCellLookupTable.MASK_COUNT; mask++) {
+            Vector2Int positionInImage = lookupTable.getPositionInImage(mask);
+            if (positionInImage != null) {
+                cellsByMask[mask] = createCell(cellCache, spritesheet[positionInImage.y][positionInImage.x], lookupTable.getTileRuleset(mask));
+            }
+        }
+    }
+
+    public TiledMapTileLayer.Cell getCell(int mask) {
+        return cellsByMask[mask];
+    }
+
+    private TiledMapTileLayer.Cell createCell(TileCellCache cellCache, TextureRegion textureRegion, TileRuleset tileRuleset) {
+        //Align our rotation numbers with libgdx's by subtracting it from 4
+        return cellCache.getCell(textureRegion, 4 - tileRuleset.rotation, tileRuleset.flippedHorizontally, tileRuleset.flippedVertically);
     }
 }
@@ -0,0 +1,67 @@
+package com.mikm.rendering.cave.ruleCell;
+
+import com.mikm.Vector2Int;
+
+import java.util.Map;
+
+/**
+ * A {@link RuleCellMetadata} compiled into one entry per combination of the 8 neighbours, so autotiling a tile is
+ * one mask and one array lookup instead of trying every ruleset. Each entry is the first ruleset that fits, with
+ * positions checked in the order the metadata lists them, and each position's rotated or flipped rulesets in the
+ * order they were made. Masks nothing fits are left null.
+ */
+public class RuleCellLookupTable {
+    public static final int MASK_COUNT = 256;
+
+    private final Vector2Int[] positionsInImage = new Vector2Int[MASK_COUNT];
+    private final TileRuleset[] tileRulesets = new TileRuleset[MASK_COUNT];
+
+    RuleCellLookupTable(RuleCellMetadata metadata) {
+        for (int mask = 0; mask < MASK_COUNT; mask++) {
+            TileRuleset comparisons = createComparisons(mask);
+            findFirstFit:
+            for (Map.Entry<Vector2Int, TileRuleset[]> entry : metadata.tilesMetadata.entrySet()) {
+                for (TileRuleset tileRuleset : entry.getValue()) {
+                    if (comparisons.fits(tileRuleset)) {
+                        positionsInImage[mask] = entry.getKey();
+                        tileRulesets[mask] = tileRuleset;
+                        break findFirstFit;
+                    }
+                }
+            }
+        }
+    }
+
+    //Which bit of the mask is set when the neighbour dx, dy away is full. dy goes up, like the tile layers.
+    public static int getNeighbourBit(int dx, int dy) {
+        int index = (dy + 1) * 3 + dx + 1;
+        //The middle tile has no bit
+        if (index > 4) {
+            index--;
+        }
+        return 1 << index;
+    }
+
+    public Vector2Int getPositionInImage(int mask) {
+        return positionsInImage[mask];
+    }
+
+    public TileRuleset getTileRuleset(int mask) {
+        return tileRulesets[mask];
+    }
+
+    static TileRuleset createComparisons(int mask) {
+        CellPresence[][] comparisons = new CellPresence[3][3];
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (dx == 0 && dy == 0) {
+                    comparisons[1][1] = CellPresence.Either;
+                } else {
+                    boolean full = (mask & getNeighbourBit(dx, dy)) != 0;
+                    comparisons[dy + 1][dx + 1] = full ? CellPresence.Full : CellPresence.Empty;
+                }
+            }
+        }
+        return new TileRuleset(comparisons);
+    }
+}
@@ -5,14 +5,25 @@ package com.mikm.rendering.cave.ruleCell;
 import com.mikm.Vector2Int;
 
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class RuleCellMetadata {
-    HashMap<Vector2Int, TileRuleset[]> tilesMetadata = new HashMap<>();
+    //In the order they were added, which is the order rulesets are tried in
+    LinkedHashMap<Vector2Int, TileRuleset[]> tilesMetadata = new LinkedHashMap<>();
+    private RuleCellLookupTable lookupTable;
 
-    public void addTileRulesetsForPosition(Vector2Int position, TileRuleset[] tileRulesets) {
+    public synchronized void addTileRulesetsForPosition(Vector2Int position, TileRuleset[] tileRulesets) {
         tilesMetadata.put(position, tileRulesets);
+        lookupTable = null;
+    }
+
+    //Compiled the first time it's needed. Synchronized since the prefetch thread autotiles too.
+    public synchronized RuleCellLookupTable getLookupTable() {
+        if (lookupTable == null) {
+            lookupTable = new RuleCellLookupTable(this);
+        }
+        return lookupTable;
     }
 
     public void prettyPrint() {
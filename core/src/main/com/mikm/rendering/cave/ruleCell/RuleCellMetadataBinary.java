@@ -0,0 +1,109 @@
+package com.mikm.rendering.cave.ruleCell;
+
+import com.mikm.Vector2Int;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * The precompiled form of a .meta.txt file, made at build time by the tools module so the game doesn't parse text
+ * at startup. Rotated and flipped rulesets are stored already made, in the order the text reader makes them.
+ *
+ * Layout, big endian: the magic number, the position count, then for every position its x and y as shorts, its
+ * ruleset count as a byte, and for every ruleset the 9 cells packed 2 bits each into an int, the rotation as a byte
+ * and the flips as a byte.
+ */
+public class RuleCellMetadataBinary {
+    private static final int MAGIC = 0x52434D31;
+    private static final int FLIPPED_HORIZONTALLY = 1, FLIPPED_VERTICALLY = 2;
+
+    //images/caveTiles.meta.txt compiles to images/caveTiles.meta.bin
+    public static String getCompiledPath(String textPath) {
+        if (textPath.endsWith(".txt")) {
+            return textPath.substring(0, textPath.length() - ".txt".length()) + ".bin";
+        }
+        return textPath + ".bin";
+    }
+
+    public static byte[] write(RuleCellMetadata metadata) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeShort(metadata.tilesMetadata.size());
+            for (Map.Entry<Vector2Int, TileRuleset[]> entry : metadata.tilesMetadata.entrySet()) {
+                output.writeShort(entry.getKey().x);
+                output.writeShort(entry.getKey().y);
+                output.writeByte(entry.getValue().length);
+                for (TileRuleset tileRuleset : entry.getValue()) {
+                    output.writeInt(packCells(tileRuleset.array));
+                    output.writeByte(tileRuleset.rotation);
+                    output.writeByte((tileRuleset.flippedHorizontally ? FLIPPED_HORIZONTALLY : 0)
+                            | (tileRuleset.flippedVertically ? FLIPPED_VERTICALLY : 0));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't write rule cell metadata", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static RuleCellMetadata read(byte[] bytes) {
+        ByteBuffer input = ByteBuffer.wrap(bytes);
+        try {
+            if (input.getInt() != MAGIC) {
+                throw new RuntimeException("Not a compiled rule cell metadata file");
+            }
+            RuleCellMetadata metadata = new RuleCellMetadata();
+            final int positionCount = input.getShort();
+            for (int i = 0; i < positionCount; i++) {
+                Vector2Int position = new Vector2Int(input.getShort(), input.getShort());
+                TileRuleset[] tileRulesets = new TileRuleset[input.get()];
+                for (int j = 0; j < tileRulesets.length; j++) {
+                    TileRuleset tileRuleset = new TileRuleset(unpackCells(input.getInt()));
+                    tileRuleset.rotation = input.get();
+                    int flips = input.get();
+                    tileRuleset.flippedHorizontally = (flips & FLIPPED_HORIZONTALLY) != 0;
+                    tileRuleset.flippedVertically = (flips & FLIPPED_VERTICALLY) != 0;
+                    tileRulesets[j] = tileRuleset;
+                }
+                metadata.addTileRulesetsForPosition(position, tileRulesets);
+            }
+            if (input.hasRemaining()) {
+                throw new RuntimeException("Compiled rule cell metadata has " + input.remaining() + " bytes too many");
+            }
+            metadata.getLookupTable();
+            return metadata;
+        } catch (BufferUnderflowException e) {
+            throw new RuntimeException("Compiled rule cell metadata ended too early", e);
+        }
+    }
+
+    private static int packCells(CellPresence[][] cells) {
+        int packed = 0;
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                packed |= cells[y][x].ordinal() << ((y * 3 + x) * 2);
+            }
+        }
+        return packed;
+    }
+
+    private static CellPresence[][] unpackCells(int packed) {
+        CellPresence[] presences = CellPresence.values();
+        CellPresence[][] cells = new CellPresence[3][3];
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                int ordinal = (packed >> ((y * 3 + x) * 2)) & 3;
+                if (ordinal >= presences.length) {
+                    throw new RuntimeException("Compiled rule cell metadata has an unknown cell");
+                }
+                cells[y][x] = presences[ordinal];
+            }
+        }
+        return cells;
+    }
+}
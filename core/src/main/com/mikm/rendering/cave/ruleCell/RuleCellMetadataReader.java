@@ -7,15 +7,28 @@ import com.mikm.Vector2Int;
 public class RuleCellMetadataReader {
     private RuleCellMetadata metadata;
 
-    public RuleCellMetadata createMetadataFromFile(String directory) {
-        String rawMetadata = getTextFromFile(directory);
-        return readMetadataString(rawMetadata);
+    /**
+     * Reads the compiled .meta.bin next to a .meta.txt, which the build makes, unless the text file has been edited
+     * since. The text is read when there's no compiled file, so mods can change the text without the build.
+     */
+    public RuleCellMetadata loadMetadata(String directory) {
+        FileHandle textHandle = Gdx.files.local(directory);
+        FileHandle compiledHandle = Gdx.files.local(RuleCellMetadataBinary.getCompiledPath(directory));
+        if (compiledHandle.exists() && compiledHandle.lastModified() >= textHandle.lastModified()) {
+            return RuleCellMetadataBinary.read(compiledHandle.readBytes());
+        }
+        return createMetadataFromFile(directory);
     }
 
-    private String getTextFromFile(String directory) {
+    public RuleCellMetadata createMetadataFromFile(String directory) {
         FileHandle handle = Gdx.files.local(directory);
+        return createMetadataFromString(handle.readString());
+    }
+
+    //For reading metadata without Gdx.files, like in the tools
+    public RuleCellMetadata createMetadataFromString(String text) {
         String newLineOrSpaceRegex = "[\\r\\n ]+";
-        return handle.readString().replaceAll(newLineOrSpaceRegex, "");
+        return readMetadataString(text.replaceAll(newLineOrSpaceRegex, ""));
     }
 
     private RuleCellMetadata readMetadataString(String rawMetadata) {
@@ -24,39 +37,32 @@ public class RuleCellMetadataReader {
         TileRuleset[] tileRulesets;
         for (int i = 0; i < rawMetadata.length(); i++) {
             if (rawMetadata.charAt(i) == '[') {
-                tilePosition = getNextTwoNumbers(i, rawMetadata);
-                i = iPositionAfterRightBracket(i, rawMetadata);
+                int rightBracket = rawMetadata.indexOf(']', i);
+                if (rightBracket == -1) {
+                    throw new RuntimeException("Rule Cell Reader found a \"[\" with no \"]\" after it.");
+                }
+                tilePosition = readPosition(rawMetadata.substring(i + 1, rightBracket));
+                i = rightBracket + 1;
                 tileRulesets = readTileRuleset(i, rawMetadata);
                 metadata.addTileRulesetsForPosition(tilePosition, tileRulesets);
             }
         }
+        metadata.getLookupTable();
         return metadata;
     }
 
-    private Vector2Int getNextTwoNumbers(int i, String rawMetadata) {
-        String firstNumberString;
-        String secondNumberString;
-
-        boolean firstNumberIsOneDigit = (rawMetadata.charAt(i+2) == ',');
-        if (firstNumberIsOneDigit) {
-            firstNumberString = String.valueOf(rawMetadata.charAt(i+1));
-        } else {
-            firstNumberString = rawMetadata.substring(i+1, i+2+1);
-            System.out.println(firstNumberString);
-            //make i act as if number was one digit
-            i++;
+    private Vector2Int readPosition(String numbers) {
+        String[] splitNumbers = numbers.split(",");
+        if (splitNumbers.length != 2) {
+            throw new RuntimeException("Couldn't read Rule cell tile position \"" + numbers + "\"");
         }
-
-        boolean secondNumberIsOneDigit = (rawMetadata.charAt(i+4) == ']');
-        if (secondNumberIsOneDigit) {
-            secondNumberString = String.valueOf(rawMetadata.charAt(i+3));
-        } else {
-            secondNumberString = rawMetadata.substring(i+3, i+4+1);
-        }
-        return numberStringToIntegers(firstNumberString, secondNumberString);
+        return numberStringToIntegers(splitNumbers[0], splitNumbers[1]);
     }
 
     private TileRuleset[] readTileRuleset(int i, String rawMetadata) {
+        if (i >= rawMetadata.length()) {
+            throw new RuntimeException("Rule Cell Reader found a position with no ruleset after it.");
+        }
         char charAtI = rawMetadata.charAt(i);
         if (charAtI == 'R' || charAtI == 'H' || charAtI == 'V') {
             return rotatedOrFlippedRulesets(i, rawMetadata);
@@ -66,17 +72,6 @@ public class RuleCellMetadataReader {
         return singleTileRuleset;
     }
 
-    private int iPositionAfterRightBracket(int i, String rawMetadata) {
-        if (i+5 > rawMetadata.length()-1) {
-            throw new RuntimeException("Rule Cell Reader tried to read position after \"]\" character but went out of bounds.");
-        }
-        boolean firstNumberIsOneDigit = (rawMetadata.charAt(i+2) == ',');
-        boolean secondNumberIsOneDigit = (rawMetadata.charAt(i+4) == ']');
-        int totalDigits = (firstNumberIsOneDigit ? 1 : 2) + (secondNumberIsOneDigit ? 1 : 2);
-
-        return i + 3 + totalDigits;
-    }
-
     private Vector2Int numberStringToIntegers(String first, String second) {
         Vector2Int output = new Vector2Int();
         try {
@@ -108,6 +103,9 @@ public class RuleCellMetadataReader {
     }
 
     private TileRuleset getTileRulesetFromRawData(int i, String rawMetadata) {
+        if (i + 9 > rawMetadata.length()) {
+            throw new RuntimeException("Rule Cell Reader ran out of characters partway through a ruleset.");
+        }
         CellPresence[][] rules = new CellPresence[3][3];
         int totalIteration = 0;
         for (int y = 2; y >= 0; y--) {
@@ -1,14 +1,15 @@
 package com.mikm.rendering.cave.ruleCell;
 
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
 import com.mikm.Vector2Int;
+import com.mikm.rendering.cave.ChunkedTileLayer;
+import com.mikm.rendering.cave.DirtyTileSet;
 
-import java.util.Map;
+import java.util.List;
 
-public class RuleCellTiledMapTileLayer extends TiledMapTileLayer {
+public class RuleCellTiledMapTileLayer extends ChunkedTileLayer {
     public RuleCell[][] ruleCells;
+    //Made the first time a tile changes after the layer is built
+    private DirtyTileSet dirtyTiles;
 
     public RuleCellTiledMapTileLayer(int width, int height, int tileWidth, int tileHeight) {
         super(width, height, tileWidth, tileHeight);
@@ -19,6 +20,50 @@ public class RuleCellTiledMapTileLayer extends TiledMapTileLayer {
         ruleCells[y][x] = ruleCell;
     }
 
+    /**
+     * Changes one tile of an already tiled layer. The tile and its neighbours are redrawn the next time
+     * refreshDirtyCells() is called, so changing many tiles in a tick only redraws each tile once. A null ruleCell
+     * empties the tile.
+     */
+    public void setRuleCellAndRefresh(int x, int y, RuleCell ruleCell) {
+        if (ruleCells[y][x] == ruleCell) {
+            return;
+        }
+        ruleCells[y][x] = ruleCell;
+        if (dirtyTiles == null) {
+            dirtyTiles = new DirtyTileSet(getWidth(), getHeight());
+        }
+        dirtyTiles.markNeighbourhood(x, y);
+    }
+
+    public void setRuleCellsAndRefresh(List<Vector2Int> positions, RuleCell ruleCell) {
+        for (Vector2Int position : positions) {
+            setRuleCellAndRefresh(position.x, position.y, ruleCell);
+        }
+    }
+
+    public boolean hasDirtyCells() {
+        return dirtyTiles != null && !dirtyTiles.isEmpty();
+    }
+
+    //Redraws every tile next to a change since the last refresh. Returns how many were redrawn.
+    public int refreshDirtyCells() {
+        if (!hasDirtyCells()) {
+            return 0;
+        }
+        final int refreshed = dirtyTiles.size();
+        for (int i = 0; i < refreshed; i++) {
+            int x = dirtyTiles.getX(i), y = dirtyTiles.getY(i);
+            if (ruleCells[y][x] == null) {
+                super.setCell(x, y, null);
+            } else {
+                super.setCell(x, y, ruleCells[y][x].getCell(getNeighbourMaskAt(y, x)));
+            }
+        }
+        dirtyTiles.clear();
+        return refreshed;
+    }
+
     //Will not handle cases where one ruleset has 'either' and the other has a more specific rule, and the ruleset is otherwise identical.
     public void updateRuleCells() {
         for (int y = getHeight() - 1; y >= 0; y--) {
@@ -31,62 +76,29 @@ public class RuleCellTiledMapTileLayer extends TiledMapTileLayer {
     }
 
     private void updateCellAt(int y, int x) {
-        RuleCellMetadata metadata = ruleCells[y][x].metadata;
-        TileRuleset currentComparisons = createCurrentComparisonsAt(y, x);
-
-        for (Map.Entry<Vector2Int, TileRuleset[]> entry : metadata.tilesMetadata.entrySet()) {
-            Vector2Int positionInImage = entry.getKey();
-            TileRuleset[] tileRulesets = entry.getValue();
-            for (TileRuleset tileRuleset : tileRulesets) {
-                if (currentComparisons.fits(tileRuleset)) {
-                    setCellAtXYtoMatchingImage(y, x, positionInImage, tileRuleset);
-                    return;
-                }
-            }
+        Cell cell = ruleCells[y][x].getCell(getNeighbourMaskAt(y, x));
+        if (cell != null) {
+            //libgdx tileMapRenderer uses mathematical coordinates instead of java array coordinates
+            super.setCell(x, y, cell);
         }
     }
 
-    private TileRuleset createCurrentComparisonsAt(int y, int x) {
-        CellPresence[][] outputArray = new CellPresence[3][3];
+    //Out of bounds neighbours count as full
+    private int getNeighbourMaskAt(int y, int x) {
+        RuleCell ruleCell = ruleCells[y][x];
+        int mask = 0;
         for (int i = -1; i <= 1; i++) {
             for (int j = -1; j <= 1; j++) {
                 if (i == 0 && j == 0) {
-                    outputArray[i+1][j+1] = CellPresence.Either;
                     continue;
                 }
                 boolean outOfBounds = (x+j < 0 || x+j > getWidth() - 1 || y+i < 0 || y+i > getHeight() - 1);
-                if (outOfBounds) {
-                    outputArray[i+1][j+1] = CellPresence.Full;
-                    continue;
-                }
                 //using == for address comparison
-                if (ruleCells[y + i][x + j] == ruleCells[y][x]) {
-                    outputArray[i+1][j+1] = CellPresence.Full;
-                } else {
-                    outputArray[i+1][j+1] = CellPresence.Empty;
+                if (outOfBounds || ruleCells[y + i][x + j] == ruleCell) {
+                    mask |= RuleCellLookupTable.getNeighbourBit(j, i);
                 }
             }
         }
-        return new TileRuleset(outputArray);
-    }
-
-    private void setCellAtXYtoMatchingImage(int y, int x, Vector2Int positionInImage, TileRuleset tileRuleset) {
-        TextureRegion textureRegion = ruleCells[y][x].spritesheet[positionInImage.y][positionInImage.x];
-
-        StaticTiledMapTile staticTiledMapTile = new StaticTiledMapTile(textureRegion);
-        Cell staticCell = createStaticCell(tileRuleset);
-
-        staticCell.setTile(staticTiledMapTile);
-        //libgdx tileMapRenderer uses mathematical coordinates instead of java array coordinates
-        super.setCell(x, y, staticCell);
-    }
-
-    private Cell createStaticCell(TileRuleset tileRuleset) {
-        Cell staticCell = new Cell();
-        //Align our rotation numbers with libgdx's by subtracting it from 4
-        staticCell.setRotation(4 - tileRuleset.rotation);
-        staticCell.setFlipHorizontally(tileRuleset.flippedHorizontally);
-        staticCell.setFlipVertically(tileRuleset.flippedVertically);
-        return staticCell;
+        return mask;
     }
 }
@@ -3,25 +3,22 @@ package com.mikm.rendering.screens;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
-import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.mikm.Assets;
 import com.mikm.debug.DebugRenderer;
 import com.mikm.entities.player.Player;
 import com.mikm.entities.player.weapons.WeaponInstances;
 import com.mikm.input.InputRaw;
 import com.mikm.rendering.Camera;
+import com.mikm.rendering.SpriteShader;
 import com.mikm.serialization.Serializer;
 
 public class Application extends Game {
 	public static final int TILE_WIDTH = 16, TILE_HEIGHT = 16;
 	public static final boolean PLAY_MUSIC = true;
+	public static final boolean LOG_FLOOR_GENERATION = false;
 
 	public static SpriteBatch batch;
-	//TODO move this out of this class
-	public static ShaderProgram fillColorShader;
 
 	public static GameScreen currentScreen;
 	public static CaveScreen caveScreen;
@@ -38,10 +35,7 @@ public class Application extends Game {
 	public void create() {
 		batch = new SpriteBatch();
 
-		fillColorShader = new ShaderProgram(batch.getShader().getVertexShaderSource(), Gdx.files.internal("images/fillColor.frag").readString());
-		if (!fillColorShader.isCompiled()){
-			throw new RuntimeException(fillColorShader.getLog());
-		}
+		SpriteShader.setUp(batch);
 
 		createPlayerAndCaveScreen();
 		townScreen = new TownScreen(this);
@@ -80,7 +74,7 @@ public class Application extends Game {
 		caveScreen.dispose();
 		townScreen.dispose();
 		slimeBossRoomScreen.dispose();
-		fillColorShader.dispose();
+		SpriteShader.dispose();
 		Assets.getInstance().dispose();
 		DebugRenderer.getInstance().dispose();
 		Serializer.getInstance().dispose();
@@ -90,12 +84,6 @@ public class Application extends Game {
 		timestop = true;
 	}
 
-	public static void setFillColorShader(Batch batch, Color color) {
-		batch.setShader(fillColorShader);
-		fillColorShader.bind();
-		fillColorShader.setUniformf("u_color", color);
-	}
-
 	public void setGameScreen(GameScreen gameScreen) {
 		if (currentScreen != null && currentScreen.song != null) {
 			currentScreen.stopSong();
@@ -3,15 +3,23 @@ package com.mikm.rendering.screens;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.mikm.Assets;
+import com.mikm.BitGrid;
+import com.mikm.RandomStream;
+import com.mikm.RandomUtils;
 import com.mikm.Vector2Int;
+import com.mikm.entities.Entity;
+import com.mikm.entities.InanimateEntity;
 import com.mikm.entities.Rope;
 import com.mikm.rendering.Camera;
+import com.mikm.rendering.cave.CachedTileMapRenderer;
 import com.mikm.rendering.cave.CaveEntitySpawner;
+import com.mikm.rendering.cave.CaveFloorLayout;
 import com.mikm.rendering.cave.CaveFloorMemento;
+import com.mikm.rendering.cave.CaveFloorPrefetcher;
 import com.mikm.rendering.cave.CaveTilemapCreator;
+import com.mikm.rendering.cave.FloorSwapReport;
 
 import java.util.ArrayList;
 
@@ -31,24 +39,35 @@ public class CaveScreen extends GameScreen {
 
     public CaveTilemapCreator caveTilemapCreator;
     private CaveEntitySpawner spawner;
+    private CaveFloorPrefetcher prefetcher;
     //5,10,15 are always null.
     public CaveFloorMemento[] caveFloorMementos = new CaveFloorMemento[15];
+    //Every floor's seed comes from this, set it before descending to replay the same caves
+    public long runSeed = RandomUtils.RUNS.getLong();
+    //GL thread time spent on the last floor change
+    public FloorSwapReport lastFloorSwap;
 
     CaveScreen(Application application) {
         super(application);
         createImages();
         createMusic(Assets.getInstance().getAsset("sound/caveTheme.mp3", Music.class));
         createTiledMapRenderer();
+        spawner = new CaveEntitySpawner(this);
+        prefetcher = new CaveFloorPrefetcher(caveTilemapCreator);
+        prefetchNeighbouringFloors();
     }
 
     public void decreaseFloor() {
+        prefetcher.cancelAllExcept(floor - 1);
         entities.doAfterRender(() -> {
             floor--;
             handleScreenChange();
             if (floor % 5 == 0) {
+                prefetchNeighbouringFloors();
                 return;
             }
             loadFloor(floor);
+            prefetchNeighbouringFloors();
         });
     }
 
@@ -57,20 +76,33 @@ public class CaveScreen extends GameScreen {
             floor++;
             handleScreenChange();
             if (floor % 5 == 0) {
+                prefetchNeighbouringFloors();
                 return;
             }
-            if (caveFloorMementos[floor - 1] == null) {
-                generateNewFloor();
-                Vector2Int position = putPlayerInOpenTile();
-                inanimateEntities.addInstantly(new Rope(position.x+8, position.y+8));
-                CaveFloorMemento memento = CaveFloorMemento.create(position, caveTilemapCreator.ruleCellPositions, caveTilemapCreator.holePositions, inanimateEntities, entities);
-                caveFloorMementos[floor - 1] = memento;
-            } else {
-                loadFloor(floor);
-            }
+            loadFloor(floor);
+            prefetchNeighbouringFloors();
         });
     }
 
+    private void prefetchNeighbouringFloors() {
+        prefetchFloor(floor + 1);
+        prefetchFloor(floor - 1);
+    }
+
+    private void prefetchFloor(int floor) {
+        boolean isCaveFloor = floor >= 1 && floor % 5 != 0 && floor - 1 < caveFloorMementos.length;
+        if (isCaveFloor) {
+            prefetcher.prefetch(floor, getFloorSeed(floor));
+        }
+    }
+
+    private long getFloorSeed(int floor) {
+        if (caveFloorMementos[floor - 1] != null) {
+            return caveFloorMementos[floor - 1].seed;
+        }
+        return RandomStream.deriveSeed(runSeed, floor);
+    }
+
     public Vector2Int putPlayerInOpenTile() {
         Vector2Int playerPosition = caveTilemapCreator.getSpawnablePosition();
         Application.player.x = playerPosition.x;
@@ -87,17 +119,25 @@ public class CaveScreen extends GameScreen {
         } else {
             drawNoUpdate();
         }
+        caveTilemapCreator.refreshDirtyTiles();
     }
 
     @Override
     public void dispose() {
         super.dispose();
+        prefetcher.dispose();
+    }
+
+    @Override
+    public void removeEntity(Entity entity) {
+        super.removeEntity(entity);
+        spawner.onEntityRemoved(entity);
     }
 
-    private void generateNewFloor() {
-        caveTilemapCreator.generateNewMap();
-        spawner= new CaveEntitySpawner(this);
-        spawner.generateNewEnemies(caveTilemapCreator);
+    @Override
+    public void removeInanimateEntity(InanimateEntity entity) {
+        super.removeInanimateEntity(entity);
+        spawner.onInanimateEntityRemoved(entity);
     }
 
     private void loadFloor(int floor) {
@@ -107,10 +147,32 @@ public class CaveScreen extends GameScreen {
             Application.player.y = 100;
             return;
         }
-        CaveFloorMemento currentMemento = caveFloorMementos[floor-1];
-        activate(currentMemento);
-        Application.player.x = currentMemento.spawnPosition.x;
-        Application.player.y = currentMemento.spawnPosition.y;
+        if (caveFloorMementos[floor - 1] == null) {
+            caveFloorMementos[floor - 1] = new CaveFloorMemento(getFloorSeed(floor));
+        }
+        CaveFloorMemento memento = caveFloorMementos[floor - 1];
+        //The floor being left keeps its layers, so coming straight back doesn't regenerate it
+        if (caveTilemapCreator.getActiveLayout() != null) {
+            prefetcher.retain(caveTilemapCreator.getActiveLayout());
+        }
+        long start = System.nanoTime();
+        CaveFloorLayout layout = prefetcher.take(floor, memento.seed);
+        long waited = System.nanoTime();
+        memento.applyTo(layout);
+        caveTilemapCreator.activate(layout);
+        long swapped = System.nanoTime();
+        spawner.spawnEntities(layout, memento);
+        lastFloorSwap = new FloorSwapReport(floor, prefetcher.getLastTakeSource(), waited - start, swapped - waited, System.nanoTime() - swapped);
+        if (Application.LOG_FLOOR_GENERATION) {
+            if (lastFloorSwap.source != CaveFloorPrefetcher.Source.RETAINED) {
+                System.out.println(layout.generationReport);
+            }
+            System.out.println(lastFloorSwap);
+            System.out.printf("Cell cache: %.0f%% hits, %d live cells and tiles%n",
+                    caveTilemapCreator.getCellCacheHitRate() * 100, caveTilemapCreator.getLiveCellCacheObjectCount());
+        }
+        Vector2Int position = putPlayerInOpenTile();
+        inanimateEntities.addInstantly(new Rope(position.x+8, position.y+8));
     }
 
     private void handleScreenChange() {
@@ -123,11 +185,6 @@ public class CaveScreen extends GameScreen {
         }
     }
 
-    private void activate(CaveFloorMemento memento) {
-        caveTilemapCreator.activate(memento);
-        spawner.activate(memento);
-    }
-
     private void createImages() {
         caveTilesetRecolors.add(Assets.getInstance().getSplitTextureRegion("caveTiles"));
         caveTilesetRecolors.add(Assets.getInstance().getSplitTextureRegion("caveTilesLevel5"));
@@ -140,20 +197,25 @@ public class CaveScreen extends GameScreen {
         caveTilemapCreator = new CaveTilemapCreator(this);
         tiledMap = caveTilemapCreator.tiledMap;
 
-        tiledMapRenderer = new OrthogonalTiledMapRenderer(tiledMap, 1);
+        //Cave layers don't change once built, so they're drawn from cached chunks
+        tiledMapRenderer = new CachedTileMapRenderer(tiledMap, Application.batch);
         tiledMapRenderer.setView(Camera.orthographicCamera);
     }
 
     @Override
-    public boolean[][] isCollidableGrid() {
+    public BitGrid isCollidableGrid() {
         return caveTilemapCreator.getIsCollidableGrid();
     }
 
-    public boolean[][] getHolePositionsToCheck() {
+    public BitGrid getHolePositionsToCheck() {
         return caveTilemapCreator.holePositionsToCheckGrid;
     }
 
     public static int getRecolorLevel() {
+        return getRecolorLevel(floor);
+    }
+
+    public static int getRecolorLevel(int floor) {
         return floor/5;
     }
 }
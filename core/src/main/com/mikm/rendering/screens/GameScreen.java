@@ -6,12 +6,15 @@ import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
+import com.mikm.BitGrid;
 import com.mikm.debug.DebugRenderer;
 import com.mikm.entities.Entity;
 import com.mikm.entities.InanimateEntity;
 import com.mikm.entities.RemovableArray;
 import com.mikm.entities.Shadow;
 import com.mikm.rendering.Camera;
+import com.mikm.rendering.RenderQueue;
+import com.mikm.rendering.ViewCuller;
 
 public abstract class GameScreen extends ScreenAdapter {
     public static ScreenViewport viewport;
@@ -22,6 +25,12 @@ public abstract class GameScreen extends ScreenAdapter {
 
     public RemovableArray<Entity> entities;
     public final RemovableArray<InanimateEntity> inanimateEntities = new RemovableArray<>();
+    //Drawn and culled counts for the last frame are on here
+    public final ViewCuller viewCuller = new ViewCuller();
+    //Entities draw into this, and it draws them to the batch sorted by layer, depth and texture
+    public final RenderQueue renderQueue = new RenderQueue(Application.batch);
+    //Draw calls the batch made last frame, the tile cache's aren't counted
+    public int lastFrameRenderCalls;
 
     public OrthogonalTiledMapRenderer tiledMapRenderer;
     public TiledMap tiledMap;
@@ -33,7 +42,7 @@ public abstract class GameScreen extends ScreenAdapter {
         viewport = new ScreenViewport(Camera.orthographicCamera);
         viewport.setUnitsPerPixel(Camera.VIEWPORT_ZOOM);
 
-        entities = new RemovableArray<>();
+        entities = new RemovableArray<>(true);
         entities.add(Application.player);
         addPlayerShadow();
     }
@@ -44,7 +53,7 @@ public abstract class GameScreen extends ScreenAdapter {
         inanimateEntities.add(playerShadow);
     }
 
-    public abstract boolean[][] isCollidableGrid();
+    public abstract BitGrid isCollidableGrid();
 
     @Override
     public void render(float delta) {
@@ -52,20 +61,26 @@ public abstract class GameScreen extends ScreenAdapter {
         Application.batch.begin();
         Application.batch.setProjectionMatrix(Camera.orthographicCamera.combined);
         tiledMapRenderer.setView(Camera.orthographicCamera);
+        viewCuller.setView(Camera.orthographicCamera);
         drawAssets();
         DebugRenderer.getInstance().update();
         Camera.renderLighting(Application.batch);
         Camera.updateOrthographicCamera();
         Application.batch.end();
+        lastFrameRenderCalls = Application.batch.renderCalls;
     }
 
     public void drawNoUpdate() {
         Application.batch.begin();
         tiledMapRenderer.render();
-        inanimateEntities.draw(Application.batch);
-        entities.draw(Application.batch);
+        viewCuller.setView(Camera.orthographicCamera);
+        renderQueue.begin();
+        inanimateEntities.draw(renderQueue, viewCuller);
+        entities.draw(renderQueue, viewCuller);
+        renderQueue.end();
         Camera.renderLighting(Application.batch);
         Application.batch.end();
+        lastFrameRenderCalls = Application.batch.renderCalls;
     }
 
     public void playSong() {
@@ -87,8 +102,10 @@ public abstract class GameScreen extends ScreenAdapter {
 
     void drawAssets() {
         tiledMapRenderer.render();
-        inanimateEntities.render(Application.batch);
-        entities.render(Application.batch);
+        renderQueue.begin();
+        inanimateEntities.render(renderQueue, viewCuller);
+        entities.render(renderQueue, viewCuller);
+        renderQueue.end();
     }
 
     public void addEntity(Entity entity) {
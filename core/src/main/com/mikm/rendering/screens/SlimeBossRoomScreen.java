@@ -8,10 +8,12 @@ import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.mikm.Assets;
+import com.mikm.BitGrid;
 import com.mikm.entities.enemies.slimeBoss.SlimeBoss;
 
 public class SlimeBossRoomScreen extends GameScreen {
     private final int MAP_WIDTH = 30, MAP_HEIGHT = 30;
+    private final BitGrid collidableGrid = new BitGrid(MAP_WIDTH, MAP_HEIGHT);
 
     SlimeBossRoomScreen(Application application) {
         super(application);
@@ -34,8 +36,8 @@ public class SlimeBossRoomScreen extends GameScreen {
     }
 
     @Override
-    public boolean[][] isCollidableGrid() {
-        return new boolean[MAP_WIDTH][MAP_HEIGHT];
+    public BitGrid isCollidableGrid() {
+        return collidableGrid;
     }
 
     @Override
@@ -6,11 +6,13 @@ import com.badlogic.gdx.maps.tiled.TmxMapLoader;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.mikm.Assets;
+import com.mikm.BitGrid;
 import com.mikm.DeltaTime;
 import com.mikm.entities.NPC;
 import com.mikm.rendering.Camera;
 
 public class TownScreen extends GameScreen {
+    private final BitGrid collidableGrid = new BitGrid(100, 100);
 
     TownScreen(Application application) {
         super(application);
@@ -30,15 +32,17 @@ public class TownScreen extends GameScreen {
         Application.batch.setProjectionMatrix(Camera.orthographicCamera.combined);
         Application.batch.begin();
         tiledMapRenderer.setView(Camera.orthographicCamera);
+        viewCuller.setView(Camera.orthographicCamera);
         drawAssets();
         Camera.updateOrthographicCamera();
         Assets.font.draw(Application.batch, String.valueOf(DeltaTime.deltaTime()), 50, 50);
         Application.batch.end();
+        lastFrameRenderCalls = Application.batch.renderCalls;
     }
 
     @Override
-    public boolean[][] isCollidableGrid() {
-        return new boolean[100][100];
+    public BitGrid isCollidableGrid() {
+        return collidableGrid;
     }
 
     @Override
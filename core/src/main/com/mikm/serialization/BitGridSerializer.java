@@ -0,0 +1,30 @@
+package com.mikm.serialization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.mikm.BitGrid;
+
+public class BitGridSerializer extends Serializer<BitGrid> {
+    @Override
+    public void write(Kryo kryo, Output output, BitGrid object) {
+        output.writeInt(object.getWidth(), true);
+        output.writeInt(object.getHeight(), true);
+        output.writeLongs(object.getWords(), 0, object.getWords().length);
+    }
+
+    @Override
+    public BitGrid read(Kryo kryo, Input input, Class<? extends BitGrid> type) {
+        BitGrid bitGrid = new BitGrid(input.readInt(true), input.readInt(true));
+        long[] words = bitGrid.getWords();
+        long[] readWords = input.readLongs(words.length);
+        System.arraycopy(readWords, 0, words, 0, words.length);
+        return bitGrid;
+    }
+
+    @Override
+    public BitGrid copy(Kryo kryo, BitGrid original) {
+        return original.copy();
+    }
+}
@@ -3,6 +3,7 @@ package com.mikm.serialization;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.mikm.BitGrid;
 import com.mikm.Vector2Int;
 import com.mikm.entities.Entity;
 import com.mikm.entities.enemies.Rat;
@@ -71,6 +72,7 @@ public class Serializer {
         kryo.register(RockType.class);
         kryo.register(boolean[][].class);
         kryo.register(boolean[].class);
+        kryo.register(BitGrid.class, new BitGridSerializer());
         kryo.register(Vector2Int.class);
         kryo.register(CaveFloorMemento.class, new CaveFloorMementoSerializer());
     }
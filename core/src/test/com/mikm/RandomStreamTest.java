@@ -0,0 +1,54 @@
+package com.mikm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomStreamTest {
+    @Test
+    public void substreamsShouldOnlyDependOnSeedAndName() {
+        RandomStream stream = new RandomStream(42);
+        long first = stream.getSubstream("rocks").getLong();
+        stream.getLong();
+        assertEquals(first, stream.getSubstream("rocks").getLong());
+        assertEquals(first, new RandomStream(42).getSubstream("rocks").getLong());
+        assertNotEquals(first, stream.getSubstream("enemies").getLong());
+    }
+
+    @Test
+    public void splitsShouldBeRepeatableAndIndependent() {
+        RandomStream a = new RandomStream(5), b = new RandomStream(5);
+        RandomStream splitA = a.split(), splitB = b.split();
+        assertEquals(splitA.getSeed(), splitB.getSeed());
+        assertEquals(a.getLong(), b.getLong());
+        //Drawing from a split leaves its parent alone
+        splitA.getLong();
+        assertEquals(a.getLong(), b.getLong());
+        assertNotEquals(a.split().getSeed(), a.split().getSeed());
+    }
+
+    @Test
+    public void rangesShouldBeInclusive() {
+        RandomStream stream = new RandomStream(1);
+        HashSet<Integer> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            int value = stream.getInt(-2, 2);
+            assertTrue(value >= -2 && value <= 2);
+            seen.add(value);
+            float f = stream.getFloat(3, 4);
+            assertTrue(f >= 3 && f < 4);
+        }
+        assertEquals(5, seen.size());
+    }
+
+    @Test
+    public void shuffleShouldKeepEveryItem() {
+        ArrayList<Integer> list = new ArrayList<>(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+        new RandomStream(3).shuffle(list);
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)), new HashSet<>(list));
+    }
+}
@@ -0,0 +1,85 @@
+package com.mikm.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntCollectionsTest {
+    @Test
+    public void intSetShouldMatchHashSet() {
+        Random random = new Random(1);
+        IntSet set = new IntSet(4);
+        HashSet<Integer> reference = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            //Packed tiles of a small map, so there are plenty of repeats and removals of present keys
+            int key = random.nextInt(64) * 64 + random.nextInt(64);
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), set.remove(key));
+            } else {
+                assertEquals(reference.add(key), set.add(key));
+            }
+            assertEquals(reference.size(), set.size());
+        }
+        for (int key = 0; key < 64 * 64; key++) {
+            assertEquals(reference.contains(key), set.contains(key));
+        }
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0));
+    }
+
+    @Test
+    public void intIntMapShouldMatchHashMap() {
+        Random random = new Random(2);
+        IntIntMap map = new IntIntMap(4);
+        HashMap<Integer, Integer> reference = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Integer removed = reference.remove(key);
+                assertEquals(removed == null ? -1 : removed, map.remove(key, -1));
+            } else {
+                reference.put(key, i);
+                map.put(key, i);
+            }
+            assertEquals(reference.size(), map.size());
+        }
+        for (int key = -1000; key < 1000; key++) {
+            assertEquals(reference.containsKey(key), map.containsKey(key));
+            assertEquals(reference.getOrDefault(key, -1).intValue(), map.get(key, -1));
+        }
+    }
+
+    @Test
+    public void intListShouldMatchArrayList() {
+        Random random = new Random(3);
+        IntList list = new IntList(1);
+        ArrayList<Integer> reference = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            int value = random.nextInt(100);
+            if (random.nextInt(4) == 0) {
+                assertEquals(reference.remove((Integer) value), list.removeValue(value));
+            } else {
+                reference.add(value);
+                list.add(value);
+            }
+        }
+        assertEquals(reference.size(), list.size());
+        for (int i = 0; i < reference.size(); i++) {
+            assertEquals(reference.get(i).intValue(), list.get(i));
+        }
+        assertEquals(list, new IntList(list));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(list.size()));
+    }
+
+    @Test
+    public void minValueShouldBeRejectedAsKey() {
+        assertThrows(IllegalArgumentException.class, () -> new IntSet().add(Integer.MIN_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new IntIntMap().put(Integer.MIN_VALUE, 0));
+    }
+}
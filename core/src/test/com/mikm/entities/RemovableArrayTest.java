@@ -0,0 +1,133 @@
+package com.mikm.entities;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemovableArrayTest {
+    @Test
+    public void entitiesShouldBeInZOrderThenAddedOrder() {
+        RemovableArray<TestEntity> array = new RemovableArray<>();
+        TestEntity first = new TestEntity(0, 0), second = new TestEntity(0, 0), shadow = new TestEntity(-2, 0), particle = new TestEntity(-1, 0);
+        array.addInstantly(first);
+        array.addInstantly(shadow);
+        array.addInstantly(second);
+        array.addInstantly(particle);
+        assertEquals(listOf(shadow, particle, first, second), toList(array));
+        assertEquals(4, array.size());
+
+        array.removeInstantly(first);
+        array.removeInstantly(first);
+        array.removeInstantly(null);
+        assertEquals(listOf(shadow, particle, second), toList(array));
+        assertEquals(3, array.size());
+    }
+
+    @Test
+    public void addsAndRemovesShouldWaitForTheEndOfRender() {
+        RemovableArray<TestEntity> array = new RemovableArray<>();
+        TestEntity spawned = new TestEntity(0, 0), dying = new TestEntity(0, 0), survivor = new TestEntity(0, 0);
+        array.addInstantly(dying);
+        array.addInstantly(survivor);
+        dying.onUpdate = () -> {
+            array.add(spawned);
+            array.remove(dying);
+            //Still there while the others update
+            assertEquals(2, array.size());
+        };
+        array.render(null);
+        assertEquals(1, dying.updates);
+        assertEquals(1, survivor.updates);
+        assertEquals(0, spawned.updates);
+        assertEquals(listOf(survivor, spawned), toList(array));
+
+        //An entity added and removed in the same frame never shows up
+        TestEntity shortLived = new TestEntity(0, 0);
+        array.add(shortLived);
+        array.remove(shortLived);
+        array.remove(dying);
+        array.render(null);
+        assertEquals(listOf(survivor, spawned), toList(array));
+        assertEquals(1, spawned.updates);
+    }
+
+    @Test
+    public void layersShouldSortByYWhenAsked() {
+        RemovableArray<TestEntity> array = new RemovableArray<>(true);
+        TestEntity low = new TestEntity(0, 10), high = new TestEntity(0, 50), shadow = new TestEntity(-2, 0);
+        array.addInstantly(low);
+        array.addInstantly(shadow);
+        array.addInstantly(high);
+        array.render(null);
+        assertEquals(listOf(shadow, high, low), toList(array));
+
+        low.y = 100;
+        array.render(null);
+        assertEquals(listOf(shadow, low, high), toList(array));
+        //Slots move with the sort, so removing still finds the entity
+        array.removeInstantly(high);
+        assertEquals(listOf(shadow, low), toList(array));
+    }
+
+    @Test
+    public void clearedEntitiesShouldBeAddableAgain() {
+        RemovableArray<TestEntity> array = new RemovableArray<>();
+        TestEntity entity = new TestEntity(0, 0);
+        array.addInstantly(entity);
+        array.add(new TestEntity(0, 0));
+        array.clear();
+        assertTrue(array.isEmpty());
+        array.render(null);
+        assertTrue(array.isEmpty());
+        array.addInstantly(entity);
+        array.removeInstantly(entity);
+        assertTrue(array.isEmpty());
+    }
+
+    private ArrayList<TestEntity> toList(RemovableArray<TestEntity> array) {
+        ArrayList<TestEntity> list = new ArrayList<>();
+        for (TestEntity entity : array) {
+            list.add(entity);
+        }
+        return list;
+    }
+
+    private ArrayList<TestEntity> listOf(TestEntity... entities) {
+        ArrayList<TestEntity> list = new ArrayList<>();
+        for (TestEntity entity : entities) {
+            list.add(entity);
+        }
+        return list;
+    }
+
+    private static class TestEntity extends InanimateEntity {
+        private final int zOrder;
+        private int updates;
+        private Runnable onUpdate;
+
+        TestEntity(int zOrder, float y) {
+            super(0, y);
+            this.zOrder = zOrder;
+        }
+
+        @Override
+        public void update() {
+            updates++;
+            if (onUpdate != null) {
+                onUpdate.run();
+            }
+        }
+
+        @Override
+        public void draw(Batch batch) {
+        }
+
+        @Override
+        public int getZOrder() {
+            return zOrder;
+        }
+    }
+}
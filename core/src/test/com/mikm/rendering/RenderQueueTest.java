@@ -0,0 +1,135 @@
+package com.mikm.rendering;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Affine2;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderQueueTest {
+    private final ArrayList<TextureRegion> drawnRegions = new ArrayList<>();
+    private final ArrayList<Float> drawnColors = new ArrayList<>();
+    private final ArrayList<Float> drawnX = new ArrayList<>();
+    //Every draw that reached the target, with raw vertex draws as their vertex array
+    private final ArrayList<Object> drawOrder = new ArrayList<>();
+
+    @Test
+    public void drawsShouldComeOutByLayerThenDepth() {
+        RenderQueue renderQueue = new RenderQueue(createTarget());
+        TextureRegion slime = new TextureRegion(), shadow = new TextureRegion(), player = new TextureRegion(), weapon = new TextureRegion();
+        renderQueue.begin();
+        renderQueue.setSortKey(0, -10);
+        renderQueue.draw(slime, 0, 10);
+        renderQueue.setSortKey(-2, -10);
+        renderQueue.draw(shadow, 0, 10);
+        renderQueue.setSortKey(0, -50);
+        renderQueue.draw(weapon, 0, 50);
+        renderQueue.draw(player, 0, 50);
+        assertTrue(drawnRegions.isEmpty());
+        renderQueue.end();
+
+        //The player's own draws keep their order
+        assertEquals(Arrays.asList(shadow, weapon, player, slime), drawnRegions);
+        assertEquals(4, renderQueue.getLastSubmittedCommands());
+    }
+
+    @Test
+    public void colorsAndTransformsShouldBeRecordedPerDraw() {
+        RenderQueue renderQueue = new RenderQueue(createTarget());
+        TextureRegion image = new TextureRegion();
+        renderQueue.begin();
+        renderQueue.setSortKey(0, 5);
+        SpriteShader.setTint(renderQueue, Color.WHITE, .5f);
+        renderQueue.draw(image, 1, 0);
+        renderQueue.setColor(Color.WHITE);
+        renderQueue.setSortKey(0, 0);
+        renderQueue.draw(image, 2, 0, 4, 4, 8, 8, 1, 1, 0);
+        renderQueue.end();
+
+        assertEquals(2f, drawnX.get(0));
+        assertEquals(Color.WHITE_FLOAT_BITS, drawnColors.get(0));
+        assertEquals(1f, drawnX.get(1));
+        Color tint = new Color();
+        Color.abgr8888ToColor(tint, drawnColors.get(1));
+        assertEquals(SpriteShader.getTintAlpha(.5f), tint.a, .01f);
+    }
+
+    @Test
+    public void queueShouldBeReusableAfterEnd() {
+        RenderQueue renderQueue = new RenderQueue(createTarget());
+        TextureRegion image = new TextureRegion();
+        for (int frame = 0; frame < 3; frame++) {
+            drawnRegions.clear();
+            renderQueue.begin();
+            for (int i = 0; i < 100; i++) {
+                renderQueue.setSortKey(0, -i);
+                renderQueue.draw(image, i, 0);
+            }
+            renderQueue.end();
+            assertEquals(100, drawnRegions.size());
+            assertEquals(99f, drawnX.get(drawnX.size() - 100));
+        }
+        assertThrows(IllegalStateException.class, () -> renderQueue.draw(image, 0, 0));
+    }
+
+    @Test
+    public void drawsThatCantBeQueuedShouldGoStraightToTheTarget() {
+        RenderQueue renderQueue = new RenderQueue(createTarget());
+        TextureRegion slime = new TextureRegion(), player = new TextureRegion(), weapon = new TextureRegion(), text = new TextureRegion();
+        float[] spriteVertices = new float[20];
+        renderQueue.begin();
+        renderQueue.setSortKey(0, -10);
+        renderQueue.draw(slime, 0, 10);
+        renderQueue.setSortKey(0, -50);
+        renderQueue.draw(player, 0, 50);
+        SpriteShader.setTint(renderQueue, Color.WHITE, .5f);
+        renderQueue.draw((Texture) null, spriteVertices, 0, 20);
+        renderQueue.setColor(Color.WHITE);
+        renderQueue.draw(text, 8, 8, new Affine2());
+        renderQueue.setSortKey(0, -100);
+        renderQueue.draw(weapon, 0, 100);
+        renderQueue.draw(text, 0, 0, 0, 0, 8, 8, 1, 1, 90, true);
+        renderQueue.end();
+
+        //What was queued before an unsorted draw comes out before it, sorted, and the rest after it
+        assertEquals(Arrays.asList(player, slime, spriteVertices, text, weapon, text), drawOrder);
+        Color tint = new Color();
+        Color.abgr8888ToColor(tint, drawnColors.get(2));
+        assertEquals(SpriteShader.getTintAlpha(.5f), tint.a, .01f);
+        assertEquals(Color.WHITE_FLOAT_BITS, drawnColors.get(3));
+        assertEquals(6, renderQueue.getLastSubmittedCommands());
+    }
+
+    //Records the draws the queue submits, without needing GL
+    private Batch createTarget() {
+        final float[] packedColor = {Color.WHITE_FLOAT_BITS};
+        return (Batch) Proxy.newProxyInstance(Batch.class.getClassLoader(), new Class<?>[]{Batch.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "setPackedColor":
+                    packedColor[0] = (float) args[0];
+                    return null;
+                case "getPackedColor":
+                    return packedColor[0];
+                case "draw":
+                    drawnColors.add(packedColor[0]);
+                    if (!(args[0] instanceof TextureRegion)) {
+                        drawOrder.add(args[1]);
+                        return null;
+                    }
+                    drawOrder.add(args[0]);
+                    drawnRegions.add((TextureRegion) args[0]);
+                    drawnX.add((float) args[1]);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,32 @@
+package com.mikm.rendering;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.NumberUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpriteShaderTest {
+    @Test
+    public void tintsAndFillsShouldSurviveColorPacking() {
+        //Alpha is rounded to the nearest step
+        final float tolerance = .5f / SpriteShader.ALPHA_STEPS + .0001f;
+        for (int i = 0; i <= 100; i++) {
+            float alpha = i / 100f;
+            int tintByte = getPackedAlphaByte(SpriteShader.getTintAlpha(alpha));
+            assertTrue(tintByte >= SpriteShader.TINT_ALPHA_START);
+            assertEquals(alpha, (tintByte - SpriteShader.TINT_ALPHA_START) / 126f, tolerance);
+
+            int fillByte = getPackedAlphaByte(SpriteShader.getFillAlpha(alpha));
+            assertTrue(fillByte < SpriteShader.TINT_ALPHA_START - 1);
+            assertEquals(alpha, fillByte / 126f, tolerance);
+        }
+        //Resetting the batch to plain white has to stay an opaque tint
+        assertEquals(254, getPackedAlphaByte(Color.WHITE.a));
+    }
+
+    //What the batch puts in the vertex and the shader reads back, times 254
+    private int getPackedAlphaByte(float alpha) {
+        return NumberUtils.floatToRawIntBits(Color.toFloatBits(1, 1, 1, alpha)) >>> 24;
+    }
+}
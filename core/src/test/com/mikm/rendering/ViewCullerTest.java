@@ -0,0 +1,67 @@
+package com.mikm.rendering;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.mikm.entities.InanimateEntity;
+import com.mikm.entities.Shadow;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewCullerTest {
+    @Test
+    public void onlyEntitiesNearTheViewShouldBeDrawn() {
+        ViewCuller viewCuller = new ViewCuller();
+        TestEntity beforeView = new TestEntity(0, 0);
+        assertTrue(viewCuller.shouldDraw(beforeView));
+
+        viewCuller.setView(createCamera(100, 100));
+        assertTrue(viewCuller.shouldDraw(new TestEntity(100, 100)));
+        //The view is 40 by 30, so it reaches 20 to either side, then the margin on top of that
+        assertTrue(viewCuller.shouldDraw(new TestEntity(100 + 20 + ViewCuller.MARGIN - 1, 100)));
+        assertFalse(viewCuller.shouldDraw(new TestEntity(100 + 20 + ViewCuller.MARGIN + 1, 100)));
+        assertFalse(viewCuller.shouldDraw(new TestEntity(100, 100 - 15 - ViewCuller.MARGIN - 17)));
+
+        //Jumping raises the image into view
+        TestEntity jumping = new TestEntity(100, 100 - 15 - ViewCuller.MARGIN - 40);
+        assertFalse(viewCuller.shouldDraw(jumping));
+        jumping.height = 30;
+        assertTrue(viewCuller.shouldDraw(jumping));
+
+        //A shadow is where its entity is
+        TestEntity farAway = new TestEntity(1000, 1000);
+        assertFalse(viewCuller.shouldDraw(new Shadow(farAway)));
+        assertTrue(viewCuller.shouldDraw(new Shadow(new TestEntity(90, 90))));
+
+        //Before the first view, everything was drawn
+        assertEquals(1, viewCuller.getDrawnCount());
+        viewCuller.setView(createCamera(1000, 1000));
+        assertEquals(4, viewCuller.getDrawnCount());
+        assertEquals(4, viewCuller.getCulledCount());
+        assertTrue(viewCuller.shouldDraw(farAway));
+    }
+
+    private OrthographicCamera createCamera(float x, float y) {
+        //Not updated, that needs the native matrix code
+        OrthographicCamera camera = new OrthographicCamera();
+        camera.viewportWidth = 160;
+        camera.viewportHeight = 120;
+        camera.zoom = Camera.VIEWPORT_ZOOM;
+        camera.position.set(x, y, 0);
+        return camera;
+    }
+
+    private static class TestEntity extends InanimateEntity {
+        TestEntity(float x, float y) {
+            super(x, y);
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public void draw(Batch batch) {
+        }
+    }
+}
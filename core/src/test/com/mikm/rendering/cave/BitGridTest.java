@@ -0,0 +1,97 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitGridTest {
+    @Test
+    public void setAndGetShouldWorkAcrossWords() {
+        BitGrid grid = new BitGrid(130, 3);
+        grid.set(0, 0);
+        grid.set(63, 1);
+        grid.set(64, 1);
+        grid.set(129, 2);
+        assertTrue(grid.get(0, 0));
+        assertTrue(grid.get(63, 1));
+        assertTrue(grid.get(64, 1));
+        assertTrue(grid.get(129, 2));
+        assertFalse(grid.get(129, 1));
+        assertEquals(4, grid.cardinality());
+        grid.clear(64, 1);
+        assertFalse(grid.get(64, 1));
+    }
+
+    @Test
+    public void copyShouldBeDeep() {
+        BitGrid grid = new BitGrid(70, 70);
+        grid.set(3, 3);
+        BitGrid copy = grid.copy();
+        assertEquals(grid, copy);
+        copy.set(4, 4);
+        assertFalse(grid.get(4, 4));
+        assertNotEquals(grid, copy);
+    }
+
+    @Test
+    public void fillShouldNotSetBitsPastWidth() {
+        BitGrid grid = new BitGrid(70, 2);
+        grid.fill(true);
+        assertEquals(140, grid.cardinality());
+        grid.invert();
+        assertTrue(grid.isEmpty());
+    }
+
+    @Test
+    public void wordOperationsShouldMatchPerTileOperations() {
+        BitGrid a = new BitGrid(100, 4);
+        BitGrid b = new BitGrid(100, 4);
+        for (int i = 0; i < 100; i += 3) {
+            a.set(i, i % 4);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            b.set(i, i % 4);
+        }
+        BitGrid and = a.copy();
+        and.and(b);
+        BitGrid or = a.copy();
+        or.or(b);
+        BitGrid andNot = a.copy();
+        andNot.andNot(b);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 100; x++) {
+                assertEquals(a.get(x, y) && b.get(x, y), and.get(x, y));
+                assertEquals(a.get(x, y) || b.get(x, y), or.get(x, y));
+                assertEquals(a.get(x, y) && !b.get(x, y), andNot.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void neighborWordsShouldHoldAdjacentTiles() {
+        BitGrid grid = new BitGrid(130, 1);
+        grid.set(63, 0);
+        grid.set(64, 0);
+        assertTrue((grid.getLeftNeighborWord(0, 1, false) & 1L) != 0);
+        assertTrue((grid.getRightNeighborWord(0, 0, false) >>> 63) != 0);
+        assertTrue((grid.getLeftNeighborWord(0, 0, true) & 1L) != 0);
+        assertTrue((grid.getRightNeighborWord(0, 2, true) & (1L << 1)) != 0);
+    }
+
+    @Test
+    public void shiftRowShouldMoveTilesAndClearShiftedInTiles() {
+        BitGrid grid = new BitGrid(130, 1);
+        grid.set(0, 0);
+        grid.set(62, 0);
+        grid.set(129, 0);
+        grid.shiftRow(0, 65);
+        assertTrue(grid.get(65, 0));
+        assertTrue(grid.get(127, 0));
+        assertEquals(2, grid.cardinality());
+        grid.shiftRow(0, -65);
+        assertTrue(grid.get(0, 0));
+        assertTrue(grid.get(62, 0));
+        assertEquals(2, grid.cardinality());
+    }
+}
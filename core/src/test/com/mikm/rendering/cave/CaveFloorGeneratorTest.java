@@ -0,0 +1,151 @@
+package com.mikm.rendering.cave;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.mikm.RandomUtils;
+import com.mikm.Vector2Int;
+import com.mikm.serialization.CaveFloorMementoSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaveFloorGeneratorTest {
+    @Test
+    public void sameSeedShouldGiveSameFloor() {
+        CaveFloorLayout layout = CaveFloorPrefetcherTest.createGenerator().generate(2, 1234);
+        CaveFloorLayout regenerated = CaveFloorPrefetcherTest.createGenerator().generate(2, 1234);
+        assertEquals(layout.ruleCellPositions, regenerated.ruleCellPositions);
+        assertEquals(layout.collidablePositions, regenerated.collidablePositions);
+        assertEquals(layout.holePositions, regenerated.holePositions);
+        assertEquals(layout.enemyTiles, regenerated.enemyTiles);
+        assertEquals(layout.rockTiles, regenerated.rockTiles);
+        assertEquals(layout.rockTypes, regenerated.rockTypes);
+        assertEquals(layout.spawnTile, regenerated.spawnTile);
+
+        CaveFloorLayout otherSeed = CaveFloorPrefetcherTest.createGenerator().generate(2, 1235);
+        assertNotEquals(layout.ruleCellPositions, otherSeed.ruleCellPositions);
+    }
+
+    @Test
+    public void mementoShouldRemoveMinedRocks() {
+        CaveFloorLayout layout = CaveFloorPrefetcherTest.createGenerator().generate(3, 99);
+        CaveFloorMemento memento = new CaveFloorMemento(99);
+        memento.minedRocks.set(0);
+        memento.minedRocks.set(2);
+        memento.applyTo(layout);
+        Vector2Int minedRock = layout.rockTiles.get(2);
+        Vector2Int rock = layout.rockTiles.get(1);
+        assertFalse(layout.collidablePositions.get(minedRock.x, minedRock.y));
+        assertTrue(layout.collidablePositions.get(rock.x, rock.y));
+    }
+
+    @Test
+    public void mementoShouldSurviveKryo() {
+        Kryo kryo = new Kryo();
+        kryo.register(CaveFloorMemento.class, new CaveFloorMementoSerializer());
+        CaveFloorMemento memento = new CaveFloorMemento(-5);
+        memento.minedRocks.set(130);
+        memento.killedEnemies.set(3);
+        memento.killedEnemies.set(97);
+
+        Output output = new Output(64, -1);
+        kryo.writeObject(output, memento);
+        CaveFloorMemento read = kryo.readObject(new Input(output.toBytes()), CaveFloorMemento.class);
+        assertEquals(memento, read);
+        assertTrue(output.position() < 64);
+    }
+
+    @Test
+    public void mapsShouldGrowEachFloorUpToTheMaximum() {
+        assertEquals(CaveTilemapCreator.MAP_WIDTH, CaveTilemapCreator.getMapWidth(1));
+        assertTrue(CaveTilemapCreator.getMapWidth(4) > CaveTilemapCreator.getMapWidth(3));
+        assertEquals(CaveTilemapCreator.MAX_MAP_SIZE, CaveTilemapCreator.getMapHeight(30));
+    }
+
+    @Test
+    public void customMapSizeShouldSetTheLayoutSize() {
+        CaveFloorLayout layout = CaveFloorPrefetcherTest.createGenerator().generate(1, 0, 160, 130);
+        assertEquals(160, layout.ruleCellPositions.getWidth());
+        assertEquals(130, layout.ruleCellPositions.getHeight());
+    }
+
+    @Test
+    public void reportShouldCoverEveryStage() {
+        CaveFloorGenerator generator = CaveFloorPrefetcherTest.createGenerator();
+        CaveFloorLayout layout = generator.generate(1, 5);
+        FloorGenerationReport report = layout.generationReport;
+        assertEquals(generator.getPipeline().getStageNames().size(), report.getStages().size());
+        assertEquals(1, report.getStage(CaveFloorGenerator.SPAWN_TILE).outputSize);
+        assertEquals(layout.enemyTiles.size(), report.getStage(CaveFloorGenerator.ENEMIES).outputSize);
+        assertEquals(layout.holePositions.size(), report.getStage(CaveFloorGenerator.HOLES).outputSize);
+        for (FloorGenerationReport.StageReport stage : report.getStages()) {
+            assertFalse(stage.skipped);
+            assertTrue(stage.wallNanos >= 0);
+        }
+        assertEquals(report.getStages().size(), report.toCsv().split("\n").length);
+        assertTrue(report.toString().contains(CaveFloorGenerator.TERRAIN));
+    }
+
+    @Test
+    public void stagesShouldBeReplaceableAndSkippable() {
+        CaveFloorGenerator generator = CaveFloorPrefetcherTest.createGenerator();
+        generator.getPipeline().setSkipped(CaveFloorGenerator.HOLES, true);
+        generator.getPipeline().setSkipped(CaveFloorGenerator.TERRAIN, true);
+        generator.getPipeline().replaceStage(CaveFloorGenerator.ENEMIES, context -> {
+            context.getLayout().enemyTiles.add(context.getLayout().spawnTile);
+            return 1;
+        });
+        CaveFloorLayout layout = generator.generate(1, 5);
+        assertTrue(layout.holePositions.isEmpty());
+        assertEquals(1, layout.enemyTiles.size());
+        assertNotNull(layout.floorAndWallLayer);
+        assertTrue(layout.generationReport.getStage(CaveFloorGenerator.HOLES).skipped);
+        assertEquals(CaveFloorGenerator.ENEMIES, generator.getPipeline().getStageNames().get(5));
+        assertThrows(IllegalArgumentException.class, () -> generator.getPipeline().setSkipped("lighting", true));
+    }
+
+    @Test
+    public void floorsShouldNotDependOnThreadsOrOtherStreams() throws Exception {
+        CaveFloorLayout layout = CaveFloorPrefetcherTest.createGenerator().generate(4, 77);
+        //Drawing from the gameplay streams in between mustn't matter
+        RandomUtils.FX.getFloat(0, 1);
+        RandomUtils.AI.getInt(10);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<CaveFloorLayout>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(pool.submit(() -> CaveFloorPrefetcherTest.createGenerator().generate(4, 77)));
+            }
+            for (Future<CaveFloorLayout> future : futures) {
+                CaveFloorLayout parallel = future.get();
+                assertEquals(layout.ruleCellPositions, parallel.ruleCellPositions);
+                assertEquals(layout.holePositions, parallel.holePositions);
+                assertEquals(layout.enemyTiles, parallel.enemyTiles);
+                assertEquals(layout.rockTiles, parallel.rockTiles);
+                assertEquals(layout.spawnTile, parallel.spawnTile);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void replacingAStageShouldNotChangeTheOthersRolls() {
+        CaveFloorLayout layout = CaveFloorPrefetcherTest.createGenerator().generate(2, 8);
+        CaveFloorGenerator generator = CaveFloorPrefetcherTest.createGenerator();
+        generator.getPipeline().replaceStage(CaveFloorGenerator.ENEMIES, context -> {
+            context.random.getInt(1000);
+            return 0;
+        });
+        CaveFloorLayout withoutEnemies = generator.generate(2, 8);
+        assertTrue(withoutEnemies.enemyTiles.isEmpty());
+        assertEquals(layout.rockTiles, withoutEnemies.rockTiles);
+        assertEquals(layout.rockTypes, withoutEnemies.rockTypes);
+    }
+}
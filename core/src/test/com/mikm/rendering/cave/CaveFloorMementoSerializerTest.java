@@ -3,138 +3,67 @@ package com.mikm.rendering.cave;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import com.mikm.serialization.Serializer;
-import com.mikm.Vector2Int;
-import com.mikm.debug.TestObject;
-import com.mikm.entities.Entity;
-import com.mikm.entities.InanimateEntity;
-import com.mikm.entities.RemovableArray;
+import com.mikm.serialization.CaveFloorMementoSerializer;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class CaveFloorMementoSerializerTest {
+    private Kryo kryo;
 
-    Kryo kryo;
-    Output output;
-    Input input;
-    String SAVED_CAVEFLOORS_FILEPATH = "E:/IntelliJprojects/The_Infernal_Depths/assets/testingFile.bin";
-
-    //@Test
-//    public void mementoShouldBeWrittenToFile() {
-//        initializeKryo();
-//        RemovableArray<InanimateEntity> inanimateEntities = new RemovableArray<>(InanimateEntity.class);
-//        RemovableArray<Entity> entities = new RemovableArray<>(Entity.class);
-//        CaveFloorMemento memento = new CaveFloorMemento(Vector2Int.DOWNRIGHT, new boolean[6][6], new ArrayList<>(), inanimateEntities, entities);
-//        CaveFloorMemento mementoRead;
-//        try {
-//            kryo.writeObject(output, memento);
-//            output.flush();
-//            mementoRead = kryo.readObject(input, CaveFloorMemento.class);
-//        } catch (Exception e) {
-//            throw new RuntimeException(e);
-//        } finally {
-//            output.close();
-//            input.close();
-//        }
-//        assertEquals(mementoRead, memento);
-//        assertEquals(mementoRead.spawnPosition, memento.spawnPosition);
-//        assertTrue(Arrays.deepEquals(mementoRead.ruleCellPositions, memento.ruleCellPositions));
-//        assertEquals(mementoRead.inanimateEntities, memento.inanimateEntities);
-//        assertEquals(mementoRead.enemies, memento.enemies);
-//    }
-
-    @Test
-    public void readDifferentParameterizedClass() {
-        initializeKryo();
-        ArrayList<Integer> ints = new ArrayList<>();
-        ArrayList<String> strings = new ArrayList<>();
-        ArrayList<Integer> intsRead;
-        ArrayList<String> stringsRead;
-        ints.add(12);
-        strings.add("string");
-        strings.add("string2");
-        try {
-            kryo.writeObject(output, ints);
-            kryo.writeObject(output, strings);
-            output.close();
-            System.out.println(kryo.getGenerics().nextGenericClass());
-            stringsRead = (ArrayList<String>) kryo.readObject(input, ArrayList.class);
-            intsRead = (ArrayList<Integer>) kryo.readObject(input, ArrayList.class);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        } finally {
-            output.close();
-            input.close();
-        }
-        assertEquals(ints, intsRead);
-        assertEquals(strings, stringsRead);
-    }
-
-    private void initializeKryo() {
+    @BeforeEach
+    public void initializeKryo() {
         kryo = new Kryo();
-        kryo.register(Class.class);
-        kryo.register(Entity.class);
-        kryo.register(InanimateEntity.class);
-        kryo.register(ArrayList.class);
-        kryo.register(RemovableArray.class);
-        kryo.register(boolean[][].class);
-        kryo.register(boolean[].class);
-        kryo.register(Vector2Int.class);
-        kryo.register(CaveFloorMemento.class);
-        try {
-            input = new Input(new FileInputStream(SAVED_CAVEFLOORS_FILEPATH));
-            output = new Output(new FileOutputStream(SAVED_CAVEFLOORS_FILEPATH));
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
-        }
+        kryo.register(CaveFloorMemento.class, new CaveFloorMementoSerializer());
     }
 
     @Test
-    public void kryoShouldDeepCopy() {
-        boolean[][] bools = new boolean[5][5];
-        boolean[][] boolsCopy = Serializer.getInstance().copy(bools);
-        assertTrue(Arrays.deepEquals(bools, boolsCopy));
-        boolsCopy[3][3] = true;
-        assertFalse(bools[3][3]);
+    public void emptyMementoShouldRoundTrip() {
+        CaveFloorMemento memento = new CaveFloorMemento(Long.MIN_VALUE);
+        CaveFloorMemento read = roundTrip(memento);
+        assertEquals(memento, read);
+        assertTrue(read.minedRocks.isEmpty());
+        assertTrue(read.killedEnemies.isEmpty());
     }
 
     @Test
-    public void ruleCellPositionsShouldBeDeepCopied() {
-        RemovableArray<InanimateEntity> inanimateEntities = new RemovableArray<>(InanimateEntity.class);
-        RemovableArray<Entity> entities = new RemovableArray<>(Entity.class);
-        boolean[][] bools = new boolean[6][6];
-        CaveFloorMemento memento = new CaveFloorMemento(Vector2Int.DOWNRIGHT, bools, new ArrayList<>(), inanimateEntities, entities);
-        bools[3][3] = true;
-        assertFalse(memento.ruleCellPositions[3][3]);
-    }
+    public void bitsPastTheFirstWordShouldRoundTrip() {
+        BitSet minedRocks = new BitSet();
+        minedRocks.set(0);
+        minedRocks.set(63);
+        minedRocks.set(64);
+        minedRocks.set(1000);
+        BitSet killedEnemies = new BitSet();
+        killedEnemies.set(200, 260);
+        CaveFloorMemento memento = new CaveFloorMemento(123456789L, minedRocks, killedEnemies);
 
-    @Test
-    public void inanimateEntitiesShouldBeDeepCopied() {
-        RemovableArray<InanimateEntity> inanimateEntities = new RemovableArray<>(InanimateEntity.class);
-        RemovableArray<Entity> entities = new RemovableArray<>(Entity.class);
-        boolean[][] bools = new boolean[6][6];
-        CaveFloorMemento memento = new CaveFloorMemento(Vector2Int.DOWNRIGHT, bools, new ArrayList<>(), inanimateEntities, entities);
-        inanimateEntities.add(new TestObject());
-        assertEquals(0, memento.inanimateEntities.size());
+        CaveFloorMemento read = roundTrip(memento);
+        assertEquals(123456789L, read.seed);
+        assertEquals(minedRocks, read.minedRocks);
+        assertEquals(killedEnemies, read.killedEnemies);
     }
 
-
     @Test
-    public void vector2IntShouldBeDeepCopied() {
-        RemovableArray<InanimateEntity> inanimateEntities = new RemovableArray<>(InanimateEntity.class);
-        RemovableArray<Entity> entities = new RemovableArray<>(Entity.class);
-        boolean[][] bools = new boolean[6][6];
-        Vector2Int vector2Int = new Vector2Int(34, 45);
-        CaveFloorMemento memento = new CaveFloorMemento(vector2Int, bools, new ArrayList<>(), inanimateEntities, entities);
-        vector2Int = new Vector2Int(102498, 12039);
-        assertNotEquals(memento.spawnPosition, vector2Int);
+    public void mementosShouldReadBackInOrderFromOneStream() {
+        CaveFloorMemento first = new CaveFloorMemento(1);
+        first.minedRocks.set(70);
+        CaveFloorMemento second = new CaveFloorMemento(2);
+        second.killedEnemies.set(5);
+
+        Output output = new Output(64, -1);
+        kryo.writeObject(output, first);
+        kryo.writeObject(output, second);
+        Input input = new Input(output.toBytes());
+        assertEquals(first, kryo.readObject(input, CaveFloorMemento.class));
+        assertEquals(second, kryo.readObject(input, CaveFloorMemento.class));
     }
 
-}
\ No newline at end of file
+    private CaveFloorMemento roundTrip(CaveFloorMemento memento) {
+        Output output = new Output(64, -1);
+        kryo.writeObject(output, memento);
+        return kryo.readObject(new Input(output.toBytes()), CaveFloorMemento.class);
+    }
+}
@@ -0,0 +1,78 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.Vector2Int;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaveFloorPrefetcherTest {
+    @Test
+    public void prefetchedFloorShouldBeComplete() {
+        CaveFloorPrefetcher prefetcher = new CaveFloorPrefetcher(createGenerator());
+        prefetcher.prefetch(3, 3);
+        CaveFloorLayout layout = prefetcher.take(3, 3);
+        prefetcher.dispose();
+
+        assertEquals(3, layout.floor);
+        assertNotNull(layout.floorAndWallLayer);
+        assertNotNull(layout.ruleCellLayer);
+        assertNotNull(layout.holeRuleCellLayer);
+        for (int i = 0; i < layout.openTiles.size(); i++) {
+            assertFalse(layout.collidablePositions.get(layout.openTiles.getX(i), layout.openTiles.getY(i)));
+        }
+        for (int i = 0; i < layout.holePositions.size(); i++) {
+            int x = layout.holePositions.get(i) % layout.width, y = layout.holePositions.get(i) / layout.width;
+            assertTrue(layout.holePositionsToCheckGrid.get(x, y));
+            assertTrue(layout.collidablePositions.get(x, y));
+        }
+        for (Vector2Int rockTile : layout.rockTiles) {
+            assertTrue(layout.collidablePositions.get(rockTile.x, rockTile.y));
+        }
+        assertEquals(layout.rockTiles.size(), layout.rockTypes.size());
+    }
+
+    @Test
+    public void floorsShouldStillGenerateAfterCancelling() {
+        CaveFloorPrefetcher prefetcher = new CaveFloorPrefetcher(createGenerator());
+        prefetcher.prefetch(1, 1);
+        prefetcher.prefetch(2, 2);
+        prefetcher.prefetch(3, 3);
+        prefetcher.cancelAll();
+        assertEquals(2, prefetcher.take(2, 2).floor);
+        prefetcher.prefetch(4, 4);
+        assertEquals(6, prefetcher.take(6, 6).floor);
+        assertEquals(4, prefetcher.take(4, 4).floor);
+        prefetcher.prefetch(7, 7);
+        assertEquals(8, prefetcher.take(7, 8).seed);
+        prefetcher.dispose();
+    }
+
+    @Test
+    public void leftFloorShouldBeReusedWhenRevisited() {
+        CaveFloorPrefetcher prefetcher = new CaveFloorPrefetcher(createGenerator());
+        CaveFloorLayout first = prefetcher.take(1, 1);
+        assertEquals(CaveFloorPrefetcher.Source.GENERATED, prefetcher.getLastTakeSource());
+        prefetcher.retain(first);
+        assertTrue(prefetcher.isRetained(1, 1));
+        assertSame(first, prefetcher.take(1, 1));
+        assertEquals(CaveFloorPrefetcher.Source.RETAINED, prefetcher.getLastTakeSource());
+        assertFalse(prefetcher.isRetained(1, 1));
+
+        //A new run gives the floor a new seed
+        prefetcher.retain(first);
+        CaveFloorLayout regenerated = prefetcher.take(1, 2);
+        assertNotSame(first, regenerated);
+        assertEquals(2, regenerated.seed);
+
+        prefetcher.retain(regenerated);
+        prefetcher.retain(prefetcher.take(2, 2));
+        assertFalse(prefetcher.isRetained(1, 2));
+        assertTrue(prefetcher.isRetained(2, 2));
+        prefetcher.dispose();
+    }
+
+    static CaveFloorGenerator createGenerator() {
+        return CaveFloorGenerator.createHeadless(new RuleCellMetadata(), new RuleCellMetadata());
+    }
+}
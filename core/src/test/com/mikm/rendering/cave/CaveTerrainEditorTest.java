@@ -0,0 +1,149 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.mikm.Vector2Int;
+import com.mikm.collections.IntList;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadataReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaveTerrainEditorTest {
+    private static final String METADATA = "[0,0]\nxxx\nx-x\nxxx\n[1,0]R\noxx\nx-x\nxxx\n[2,0]H\noxx\nx-x\nxxo\n"
+            + "[0,3]\n-o-\no-o\n-o-\n[1,3]\n-x-\no-o\n-o-\n[5,3]H\n-o-\nx-x\nxxo\n";
+    private static final int MAP_SIZE = 64;
+
+    @Test
+    public void editedFloorShouldLookLikeARebuiltOne() {
+        CaveTileLayerBuilder layerBuilder = createLayerBuilder();
+        CaveFloorLayout layout = new CaveFloorGenerator(layerBuilder).generate(1, 7, MAP_SIZE, MAP_SIZE);
+        CaveTerrainEditor editor = new CaveTerrainEditor(layerBuilder, layout);
+        HashSet<Vector2Int> rockTiles = new HashSet<>(layout.rockTiles);
+
+        Random random = new Random(2);
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(MAP_SIZE), y = random.nextInt(MAP_SIZE);
+            if (rockTiles.contains(new Vector2Int(x, y))) {
+                continue;
+            }
+            if (random.nextInt(4) == 0) {
+                editor.setHole(x, y, random.nextBoolean());
+            } else {
+                editor.setWall(x, y, random.nextBoolean());
+            }
+        }
+        assertTrue(editor.hasDirtyTiles());
+        assertTrue(editor.refreshDirtyTiles() > 0);
+        assertFalse(editor.hasDirtyTiles());
+
+        CaveFloorLayout rebuilt = new CaveFloorLayout(layout.floor, layout.seed, layout.ruleCellPositions.copy());
+        rebuilt.setHoles(new IntList(layout.holePositions));
+        layerBuilder.buildLayers(rebuilt);
+        for (int y = 0; y < MAP_SIZE; y++) {
+            for (int x = 0; x < MAP_SIZE; x++) {
+                assertSame(rebuilt.floorAndWallLayer.getCell(x, y), layout.floorAndWallLayer.getCell(x, y), x + ", " + y);
+                assertSame(rebuilt.ruleCellLayer.getCell(x, y), layout.ruleCellLayer.getCell(x, y), x + ", " + y);
+                assertSame(rebuilt.holeRuleCellLayer.getCell(x, y), layout.holeRuleCellLayer.getCell(x, y), x + ", " + y);
+                if (!rockTiles.contains(new Vector2Int(x, y))) {
+                    assertEquals(rebuilt.collidablePositions.get(x, y), layout.collidablePositions.get(x, y), x + ", " + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unchangedTilesShouldNotBeRedrawn() {
+        CaveTileLayerBuilder layerBuilder = createLayerBuilder();
+        CaveFloorLayout layout = new CaveFloorGenerator(layerBuilder).generate(1, 3, MAP_SIZE, MAP_SIZE);
+        CaveTerrainEditor editor = new CaveTerrainEditor(layerBuilder, layout);
+        editor.setWall(10, 10, layout.ruleCellPositions.get(10, 10));
+        assertFalse(editor.hasDirtyTiles());
+
+        editor.setWall(10, 10, !layout.ruleCellPositions.get(10, 10));
+        //The 3x3 around it in the wall layer, plus the tile and the 3 faces below it
+        assertEquals(13, editor.refreshDirtyTiles());
+    }
+
+    @Test
+    public void rocksShouldStayCollidableWhenTheTerrainUnderThemChanges() {
+        CaveTileLayerBuilder layerBuilder = createLayerBuilder();
+        CaveFloorLayout layout = new CaveFloorGenerator(layerBuilder).generate(1, 7, MAP_SIZE, MAP_SIZE);
+        CaveTerrainEditor editor = new CaveTerrainEditor(layerBuilder, layout);
+        Vector2Int rock = layout.rockTiles.get(0);
+
+        editor.setHole(rock.x, rock.y, true);
+        assertTrue(layout.collidablePositions.get(rock.x, rock.y));
+        editor.setHole(rock.x, rock.y, false);
+        assertTrue(layout.collidablePositions.get(rock.x, rock.y));
+        editor.setWall(rock.x, rock.y, true);
+        editor.setWall(rock.x, rock.y, false);
+        assertTrue(layout.collidablePositions.get(rock.x, rock.y));
+
+        CaveFloorMemento memento = new CaveFloorMemento(layout.seed);
+        memento.minedRocks.set(0);
+        memento.applyTo(layout);
+        editor.setHole(rock.x, rock.y, true);
+        editor.setHole(rock.x, rock.y, false);
+        assertFalse(layout.collidablePositions.get(rock.x, rock.y));
+    }
+
+    @Test
+    public void rocksMinedOnTheLiveFloorShouldStayGoneWhenTheTerrainUnderThemChanges() {
+        CaveTileLayerBuilder layerBuilder = createLayerBuilder();
+        CaveFloorLayout layout = new CaveFloorGenerator(layerBuilder).generate(1, 7, MAP_SIZE, MAP_SIZE);
+        CaveTerrainEditor editor = new CaveTerrainEditor(layerBuilder, layout);
+        CaveFloorMemento memento = new CaveFloorMemento(layout.seed);
+        Vector2Int rock = layout.rockTiles.get(0);
+
+        memento.mineRock(layout, 0);
+        assertTrue(memento.minedRocks.get(0));
+        assertFalse(layout.collidablePositions.get(rock.x, rock.y));
+        assertTrue(layout.openTiles.contains(rock));
+
+        editor.setHole(rock.x, rock.y, true);
+        assertTrue(layout.collidablePositions.get(rock.x, rock.y));
+        assertFalse(layout.openTiles.contains(rock));
+        editor.setHole(rock.x, rock.y, false);
+        assertFalse(layout.collidablePositions.get(rock.x, rock.y));
+        assertTrue(layout.openTiles.contains(rock));
+    }
+
+    @Test
+    public void openTilesShouldFollowWallEdits() {
+        CaveTileLayerBuilder layerBuilder = createLayerBuilder();
+        CaveFloorLayout layout = new CaveFloorGenerator(layerBuilder).generate(1, 3, MAP_SIZE, MAP_SIZE);
+        CaveTerrainEditor editor = new CaveTerrainEditor(layerBuilder, layout);
+        Vector2Int tile = layout.openTiles.get(0);
+
+        editor.setWall(tile.x, tile.y + 1, true);
+        assertFalse(layout.openTiles.contains(tile));
+        editor.setWall(tile.x, tile.y + 1, false);
+        assertTrue(layout.openTiles.contains(tile));
+        editor.setWall(tile.x, tile.y, true);
+        assertFalse(layout.openTiles.contains(tile));
+        editor.setWall(tile.x, tile.y, false);
+        assertTrue(layout.openTiles.contains(tile));
+    }
+
+    static CaveTileLayerBuilder createLayerBuilder() {
+        RuleCellMetadata metadata = new RuleCellMetadataReader().createMetadataFromString(METADATA);
+        ArrayList<TextureRegion[][]> tilesetRecolors = new ArrayList<>();
+        tilesetRecolors.add(createSpritesheet());
+        return new CaveTileLayerBuilder(tilesetRecolors, createSpritesheet(), metadata, metadata);
+    }
+
+    private static TextureRegion[][] createSpritesheet() {
+        TextureRegion[][] spritesheet = new TextureRegion[6][6];
+        for (TextureRegion[] row : spritesheet) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = new TextureRegion();
+            }
+        }
+        return spritesheet;
+    }
+}
@@ -0,0 +1,86 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import com.mikm.Vector2Int;
+import com.mikm.collections.IntList;
+import com.mikm.rendering.cave.ruleCell.RuleCellTiledMapTileLayer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaveTileLayerBuilderTest {
+    @Test
+    public void onePassShouldMatchBuildingEachLayerSeparately() {
+        CaveTileLayerBuilder layerBuilder = CaveTerrainEditorTest.createLayerBuilder();
+        CaveFloorLayout generated = new CaveFloorGenerator(layerBuilder).generate(2, 21, 200, 150);
+        CaveFloorLayout layout = copyWithoutLayers(generated);
+        layerBuilder.buildLayers(layout);
+        Reference reference = buildSeparately(layerBuilder, generated);
+
+        for (int y = 0; y < layout.height; y++) {
+            for (int x = 0; x < layout.width; x++) {
+                assertSame(reference.floorAndWallLayer.getCell(x, y), layout.floorAndWallLayer.getCell(x, y));
+                assertSame(reference.ruleCellLayer.getCell(x, y), layout.ruleCellLayer.getCell(x, y));
+                assertSame(reference.holeRuleCellLayer.getCell(x, y), layout.holeRuleCellLayer.getCell(x, y));
+                assertSame(reference.ruleCellLayer.ruleCells[y][x], layout.ruleCellLayer.ruleCells[y][x]);
+            }
+        }
+        assertEquals(reference.collidablePositions, layout.collidablePositions);
+        assertEquals(generated.collidablePositions, layout.collidablePositions);
+    }
+
+    private CaveFloorLayout copyWithoutLayers(CaveFloorLayout generated) {
+        CaveFloorLayout layout = new CaveFloorLayout(generated.floor, generated.seed, generated.ruleCellPositions.copy());
+        layout.setHoles(new IntList(generated.holePositions));
+        for (int i = 0; i < generated.rockTiles.size(); i++) {
+            layout.addRock(generated.rockTiles.get(i), generated.rockTypes.get(i));
+        }
+        return layout;
+    }
+
+    private static class Reference {
+        ChunkedTileLayer floorAndWallLayer;
+        RuleCellTiledMapTileLayer ruleCellLayer, holeRuleCellLayer;
+        BitGrid collidablePositions;
+    }
+
+    //How the layers were built before, one full pass for each and another to autotile each rule cell layer
+    private Reference buildSeparately(CaveTileLayerBuilder layerBuilder, CaveFloorLayout layout) {
+        final int width = layout.width, height = layout.height;
+        Reference reference = new Reference();
+        reference.floorAndWallLayer = CaveTileLayerBuilder.createEmptyLayer(width, height);
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                reference.floorAndWallLayer.setCell(x, y, layerBuilder.getFloorOrWallCell(layout.ruleCellPositions, x, y, layerBuilder.getRecolorLevel(layout)));
+            }
+        }
+        reference.floorAndWallLayer.compact();
+
+        reference.ruleCellLayer = CaveTileLayerBuilder.createEmptyRuleCellLayer(width, height);
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                if (layout.ruleCellPositions.get(x, y)) {
+                    reference.ruleCellLayer.setRuleCell(x, y, layerBuilder.getRuleCell(layout));
+                }
+            }
+        }
+        reference.ruleCellLayer.updateRuleCells();
+        reference.ruleCellLayer.compact();
+
+        reference.holeRuleCellLayer = CaveTileLayerBuilder.createEmptyRuleCellLayer(width, height);
+        reference.collidablePositions = layout.ruleCellPositions.copy();
+        for (int i = 0; i < layout.holePositions.size(); i++) {
+            int x = layout.holePositions.get(i) % width, y = layout.holePositions.get(i) / width;
+            reference.holeRuleCellLayer.setRuleCell(x, y, layerBuilder.getHoleRuleCell());
+            reference.collidablePositions.set(x, y);
+        }
+        reference.holeRuleCellLayer.updateRuleCells();
+        reference.holeRuleCellLayer.compact();
+        for (Vector2Int rockTile : layout.rockTiles) {
+            reference.collidablePositions.set(rockTile.x, rockTile.y);
+        }
+        return reference;
+    }
+}
@@ -0,0 +1,77 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellularAutomatonSmootherTest {
+    private static final int[][] SIZES = new int[][]{{130, 130}, {64, 64}, {65, 7}, {1, 1}, {200, 3}};
+
+    @Test
+    public void inPlaceShouldMatchTileByTileSmoothing() {
+        Random random = new Random(21);
+        for (int[] size : SIZES) {
+            BitGrid grid = createRandomGrid(size[0], size[1], random);
+            BitGrid expected = grid.copy();
+            CellularAutomatonSmoother smoother = new CellularAutomatonSmoother(CellularAutomatonSmoother.SmoothingMode.IN_PLACE);
+            for (int i = 0; i < 5; i++) {
+                smoother.smooth(grid);
+                smoothTileByTile(expected, expected);
+            }
+            assertEquals(expected, grid, "Size " + size[0] + "x" + size[1]);
+        }
+    }
+
+    @Test
+    public void doubleBufferedShouldOnlyReadThePreviousPass() {
+        Random random = new Random(21);
+        for (int[] size : SIZES) {
+            BitGrid grid = createRandomGrid(size[0], size[1], random);
+            BitGrid expected = grid.copy();
+            CellularAutomatonSmoother smoother = new CellularAutomatonSmoother(CellularAutomatonSmoother.SmoothingMode.DOUBLE_BUFFERED);
+            for (int i = 0; i < 5; i++) {
+                smoother.smooth(grid);
+                BitGrid previous = expected.copy();
+                smoothTileByTile(previous, expected);
+            }
+            assertEquals(expected, grid, "Size " + size[0] + "x" + size[1]);
+        }
+    }
+
+    private BitGrid createRandomGrid(int width, int height, Random random) {
+        BitGrid grid = new BitGrid(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid.set(x, y, random.nextInt(100) < CaveTilemapCreator.FILL_CELL_PERCENT_CHANCE);
+            }
+        }
+        return grid;
+    }
+
+    //How RuleCellPositionGenerator used to smooth. Reading and writing the same grid gives the in place result.
+    private void smoothTileByTile(BitGrid read, BitGrid write) {
+        for (int y = read.getHeight() - 1; y >= 0; y--) {
+            for (int x = 0; x < read.getWidth(); x++) {
+                int count = 0;
+                for (int i = -1; i <= 1; i++) {
+                    for (int j = -1; j <= 1; j++) {
+                        if (i == 0 && j == 0) {
+                            continue;
+                        }
+                        if (!read.isInBounds(x + j, y + i) || read.get(x + j, y + i)) {
+                            count++;
+                        }
+                    }
+                }
+                if (count > 4) {
+                    write.set(x, y);
+                } else if (count < 4) {
+                    write.clear(x, y);
+                }
+            }
+        }
+    }
+}
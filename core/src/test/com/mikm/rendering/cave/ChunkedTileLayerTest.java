@@ -0,0 +1,125 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedTileLayerTest {
+    private final TextureRegion floorImage = new TextureRegion(), wallImage = new TextureRegion();
+
+    @Test
+    public void cellsShouldReadBackAcrossChunks() {
+        ChunkedTileLayer layer = new ChunkedTileLayer(100, 70, 16, 16);
+        assertEquals(100, layer.getWidth());
+        assertEquals(70, layer.getHeight());
+        layer.setCell(31, 31, createCell(wallImage, 0));
+        layer.setCell(32, 31, createCell(wallImage, 1));
+        layer.setCell(99, 69, createCell(floorImage, 0));
+        layer.setCell(100, 0, createCell(floorImage, 0));
+
+        assertSame(wallImage, layer.getCell(31, 31).getTile().getTextureRegion());
+        assertEquals(1, layer.getCell(32, 31).getRotation());
+        assertSame(floorImage, layer.getCell(99, 69).getTile().getTextureRegion());
+        assertNull(layer.getCell(0, 0));
+        assertNull(layer.getCell(100, 0));
+        assertEquals(3, layer.getPaletteSize());
+    }
+
+    @Test
+    public void equalCellsShouldShareAPaletteEntry() {
+        ChunkedTileLayer layer = new ChunkedTileLayer(64, 64, 16, 16);
+        for (int x = 0; x < 64; x++) {
+            layer.setCell(x, 0, createCell(floorImage, 0));
+        }
+        assertEquals(1, layer.getPaletteSize());
+        assertSame(layer.getCell(0, 0), layer.getCell(63, 0));
+    }
+
+    @Test
+    public void distantChunksShouldBeEvicted() {
+        ChunkedTileLayer layer = new ChunkedTileLayer(128, 32, 16, 16, 2);
+        for (int x = 0; x < 128; x++) {
+            layer.setCell(x, 0, createCell(x % 2 == 0 ? floorImage : wallImage, 0));
+        }
+        layer.getCell(0, 0);
+        layer.getCell(1, 0);
+        layer.getCell(32, 0);
+        layer.getCell(0, 0);
+        assertEquals(2, layer.getChunkMisses());
+        assertEquals(1, layer.getChunkHits());
+
+        layer.getCell(64, 0);
+        layer.getCell(96, 0);
+        assertEquals(2, layer.getChunkEvictions());
+        assertEquals(2, layer.getMaterialisedChunkCount());
+        assertSame(wallImage, layer.getCell(33, 0).getTile().getTextureRegion());
+        assertEquals(5, layer.getChunkMisses());
+
+        layer.setCell(97, 0, createCell(floorImage, 0));
+        assertSame(floorImage, layer.getCell(97, 0).getTile().getTextureRegion());
+    }
+
+    @Test
+    public void uniformChunksShouldNotNeedMaterialising() {
+        ChunkedTileLayer layer = new ChunkedTileLayer(64, 32, 16, 16);
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 64; x++) {
+                layer.setCell(x, y, createCell(floorImage, 0));
+            }
+        }
+        layer.setCell(40, 5, createCell(wallImage, 0));
+        layer.compact();
+        assertSame(floorImage, layer.getCell(3, 3).getTile().getTextureRegion());
+        assertEquals(0, layer.getChunkMisses());
+        assertSame(wallImage, layer.getCell(40, 5).getTile().getTextureRegion());
+        assertEquals(1, layer.getChunkMisses());
+
+        layer.setCell(3, 3, createCell(wallImage, 0));
+        assertSame(wallImage, layer.getCell(3, 3).getTile().getTextureRegion());
+        assertSame(floorImage, layer.getCell(3, 4).getTile().getTextureRegion());
+    }
+
+    @Test
+    public void chunkVersionsShouldOnlyMoveOnRealChanges() {
+        ChunkedTileLayer layer = new ChunkedTileLayer(64, 40, 16, 16);
+        assertEquals(2, layer.getChunksWide());
+        assertEquals(2, layer.getChunksHigh());
+        assertTrue(layer.isChunkEmpty(0, 0));
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 64; x++) {
+                layer.setCell(x, y, createCell(floorImage, 0));
+            }
+        }
+        layer.compact();
+        assertFalse(layer.isChunkEmpty(0, 0));
+        int version = layer.getChunkVersion(1, 0);
+
+        //An equal cell changes nothing, even in a chunk that's stored per tile
+        layer.setCell(40, 5, createCell(floorImage, 0));
+        assertEquals(version, layer.getChunkVersion(1, 0));
+        layer.setCell(40, 5, createCell(wallImage, 0));
+        assertNotEquals(version, layer.getChunkVersion(1, 0));
+        version = layer.getChunkVersion(1, 0);
+        layer.setCell(41, 5, createCell(floorImage, 0));
+        assertEquals(version, layer.getChunkVersion(1, 0));
+        //The top chunks are only partly on the map, so they're stored per tile
+        int partialChunkVersion = layer.getChunkVersion(0, 1);
+        layer.setCell(0, 39, createCell(floorImage, 0));
+        assertEquals(partialChunkVersion, layer.getChunkVersion(0, 1));
+
+        assertSame(wallImage, layer.getStoredCell(40, 5).getTile().getTextureRegion());
+        assertSame(floorImage, layer.getStoredCell(0, 39).getTile().getTextureRegion());
+        assertNull(layer.getStoredCell(64, 0));
+        assertEquals(0, layer.getMaterialisedChunkCount());
+    }
+
+    private TiledMapTileLayer.Cell createCell(TextureRegion image, int rotation) {
+        TiledMapTileLayer.Cell cell = new TiledMapTileLayer.Cell();
+        cell.setTile(new StaticTiledMapTile(image));
+        cell.setRotation(rotation);
+        return cell;
+    }
+}
@@ -0,0 +1,69 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.RandomStream;
+import com.mikm.Vector2Int;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenTileSetTest {
+    @Test
+    public void removingShouldKeepEveryOtherTile() {
+        OpenTileSet tiles = new OpenTileSet(10, 5);
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 10; x++) {
+                assertTrue(tiles.add(x, y));
+            }
+        }
+        assertFalse(tiles.add(3, 3));
+        assertEquals(50, tiles.size());
+
+        assertTrue(tiles.remove(0, 0));
+        assertTrue(tiles.remove(new Vector2Int(9, 4)));
+        assertFalse(tiles.remove(0, 0));
+        assertFalse(tiles.remove(-1, 2));
+        assertFalse(tiles.contains(0, 0));
+        assertFalse(tiles.contains(10, 0));
+        assertTrue(tiles.contains(5, 2));
+
+        HashSet<Vector2Int> remaining = new HashSet<>();
+        for (int i = 0; i < tiles.size(); i++) {
+            remaining.add(tiles.get(i));
+        }
+        assertEquals(48, remaining.size());
+        assertFalse(remaining.contains(new Vector2Int(0, 0)));
+        assertFalse(remaining.contains(new Vector2Int(9, 4)));
+    }
+
+    @Test
+    public void removeAllShouldOnlyRemoveSharedTiles() {
+        OpenTileSet tiles = new OpenTileSet(8, 8);
+        OpenTileSet toRemove = new OpenTileSet(8, 8);
+        for (int x = 0; x < 8; x++) {
+            tiles.add(x, 1);
+            toRemove.add(x, x);
+        }
+        assertEquals(1, tiles.removeAll(toRemove));
+        assertEquals(7, tiles.size());
+        assertFalse(tiles.contains(1, 1));
+        assertEquals(8, toRemove.size());
+    }
+
+    @Test
+    public void randomPicksShouldReachEveryTile() {
+        OpenTileSet tiles = new OpenTileSet(4, 4);
+        tiles.add(0, 0);
+        tiles.add(3, 1);
+        tiles.add(2, 3);
+        RandomStream random = new RandomStream(7);
+        HashSet<Vector2Int> picked = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            Vector2Int tile = tiles.getRandom(random);
+            assertTrue(tiles.contains(tile));
+            picked.add(tile);
+        }
+        assertEquals(3, picked.size());
+    }
+}
@@ -0,0 +1,110 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionLabellerTest {
+    @Test
+    public void regionsShouldMatchFloodFill() {
+        Random random = new Random(21);
+        int[][] sizes = new int[][]{{130, 130}, {64, 20}, {70, 65}, {1, 1}};
+        for (int[] size : sizes) {
+            BitGrid grid = new BitGrid(size[0], size[1]);
+            for (int y = 0; y < size[1]; y++) {
+                for (int x = 0; x < size[0]; x++) {
+                    grid.set(x, y, random.nextInt(100) < 45);
+                }
+            }
+            checkAgainstFloodFill(grid, true);
+            checkAgainstFloodFill(grid, false);
+        }
+    }
+
+    @Test
+    public void uShapeShouldBeOneRegion() {
+        BitGrid grid = new BitGrid(5, 3);
+        grid.set(0, 0);
+        grid.set(0, 1);
+        grid.set(0, 2);
+        grid.set(4, 0);
+        grid.set(4, 1);
+        grid.set(4, 2);
+        for (int x = 0; x < 5; x++) {
+            grid.set(x, 0);
+        }
+        TileRegions regions = RegionLabeller.label(grid, true);
+        assertEquals(1, regions.getRegionCount());
+        assertEquals(9, regions.getSize(0));
+        assertEquals(0, regions.getMinX(0));
+        assertEquals(4, regions.getMaxX(0));
+        assertEquals(2, regions.getMaxY(0));
+    }
+
+    private void checkAgainstFloodFill(BitGrid grid, boolean tileType) {
+        TileRegions regions = RegionLabeller.label(grid, tileType);
+        int[] expectedLabels = new int[grid.getWidth() * grid.getHeight()];
+        Arrays.fill(expectedLabels, -1);
+        int regionCount = 0;
+        for (int y = grid.getHeight() - 1; y >= 0; y--) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                if (grid.get(x, y) == tileType && expectedLabels[y * grid.getWidth() + x] == -1) {
+                    int size = floodFill(grid, tileType, x, y, regionCount, expectedLabels);
+                    assertEquals(size, regions.getSize(regionCount));
+                    regionCount++;
+                }
+            }
+        }
+        assertEquals(regionCount, regions.getRegionCount());
+
+        int[] edgeCounts = new int[regionCount];
+        for (int y = 0; y < grid.getHeight(); y++) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                int label = expectedLabels[y * grid.getWidth() + x];
+                assertEquals(label, regions.getLabel(x, y));
+                if (label != -1 && isEdge(grid, tileType, x, y)) {
+                    edgeCounts[label]++;
+                }
+            }
+        }
+        for (int region = 0; region < regionCount; region++) {
+            assertEquals(edgeCounts[region], regions.getEdgeTileCount(region));
+            for (int i = 0; i < regions.getEdgeTileCount(region); i++) {
+                int tile = regions.getEdgeTile(region, i);
+                assertTrue(isEdge(grid, tileType, regions.getX(tile), regions.getY(tile)));
+            }
+        }
+    }
+
+    private int floodFill(BitGrid grid, boolean tileType, int startX, int startY, int label, int[] labels) {
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        queue.add(new int[]{startX, startY});
+        labels[startY * grid.getWidth() + startX] = label;
+        int size = 0;
+        int[][] directions = new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        while (!queue.isEmpty()) {
+            int[] tile = queue.remove();
+            size++;
+            for (int[] direction : directions) {
+                int x = tile[0] + direction[0], y = tile[1] + direction[1];
+                if (grid.isInBounds(x, y) && grid.get(x, y) == tileType && labels[y * grid.getWidth() + x] == -1) {
+                    labels[y * grid.getWidth() + x] = label;
+                    queue.add(new int[]{x, y});
+                }
+            }
+        }
+        return size;
+    }
+
+    private boolean isEdge(BitGrid grid, boolean tileType, int x, int y) {
+        return (grid.isInBounds(x + 1, y) && grid.get(x + 1, y) != tileType)
+                || (grid.isInBounds(x - 1, y) && grid.get(x - 1, y) != tileType)
+                || (grid.isInBounds(x, y + 1) && grid.get(x, y + 1) != tileType)
+                || (grid.isInBounds(x, y - 1) && grid.get(x, y - 1) != tileType);
+    }
+}
@@ -0,0 +1,227 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import com.mikm.Vector2Int;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomConnectorTest {
+    @Test
+    public void compatibleModeShouldMatchAllPairsSearch() {
+        for (int seed = 0; seed < 50; seed++) {
+            BitGrid cave = createCave(130, 130, seed);
+            ArrayList<CaveRoom> rooms = createRooms(cave);
+            ArrayList<ReferenceRoom> referenceRooms = createReferenceRooms(cave);
+
+            ArrayList<RoomConnector.RoomConnection> connections = new RoomConnector(RoomConnector.ConnectionMode.COMPATIBLE, 0).connectRooms(rooms, 130, 130);
+            ArrayList<Vector2Int[]> expected = new ArrayList<>();
+            connectClosestRooms(referenceRooms, false, expected);
+
+            assertEquals(expected.size(), connections.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i)[0], connections.get(i).tileA, "seed " + seed);
+                assertEquals(expected.get(i)[1], connections.get(i).tileB, "seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    public void minimumSpanningTreeShouldReachEveryRoom() {
+        for (int seed = 0; seed < 10; seed++) {
+            BitGrid cave = createCave(130, 130, seed);
+            ArrayList<CaveRoom> rooms = createRooms(cave);
+            ArrayList<RoomConnector.RoomConnection> connections = new RoomConnector(RoomConnector.ConnectionMode.MINIMUM_SPANNING_TREE, 2).connectRooms(rooms, 130, 130);
+            for (CaveRoom room : rooms) {
+                assertTrue(room.isAccesibleFromMainRoom);
+            }
+            assertTrue(connections.size() >= rooms.size() - 1);
+            assertTrue(connections.size() <= rooms.size() - 1 + 2);
+        }
+    }
+
+    private BitGrid createCave(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BitGrid cave = new BitGrid(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean border = x == 0 || y == 0 || x == width - 1 || y == height - 1;
+                cave.set(x, y, border || random.nextInt(100) < CaveTilemapCreator.FILL_CELL_PERCENT_CHANCE);
+            }
+        }
+        CellularAutomatonSmoother smoother = new CellularAutomatonSmoother(CellularAutomatonSmoother.SmoothingMode.IN_PLACE);
+        for (int i = 0; i < 5; i++) {
+            smoother.smooth(cave);
+        }
+        return cave;
+    }
+
+    private ArrayList<CaveRoom> createRooms(BitGrid cave) {
+        TileRegions roomRegions = RegionLabeller.label(cave, false);
+        ArrayList<CaveRoom> rooms = new ArrayList<>();
+        for (int region = 0; region < roomRegions.getRegionCount(); region++) {
+            if (roomRegions.getSize(region) >= 5) {
+                rooms.add(new CaveRoom(roomRegions, region));
+            }
+        }
+        rooms.sort(Comparator.naturalOrder());
+        rooms.get(0).isMainRoom = true;
+        rooms.get(0).isAccesibleFromMainRoom = true;
+        return rooms;
+    }
+
+    //Rooms the way CaveRoom used to build them, from flood filled regions with an edge tile added once for every
+    //wall next to it
+    private ArrayList<ReferenceRoom> createReferenceRooms(BitGrid cave) {
+        ArrayList<ReferenceRoom> rooms = new ArrayList<>();
+        boolean[][] mapFlags = new boolean[cave.getHeight()][cave.getWidth()];
+        for (int y = cave.getHeight() - 1; y >= 0; y--) {
+            for (int x = 0; x < cave.getWidth(); x++) {
+                if (!mapFlags[y][x] && !cave.get(x, y)) {
+                    ArrayList<Vector2Int> region = floodFill(cave, x, y);
+                    for (Vector2Int tile : region) {
+                        mapFlags[tile.y][tile.x] = true;
+                    }
+                    if (region.size() >= 5) {
+                        rooms.add(new ReferenceRoom(region, cave));
+                    }
+                }
+            }
+        }
+        rooms.sort(Comparator.naturalOrder());
+        rooms.get(0).isAccesibleFromMainRoom = true;
+        return rooms;
+    }
+
+    private ArrayList<Vector2Int> floodFill(BitGrid cave, int startX, int startY) {
+        ArrayList<Vector2Int> tiles = new ArrayList<>();
+        boolean[][] mapFlags = new boolean[cave.getHeight()][cave.getWidth()];
+        LinkedList<Vector2Int> queue = new LinkedList<>();
+        queue.add(new Vector2Int(startX, startY));
+        mapFlags[startY][startX] = true;
+        while (queue.size() > 0) {
+            Vector2Int tile = queue.remove();
+            tiles.add(tile);
+            for (int y = tile.y - 1; y <= tile.y + 1; y++) {
+                for (int x = tile.x - 1; x <= tile.x + 1; x++) {
+                    boolean inMap = x >= 0 && x < cave.getWidth() && y >= 0 && y < cave.getHeight();
+                    if (inMap && (y == tile.y || x == tile.x) && !mapFlags[y][x] && !cave.get(x, y)) {
+                        mapFlags[y][x] = true;
+                        queue.add(new Vector2Int(x, y));
+                    }
+                }
+            }
+        }
+        return tiles;
+    }
+
+    private static class ReferenceRoom implements Comparable<ReferenceRoom> {
+        final ArrayList<Vector2Int> edgeTiles = new ArrayList<>();
+        final ArrayList<ReferenceRoom> connectedRooms = new ArrayList<>();
+        final int roomSize;
+        boolean isAccesibleFromMainRoom;
+
+        ReferenceRoom(ArrayList<Vector2Int> tiles, BitGrid cave) {
+            roomSize = tiles.size();
+            for (Vector2Int tile : tiles) {
+                for (int y = tile.y - 1; y <= tile.y + 1; y++) {
+                    for (int x = tile.x - 1; x <= tile.x + 1; x++) {
+                        if ((x == tile.x || y == tile.y) && cave.get(x, y)) {
+                            edgeTiles.add(tile);
+                        }
+                    }
+                }
+            }
+        }
+
+        void setAccesibleFromMainRoom() {
+            if (!isAccesibleFromMainRoom) {
+                isAccesibleFromMainRoom = true;
+                for (ReferenceRoom connectedRoom : connectedRooms) {
+                    connectedRoom.setAccesibleFromMainRoom();
+                }
+            }
+        }
+
+        static void connectRooms(ReferenceRoom roomA, ReferenceRoom roomB) {
+            if (roomA.isAccesibleFromMainRoom) {
+                roomB.setAccesibleFromMainRoom();
+            } else if (roomB.isAccesibleFromMainRoom) {
+                roomA.setAccesibleFromMainRoom();
+            }
+            roomA.connectedRooms.add(roomB);
+            roomB.connectedRooms.add(roomA);
+        }
+
+        @Override
+        public int compareTo(ReferenceRoom otherRoom) {
+            return Integer.compare(otherRoom.roomSize, roomSize);
+        }
+    }
+
+    //The all-pairs search RuleCellPositionGenerator used before RoomConnector
+    private void connectClosestRooms(ArrayList<ReferenceRoom> allRooms, boolean forceAccessibilityFromMainRoom, ArrayList<Vector2Int[]> output) {
+        ArrayList<ReferenceRoom> roomListA = new ArrayList<>();
+        ArrayList<ReferenceRoom> roomListB = new ArrayList<>();
+        if (forceAccessibilityFromMainRoom) {
+            for (ReferenceRoom room : allRooms) {
+                if (room.isAccesibleFromMainRoom) {
+                    roomListB.add(room);
+                } else {
+                    roomListA.add(room);
+                }
+            }
+        } else {
+            roomListA = allRooms;
+            roomListB = allRooms;
+        }
+
+        int bestDistance = 0;
+        Vector2Int bestTileA = null, bestTileB = null;
+        ReferenceRoom bestRoomA = null, bestRoomB = null;
+        boolean possibleConnectionFound = false;
+        for (ReferenceRoom roomA : roomListA) {
+            if (!forceAccessibilityFromMainRoom) {
+                possibleConnectionFound = false;
+                if (roomA.connectedRooms.size() > 0) {
+                    continue;
+                }
+            }
+            for (ReferenceRoom roomB : roomListB) {
+                if (roomA == roomB || roomA.connectedRooms.contains(roomB)) {
+                    continue;
+                }
+                for (Vector2Int tileA : roomA.edgeTiles) {
+                    for (Vector2Int tileB : roomB.edgeTiles) {
+                        int distanceBetweenRooms = (int) (Math.pow(tileA.x - tileB.x, 2) + Math.pow(tileA.y - tileB.y, 2));
+                        if (distanceBetweenRooms < bestDistance || !possibleConnectionFound) {
+                            bestDistance = distanceBetweenRooms;
+                            possibleConnectionFound = true;
+                            bestTileA = tileA;
+                            bestTileB = tileB;
+                            bestRoomA = roomA;
+                            bestRoomB = roomB;
+                        }
+                    }
+                }
+            }
+            if (possibleConnectionFound && !forceAccessibilityFromMainRoom) {
+                ReferenceRoom.connectRooms(bestRoomA, bestRoomB);
+                output.add(new Vector2Int[]{bestTileA, bestTileB});
+            }
+        }
+        if (possibleConnectionFound && forceAccessibilityFromMainRoom) {
+            ReferenceRoom.connectRooms(bestRoomA, bestRoomB);
+            output.add(new Vector2Int[]{bestTileA, bestTileB});
+            connectClosestRooms(allRooms, true, output);
+        }
+        if (!forceAccessibilityFromMainRoom) {
+            connectClosestRooms(allRooms, true, output);
+        }
+    }
+}
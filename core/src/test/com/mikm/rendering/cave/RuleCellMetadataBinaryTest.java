@@ -0,0 +1,61 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.Vector2Int;
+import com.mikm.rendering.cave.ruleCell.RuleCellLookupTable;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadataBinary;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadataReader;
+import com.mikm.rendering.cave.ruleCell.TileRuleset;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleCellMetadataBinaryTest {
+    private static final String METADATA = "[0,0]\nxxx\nx-x\nxxx\n[1,0]R\noxx\nx-x\nxxx\n[2,0]H\noxx\nx-x\nxxo\n"
+            + "[0,3]\n-o-\no-o\n-o-\n[12,3]V\n-x-\no-o\n-o-\n[5,10]H\n-o-\nx-x\nxxo\n";
+
+    @Test
+    public void compiledMetadataShouldTileTheSameAsText() {
+        RuleCellMetadata text = new RuleCellMetadataReader().createMetadataFromString(METADATA);
+        RuleCellMetadata compiled = RuleCellMetadataBinary.read(RuleCellMetadataBinary.write(text));
+        for (int mask = 0; mask < RuleCellLookupTable.MASK_COUNT; mask++) {
+            assertEquals(text.getLookupTable().getPositionInImage(mask), compiled.getLookupTable().getPositionInImage(mask));
+            TileRuleset expected = text.getLookupTable().getTileRuleset(mask);
+            TileRuleset actual = compiled.getLookupTable().getTileRuleset(mask);
+            if (expected != null) {
+                assertArrayEquals(expected.array, actual.array);
+                assertEquals(expected.rotation, actual.rotation);
+                assertEquals(expected.flippedHorizontally, actual.flippedHorizontally);
+                assertEquals(expected.flippedVertically, actual.flippedVertically);
+            }
+        }
+    }
+
+    @Test
+    public void positionsShouldReadWithAnyNumberOfDigits() {
+        RuleCellMetadata metadata = new RuleCellMetadataReader().createMetadataFromString(METADATA);
+        boolean foundTwoDigitPosition = false;
+        for (int mask = 0; mask < RuleCellLookupTable.MASK_COUNT; mask++) {
+            if (new Vector2Int(12, 3).equals(metadata.getLookupTable().getPositionInImage(mask))) {
+                foundTwoDigitPosition = true;
+            }
+        }
+        assertTrue(foundTwoDigitPosition);
+        assertEquals("images/holes.meta.bin", RuleCellMetadataBinary.getCompiledPath("images/holes.meta.txt"));
+    }
+
+    @Test
+    public void brokenFilesShouldThrow() {
+        RuleCellMetadataReader reader = new RuleCellMetadataReader();
+        assertThrows(RuntimeException.class, () -> reader.createMetadataFromString("[1,2]\nxxx\nx-x\n"));
+        assertThrows(RuntimeException.class, () -> reader.createMetadataFromString("[1,2\nxxx\nx-x\nxxx\n"));
+        assertThrows(RuntimeException.class, () -> reader.createMetadataFromString("[1]\nxxx\nx-x\nxxx\n"));
+
+        byte[] compiled = RuleCellMetadataBinary.write(reader.createMetadataFromString(METADATA));
+        assertThrows(RuntimeException.class, () -> RuleCellMetadataBinary.read(Arrays.copyOf(compiled, compiled.length - 3)));
+        compiled[0]++;
+        assertThrows(RuntimeException.class, () -> RuleCellMetadataBinary.read(compiled));
+    }
+}
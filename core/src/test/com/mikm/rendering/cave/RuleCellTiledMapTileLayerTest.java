@@ -1,13 +1,24 @@
 package com.mikm.rendering.cave;
 
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.mikm.Vector2Int;
+import com.mikm.rendering.cave.ruleCell.CellPresence;
 import com.mikm.rendering.cave.ruleCell.RuleCell;
+import com.mikm.rendering.cave.ruleCell.RuleCellLookupTable;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadataReader;
 import com.mikm.rendering.cave.ruleCell.RuleCellTiledMapTileLayer;
+import com.mikm.rendering.cave.ruleCell.TileRuleset;
+import com.mikm.rendering.cave.ruleCell.TileRulesetTransformer;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 
 class RuleCellTiledMapTileLayerTest {
+    private static final String METADATA = "[0,0]\nxxx\nx-x\nxxx\n[1,0]R\noxx\nx-x\nxxx\n[2,0]H\noxx\nx-x\nxxo\n"
+            + "[0,3]\n-o-\no-o\n-o-\n[1,3]\n-x-\no-o\n-o-\n[5,3]H\n-o-\nx-x\nxxo\n";
+
     @Test
     public void metadataShouldGivePointerNotCopy() {
         RuleCellTiledMapTileLayer tiledMapTileLayer = new RuleCellTiledMapTileLayer(16, 16, 16, 16);
@@ -16,4 +27,98 @@ class RuleCellTiledMapTileLayerTest {
         tiledMapTileLayer.ruleCells[0][1] = metadataMock;
         assertEquals(tiledMapTileLayer.ruleCells[0][0], tiledMapTileLayer.ruleCells[0][1]);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void lookupTableShouldMatchTryingEveryRuleset() {
+        RuleCellLookupTable lookupTable = new RuleCellMetadataReader().createMetadataFromString(METADATA).getLookupTable();
+        Vector2Int[] positions = {new Vector2Int(0, 0), new Vector2Int(1, 0), new Vector2Int(2, 0),
+                new Vector2Int(0, 3), new Vector2Int(1, 3), new Vector2Int(5, 3)};
+        TileRuleset[][] rulesetsInOrder = {
+                {createRuleset("xxx", "x-x", "xxx")},
+                TileRulesetTransformer.createRotatedRulesetsFrom(createRuleset("oxx", "x-x", "xxx")),
+                TileRulesetTransformer.createHorizontallyFlippedRulesetsFrom(createRuleset("oxx", "x-x", "xxo")),
+                {createRuleset("-o-", "o-o", "-o-")},
+                {createRuleset("-x-", "o-o", "-o-")},
+                TileRulesetTransformer.createHorizontallyFlippedRulesetsFrom(createRuleset("-o-", "x-x", "xxo"))};
+        for (int mask = 0; mask < RuleCellLookupTable.MASK_COUNT; mask++) {
+            Vector2Int expectedPosition = null;
+            TileRuleset expected = null;
+            TileRuleset comparisons = createComparisons(mask);
+            for (int i = 0; i < rulesetsInOrder.length && expected == null; i++) {
+                for (TileRuleset ruleset : rulesetsInOrder[i]) {
+                    if (comparisons.fits(ruleset)) {
+                        expectedPosition = positions[i];
+                        expected = ruleset;
+                        break;
+                    }
+                }
+            }
+            assertEquals(expectedPosition, lookupTable.getPositionInImage(mask), "mask " + mask);
+            if (expected != null) {
+                TileRuleset actual = lookupTable.getTileRuleset(mask);
+                assertArrayEquals(expected.array, actual.array, "mask " + mask);
+                assertEquals(expected.rotation, actual.rotation);
+                assertEquals(expected.flippedHorizontally, actual.flippedHorizontally);
+                assertEquals(expected.flippedVertically, actual.flippedVertically);
+            }
+        }
+    }
+
+    @Test
+    public void earlierPositionsShouldWinWhenRulesetsOverlap() {
+        RuleCellMetadata metadata = new RuleCellMetadataReader().createMetadataFromString("[3,2]\n---\n---\n---\n" + METADATA);
+        assertEquals(new Vector2Int(3, 2), metadata.getLookupTable().getPositionInImage(255));
+        metadata = new RuleCellMetadataReader().createMetadataFromString(METADATA + "[3,2]\n---\n---\n---\n");
+        assertEquals(new Vector2Int(0, 0), metadata.getLookupTable().getPositionInImage(255));
+    }
+
+    @Test
+    public void layerShouldTileFromNeighbourMasks() {
+        TextureRegion[][] spritesheet = new TextureRegion[6][6];
+        for (TextureRegion[] row : spritesheet) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = new TextureRegion();
+            }
+        }
+        RuleCell ruleCell = new RuleCell(spritesheet, new RuleCellMetadataReader().createMetadataFromString(METADATA));
+        RuleCellTiledMapTileLayer layer = new RuleCellTiledMapTileLayer(5, 5, 16, 16);
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 5; x++) {
+                if (x != 2 || y != 2) {
+                    layer.setRuleCell(x, y, ruleCell);
+                }
+            }
+        }
+        layer.updateRuleCells();
+
+        assertSame(spritesheet[0][0], layer.getCell(0, 0).getTile().getTextureRegion());
+        assertSame(layer.getCell(0, 0), layer.getCell(4, 4));
+        assertNull(layer.getCell(2, 2));
+        //Only missing the bottom right neighbour, which is [1,0] rotated twice
+        assertSame(spritesheet[0][1], layer.getCell(1, 3).getTile().getTextureRegion());
+        assertEquals(2, layer.getCell(1, 3).getRotation());
+    }
+
+    //Rows from the top, like in the metadata files
+    private TileRuleset createRuleset(String... rows) {
+        CellPresence[][] rules = new CellPresence[3][3];
+        for (int row = 0; row < 3; row++) {
+            for (int x = 0; x < 3; x++) {
+                char rule = rows[row].charAt(x);
+                rules[2 - row][x] = rule == 'x' ? CellPresence.Full : rule == 'o' ? CellPresence.Empty : CellPresence.Either;
+            }
+        }
+        return new TileRuleset(rules);
+    }
+
+    private TileRuleset createComparisons(int mask) {
+        CellPresence[][] comparisons = new CellPresence[3][3];
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                boolean full = !(dx == 0 && dy == 0) && (mask & RuleCellLookupTable.getNeighbourBit(dx, dy)) != 0;
+                comparisons[dy + 1][dx + 1] = dx == 0 && dy == 0 ? CellPresence.Either : full ? CellPresence.Full : CellPresence.Empty;
+            }
+        }
+        return new TileRuleset(comparisons);
+    }
+}
@@ -0,0 +1,38 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileCellCacheTest {
+    private final TextureRegion floorImage = new TextureRegion(), wallImage = new TextureRegion();
+
+    @Test
+    public void equalCellsShouldBeTheSameObject() {
+        TileCellCache cellCache = new TileCellCache();
+        TiledMapTileLayer.Cell cell = cellCache.getCell(wallImage, 1, true, false);
+        assertSame(cell, cellCache.getCell(wallImage, 1, true, false));
+        assertNotSame(cell, cellCache.getCell(wallImage, 2, true, false));
+        assertSame(cell.getTile(), cellCache.getCell(wallImage, 2, true, false).getTile());
+        assertSame(wallImage, cell.getTile().getTextureRegion());
+        assertEquals(1, cell.getRotation());
+        assertTrue(cell.getFlipHorizontally());
+
+        cellCache.getCell(floorImage);
+        assertEquals(2, cellCache.getHits());
+        assertEquals(3, cellCache.getMisses());
+        assertEquals(.4f, cellCache.getHitRate(), .0001f);
+        //Three cells, two tiles
+        assertEquals(5, cellCache.getLiveObjectCount());
+    }
+
+    @Test
+    public void sharedCellsShouldNotChange() {
+        TiledMapTileLayer.Cell cell = new TileCellCache().getCell(floorImage);
+        assertThrows(UnsupportedOperationException.class, () -> cell.setRotation(2));
+        assertThrows(UnsupportedOperationException.class, () -> cell.setFlipVertically(true));
+        assertEquals(0, cell.getRotation());
+    }
+}
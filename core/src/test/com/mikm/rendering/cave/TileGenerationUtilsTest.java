@@ -0,0 +1,107 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+import com.mikm.Vector2Int;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileGenerationUtilsTest {
+    private static final int MAP_SIZE = 130;
+
+    @Test
+    public void linesShouldMatchTheListBasedDrawing() {
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            Vector2Int from = new Vector2Int(random.nextInt(MAP_SIZE), random.nextInt(MAP_SIZE));
+            Vector2Int to = new Vector2Int(random.nextInt(MAP_SIZE), random.nextInt(MAP_SIZE));
+            int lineWidth = random.nextInt(4);
+            ArrayList<Vector2Int> expected = getReferenceLinePositions(from, to, lineWidth);
+
+            ArrayList<Vector2Int> visited = new ArrayList<>();
+            TileGenerationUtils.visitLinePositions(from.x, from.y, to.x, to.y, lineWidth, MAP_SIZE, MAP_SIZE, (x, y) -> visited.add(new Vector2Int(x, y)));
+            if (lineWidth == 0) {
+                //Thin lines never checked for repeats
+                assertEquals(expected, visited);
+            } else {
+                assertEquals(expected, new ArrayList<>(new LinkedHashSet<>(visited)));
+                assertEquals(expected, TileGenerationUtils.getLinePositions(from, to, lineWidth, MAP_SIZE, MAP_SIZE));
+            }
+
+            BitGrid stamped = new BitGrid(MAP_SIZE, MAP_SIZE);
+            TileGenerationUtils.stampLine(stamped, from.x, from.y, to.x, to.y, lineWidth, true);
+            BitGrid expectedGrid = new BitGrid(MAP_SIZE, MAP_SIZE);
+            for (Vector2Int tile : expected) {
+                if (expectedGrid.isInBounds(tile.x, tile.y)) {
+                    expectedGrid.set(tile.x, tile.y);
+                }
+            }
+            assertEquals(expectedGrid, stamped);
+        }
+    }
+
+    private ArrayList<Vector2Int> getReferenceLinePositions(Vector2Int from, Vector2Int to, int lineWidth) {
+        return getReferenceLinePositions(from, to, lineWidth, MAP_SIZE);
+    }
+
+    //How lines were drawn before they were visited tile by tile
+    private ArrayList<Vector2Int> getReferenceLinePositions(Vector2Int from, Vector2Int to, int lineWidth, int mapSize) {
+        ArrayList<Vector2Int> output = new ArrayList<>();
+        int x = from.x, y = from.y;
+        int dx = to.x - from.x, dy = to.y - from.y;
+        boolean inverted = false;
+        int step = Integer.signum(dx), gradientStep = Integer.signum(dy);
+        int longest = Math.abs(dx), shortest = Math.abs(dy);
+        if (longest < shortest) {
+            inverted = true;
+            longest = Math.abs(dy);
+            shortest = Math.abs(dx);
+            step = Integer.signum(dy);
+            gradientStep = Integer.signum(dx);
+        }
+        int gradientAccumulation = longest / 2;
+        for (int i = 0; i < longest; i++) {
+            drawReferenceCircle(output, new Vector2Int(x, y), lineWidth, mapSize);
+            if (inverted) {
+                y += step;
+            } else {
+                x += step;
+            }
+            gradientAccumulation += shortest;
+            if (gradientAccumulation >= longest) {
+                if (inverted) {
+                    x += gradientStep;
+                } else {
+                    y += gradientStep;
+                }
+                gradientAccumulation -= longest;
+            }
+        }
+        return output;
+    }
+
+    private void drawReferenceCircle(List<Vector2Int> addTo, Vector2Int center, int r, int mapSize) {
+        if (r == 0) {
+            addTo.add(center);
+            addTo.add(new Vector2Int(center.x + 1, center.y));
+            addTo.add(new Vector2Int(center.x, center.y + 1));
+            return;
+        }
+        for (int x = -r; x <= r; x++) {
+            for (int y = -r; y <= r; y++) {
+                int drawX = center.x + x, drawY = center.y + y;
+                if (x * x + y * y <= r * r && drawX >= 0 && drawX < mapSize && drawY >= 0 && drawY < mapSize) {
+                    Vector2Int point = new Vector2Int(drawX, drawY);
+                    if (!addTo.contains(point)) {
+                        addTo.add(point);
+                    }
+                }
+            }
+        }
+    }
+}
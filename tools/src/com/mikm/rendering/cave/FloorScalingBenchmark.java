@@ -0,0 +1,52 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadataReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Generates one floor at each map size and reports the time per tile, to check generation still grows with map area
+ * and not faster. Each size prints its stage report too, so a stage that stopped scaling shows up by name.
+ * Run it with gradlew tools:run -PmainClass=com.mikm.rendering.cave.FloorScalingBenchmark --args="[size ...]" from the root.
+ */
+public class FloorScalingBenchmark {
+    private static final int[] DEFAULT_SIZES = {130, 512, 1024, 2048};
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        RuleCellMetadataReader reader = new RuleCellMetadataReader();
+        RuleCellMetadata caveTilesMetadata = reader.createMetadataFromString(readAsset("images/caveTiles.meta.txt"));
+        RuleCellMetadata holesMetadata = reader.createMetadataFromString(readAsset("images/holes.meta.txt"));
+        CaveFloorGenerator generator = CaveFloorGenerator.createHeadless(caveTilesMetadata, holesMetadata);
+        generator.generate(1, -1, 512, 512);
+
+        double[] nanosPerTile = new double[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            long start = System.nanoTime();
+            CaveFloorLayout layout = generator.generate(1, i, sizes[i], sizes[i]);
+            long elapsed = System.nanoTime() - start;
+            nanosPerTile[i] = (double) elapsed / ((long) sizes[i] * sizes[i]);
+            System.out.printf(Locale.ROOT, "%dx%d: %.1f ms, %.1f ns per tile, %d holes, %d enemies%n", sizes[i], sizes[i],
+                    elapsed / 1e6, nanosPerTile[i], layout.holePositions.size(), layout.enemyTiles.size());
+            System.out.print(layout.generationReport);
+        }
+        //Per tile time staying flat means linear in area, a quadratic step makes it climb with every size
+        System.out.printf(Locale.ROOT, "Largest map costs %.2fx the smallest per tile%n", nanosPerTile[sizes.length - 1] / nanosPerTile[0]);
+    }
+
+    private static String readAsset(String path) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    }
+}
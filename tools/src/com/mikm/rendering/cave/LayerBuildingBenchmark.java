@@ -0,0 +1,128 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.mikm.BitGrid;
+import com.mikm.Vector2Int;
+import com.mikm.collections.IntList;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadataReader;
+import com.mikm.rendering.cave.ruleCell.RuleCellTiledMapTileLayer;
+import com.mikm.rendering.screens.CaveScreen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Times CaveTileLayerBuilder building a floor's layers in one pass against building each layer in its own pass, the
+ * way they were built before. It's in the cave package because the layer builder is package private.
+ * Run it with gradlew tools:run -PmainClass=com.mikm.rendering.cave.LayerBuildingBenchmark --args="[size] [runs]" from the root.
+ */
+public class LayerBuildingBenchmark {
+    private static class SeparateLayers {
+        ChunkedTileLayer floorAndWallLayer;
+        RuleCellTiledMapTileLayer ruleCellLayer, holeRuleCellLayer;
+        BitGrid collidablePositions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        final int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        RuleCellMetadataReader reader = new RuleCellMetadataReader();
+        RuleCellMetadata caveTilesMetadata = reader.createMetadataFromString(readAsset("images/caveTiles.meta.txt"));
+        RuleCellMetadata holesMetadata = reader.createMetadataFromString(readAsset("images/holes.meta.txt"));
+        ArrayList<TextureRegion[][]> tilesetRecolors = new ArrayList<>();
+        for (int i = 0; i < CaveScreen.LAST_FLOOR / CaveScreen.FLOORS_PER_LEVEL + 1; i++) {
+            tilesetRecolors.add(CaveFloorGenerator.createBlankSpritesheet());
+        }
+        CaveTileLayerBuilder layerBuilder = new CaveTileLayerBuilder(tilesetRecolors, CaveFloorGenerator.createBlankSpritesheet(), caveTilesMetadata, holesMetadata);
+        CaveFloorLayout generated = new CaveFloorGenerator(layerBuilder).generate(5, 8, size, size);
+
+        //The first run warms up
+        for (int run = 0; run <= runs; run++) {
+            long start = System.nanoTime();
+            SeparateLayers separateLayers = buildSeparately(layerBuilder, generated);
+            long separateNanos = System.nanoTime() - start;
+
+            CaveFloorLayout layout = copyWithoutLayers(generated);
+            start = System.nanoTime();
+            layerBuilder.buildLayers(layout);
+            long onePassNanos = System.nanoTime() - start;
+            checkSameLayers(separateLayers, layout);
+            if (run > 0) {
+                System.out.printf(Locale.ROOT, "%dx%d layers: %.2f ms in separate passes, %.2f ms in one%n", size, size,
+                        separateNanos / 1e6, onePassNanos / 1e6);
+            }
+        }
+    }
+
+    private static CaveFloorLayout copyWithoutLayers(CaveFloorLayout generated) {
+        CaveFloorLayout layout = new CaveFloorLayout(generated.floor, generated.seed, generated.ruleCellPositions.copy());
+        layout.setHoles(new IntList(generated.holePositions));
+        for (int i = 0; i < generated.rockTiles.size(); i++) {
+            layout.addRock(generated.rockTiles.get(i), generated.rockTypes.get(i));
+        }
+        return layout;
+    }
+
+    //How the layers were built before, one full pass for each and another to autotile each rule cell layer
+    private static SeparateLayers buildSeparately(CaveTileLayerBuilder layerBuilder, CaveFloorLayout layout) {
+        final int width = layout.width, height = layout.height;
+        SeparateLayers layers = new SeparateLayers();
+        layers.floorAndWallLayer = CaveTileLayerBuilder.createEmptyLayer(width, height);
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                layers.floorAndWallLayer.setCell(x, y, layerBuilder.getFloorOrWallCell(layout.ruleCellPositions, x, y, layerBuilder.getRecolorLevel(layout)));
+            }
+        }
+        layers.floorAndWallLayer.compact();
+
+        layers.ruleCellLayer = CaveTileLayerBuilder.createEmptyRuleCellLayer(width, height);
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                if (layout.ruleCellPositions.get(x, y)) {
+                    layers.ruleCellLayer.setRuleCell(x, y, layerBuilder.getRuleCell(layout));
+                }
+            }
+        }
+        layers.ruleCellLayer.updateRuleCells();
+        layers.ruleCellLayer.compact();
+
+        layers.holeRuleCellLayer = CaveTileLayerBuilder.createEmptyRuleCellLayer(width, height);
+        layers.collidablePositions = layout.ruleCellPositions.copy();
+        for (int i = 0; i < layout.holePositions.size(); i++) {
+            int x = layout.holePositions.get(i) % width, y = layout.holePositions.get(i) / width;
+            layers.holeRuleCellLayer.setRuleCell(x, y, layerBuilder.getHoleRuleCell());
+            layers.collidablePositions.set(x, y);
+        }
+        layers.holeRuleCellLayer.updateRuleCells();
+        layers.holeRuleCellLayer.compact();
+        for (Vector2Int rockTile : layout.rockTiles) {
+            layers.collidablePositions.set(rockTile.x, rockTile.y);
+        }
+        return layers;
+    }
+
+    private static void checkSameLayers(SeparateLayers separateLayers, CaveFloorLayout layout) {
+        for (int y = 0; y < layout.height; y++) {
+            for (int x = 0; x < layout.width; x++) {
+                if (separateLayers.floorAndWallLayer.getCell(x, y) != layout.floorAndWallLayer.getCell(x, y)
+                        || separateLayers.ruleCellLayer.getCell(x, y) != layout.ruleCellLayer.getCell(x, y)
+                        || separateLayers.holeRuleCellLayer.getCell(x, y) != layout.holeRuleCellLayer.getCell(x, y)) {
+                    throw new RuntimeException("One pass built a different cell at " + x + ", " + y);
+                }
+            }
+        }
+        if (!separateLayers.collidablePositions.equals(layout.collidablePositions)) {
+            throw new RuntimeException("One pass built different collision");
+        }
+    }
+
+    private static String readAsset(String path) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+package com.mikm.rendering.cave;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.mikm.BitGrid;
+import com.mikm.Vector2Int;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Times TileGenerationUtils' stamped and visited lines against drawing them into lists of Vector2Ints, the way
+ * passages and chasms used to be drawn. Passages are wide lines stamped into a BitGrid, chasms are short thin lines.
+ * Run it with gradlew tools:run -PmainClass=com.mikm.rendering.cave.LineDrawingBenchmark --args="[size] [passages] [chasms]".
+ */
+public class LineDrawingBenchmark {
+    public static void main(String[] args) {
+        final int mapSize = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        final int passages = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        final int chasms = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+
+        Random random = new Random(11);
+        int[] passageEnds = new int[passages * 4];
+        for (int i = 0; i < passageEnds.length; i++) {
+            passageEnds[i] = random.nextInt(mapSize);
+        }
+        float[] chasmAngles = new float[chasms];
+        int[] chasmStarts = new int[chasms * 2];
+        for (int i = 0; i < chasms; i++) {
+            chasmAngles[i] = random.nextFloat() * MathUtils.PI2;
+            chasmStarts[i * 2] = random.nextInt(mapSize);
+            chasmStarts[i * 2 + 1] = random.nextInt(mapSize);
+        }
+
+        //The first run warms up
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            BitGrid referenceCave = new BitGrid(mapSize, mapSize);
+            for (int i = 0; i < passages; i++) {
+                for (Vector2Int tile : getReferenceLinePositions(new Vector2Int(passageEnds[i * 4], passageEnds[i * 4 + 1]),
+                        new Vector2Int(passageEnds[i * 4 + 2], passageEnds[i * 4 + 3]), 1, mapSize)) {
+                    referenceCave.set(tile.x, tile.y);
+                }
+            }
+            long referencePassageNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            BitGrid cave = new BitGrid(mapSize, mapSize);
+            for (int i = 0; i < passages; i++) {
+                TileGenerationUtils.stampLine(cave, passageEnds[i * 4], passageEnds[i * 4 + 1], passageEnds[i * 4 + 2], passageEnds[i * 4 + 3], 1, true);
+            }
+            long passageNanos = System.nanoTime() - start;
+            if (!referenceCave.equals(cave)) {
+                throw new RuntimeException("Stamped passages gave a different cave");
+            }
+
+            start = System.nanoTime();
+            HashSet<Vector2Int> referenceHoles = new HashSet<>();
+            for (int i = 0; i < chasms; i++) {
+                Vector2Int chasmStart = new Vector2Int(chasmStarts[i * 2], chasmStarts[i * 2 + 1]);
+                Vector2Int chasmEnd = new Vector2Int(chasmStart.x + (int)(MathUtils.cos(chasmAngles[i]) * 3), chasmStart.y + (int)(MathUtils.sin(chasmAngles[i]) * 3));
+                referenceHoles.addAll(getReferenceLinePositions(chasmStart, chasmEnd, 0, mapSize));
+            }
+            long referenceChasmNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            OpenTileSet holes = new OpenTileSet(mapSize, mapSize);
+            TileGenerationUtils.TileVisitor addHole = (x, y) -> {
+                if (x >= 0 && x < mapSize && y >= 0 && y < mapSize) {
+                    holes.add(x, y);
+                }
+            };
+            for (int i = 0; i < chasms; i++) {
+                TileGenerationUtils.visitLinePositions(chasmStarts[i * 2], chasmStarts[i * 2 + 1], chasmAngles[i], 3, 0, mapSize, mapSize, addHole);
+            }
+            long chasmNanos = System.nanoTime() - start;
+            referenceHoles.removeIf(tile -> tile.x < 0 || tile.x >= mapSize || tile.y < 0 || tile.y >= mapSize);
+            if (referenceHoles.size() != holes.size()) {
+                throw new RuntimeException("Visited chasms gave " + holes.size() + " holes instead of " + referenceHoles.size());
+            }
+
+            if (run > 0) {
+                System.out.printf(Locale.ROOT, "%dx%d. %d passages: %.2f ms with lists, %.2f ms stamped. %d chasms: %.2f ms with lists, %.2f ms visited%n",
+                        mapSize, mapSize, passages, referencePassageNanos / 1e6, passageNanos / 1e6, chasms, referenceChasmNanos / 1e6, chasmNanos / 1e6);
+            }
+        }
+    }
+
+    //How lines were drawn before they were visited tile by tile
+    private static ArrayList<Vector2Int> getReferenceLinePositions(Vector2Int from, Vector2Int to, int lineWidth, int mapSize) {
+        ArrayList<Vector2Int> output = new ArrayList<>();
+        int x = from.x, y = from.y;
+        int dx = to.x - from.x, dy = to.y - from.y;
+        boolean inverted = false;
+        int step = Integer.signum(dx), gradientStep = Integer.signum(dy);
+        int longest = Math.abs(dx), shortest = Math.abs(dy);
+        if (longest < shortest) {
+            inverted = true;
+            longest = Math.abs(dy);
+            shortest = Math.abs(dx);
+            step = Integer.signum(dy);
+            gradientStep = Integer.signum(dx);
+        }
+        int gradientAccumulation = longest / 2;
+        for (int i = 0; i < longest; i++) {
+            drawReferenceCircle(output, new Vector2Int(x, y), lineWidth, mapSize);
+            if (inverted) {
+                y += step;
+            } else {
+                x += step;
+            }
+            gradientAccumulation += shortest;
+            if (gradientAccumulation >= longest) {
+                if (inverted) {
+                    x += gradientStep;
+                } else {
+                    y += gradientStep;
+                }
+                gradientAccumulation -= longest;
+            }
+        }
+        return output;
+    }
+
+    private static void drawReferenceCircle(List<Vector2Int> addTo, Vector2Int center, int r, int mapSize) {
+        if (r == 0) {
+            addTo.add(center);
+            addTo.add(new Vector2Int(center.x + 1, center.y));
+            addTo.add(new Vector2Int(center.x, center.y + 1));
+            return;
+        }
+        for (int x = -r; x <= r; x++) {
+            for (int y = -r; y <= r; y++) {
+                int drawX = center.x + x, drawY = center.y + y;
+                if (x * x + y * y <= r * r && drawX >= 0 && drawX < mapSize && drawY >= 0 && drawY < mapSize) {
+                    Vector2Int point = new Vector2Int(drawX, drawY);
+                    if (!addTo.contains(point)) {
+                        addTo.add(point);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.mikm.rendering.cave;
+
+import com.mikm.BitGrid;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Times CellularAutomatonSmoother against smoothing tile by tile, the way RuleCellPositionGenerator used to.
+ * It's in the cave package because the smoother is package private.
+ * Run it with gradlew tools:run -PmainClass=com.mikm.rendering.cave.SmoothingBenchmark --args="[size] [passes]".
+ */
+public class SmoothingBenchmark {
+    public static void main(String[] args) {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        final int passes = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Random random = new Random(21);
+        BitGrid grid = createRandomGrid(size, size, random);
+        BitGrid tileByTileGrid = grid.copy();
+        CellularAutomatonSmoother smoother = new CellularAutomatonSmoother(CellularAutomatonSmoother.SmoothingMode.IN_PLACE);
+        for (int warmup = 0; warmup < 3; warmup++) {
+            smoother.smooth(grid.copy());
+            BitGrid copy = tileByTileGrid.copy();
+            smoothTileByTile(copy);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < passes; i++) {
+            smoother.smooth(grid);
+        }
+        long wordParallelNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < passes; i++) {
+            smoothTileByTile(tileByTileGrid);
+        }
+        long tileByTileNanos = System.nanoTime() - start;
+        if (!tileByTileGrid.equals(grid)) {
+            throw new RuntimeException("Word parallel smoothing gave a different cave");
+        }
+        System.out.printf(Locale.ROOT, "%dx%d, %d passes. Tile by tile: %.2f ms, word parallel: %.2f ms, %.1fx faster%n", size, size,
+                passes, tileByTileNanos / 1e6, wordParallelNanos / 1e6, (double) tileByTileNanos / wordParallelNanos);
+    }
+
+    private static BitGrid createRandomGrid(int width, int height, Random random) {
+        BitGrid grid = new BitGrid(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid.set(x, y, random.nextInt(100) < CaveTilemapCreator.FILL_CELL_PERCENT_CHANCE);
+            }
+        }
+        return grid;
+    }
+
+    private static void smoothTileByTile(BitGrid grid) {
+        for (int y = grid.getHeight() - 1; y >= 0; y--) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                int count = 0;
+                for (int i = -1; i <= 1; i++) {
+                    for (int j = -1; j <= 1; j++) {
+                        if (i == 0 && j == 0) {
+                            continue;
+                        }
+                        if (!grid.isInBounds(x + j, y + i) || grid.get(x + j, y + i)) {
+                            count++;
+                        }
+                    }
+                }
+                if (count > 4) {
+                    grid.set(x, y);
+                } else if (count < 4) {
+                    grid.clear(x, y);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.mikm.tools;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.mikm.entities.InanimateEntity;
+import com.mikm.entities.RemovableArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Times RemovableArray with as many entities as a crowded floor could ever have. Filling it is what spawning a floor
+ * does, a frame is updating and drawing everything with a few entities dying and a few spawning, like a fight.
+ * Run it with gradlew tools:run -PmainClass=com.mikm.tools.EntityListBenchmark --args="..." or from the IDE.
+ */
+public class EntityListBenchmark {
+    private static final String USAGE = "Usage: EntityListBenchmark [--entities 10000] [--frames 1000] [--churn 20] [--sorted true]";
+    private static final int[] Z_ORDERS = {-2, -1, 0, 0};
+
+    private int entityCount = 10000;
+    private int frames = 1000;
+    private int churnPerFrame = 20;
+    private boolean sortsByY = true;
+
+    private static class BenchmarkEntity extends InanimateEntity {
+        private final int zOrder;
+
+        BenchmarkEntity(float x, float y, int zOrder) {
+            super(x, y);
+            this.zOrder = zOrder;
+        }
+
+        @Override
+        public void update() {
+            y += yVel;
+        }
+
+        @Override
+        public void draw(Batch batch) {
+        }
+
+        @Override
+        public int getZOrder() {
+            return zOrder;
+        }
+    }
+
+    public static void main(String[] args) {
+        EntityListBenchmark benchmark = new EntityListBenchmark();
+        try {
+            benchmark.readArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        benchmark.run();
+    }
+
+    private void readArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String argument = args[i];
+            if (argument.equals("--help")) {
+                throw new IllegalArgumentException("");
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + argument);
+            }
+            String value = args[++i];
+            switch (argument) {
+                case "--entities":
+                    entityCount = Integer.parseInt(value);
+                    break;
+                case "--frames":
+                    frames = Integer.parseInt(value);
+                    break;
+                case "--churn":
+                    churnPerFrame = Integer.parseInt(value);
+                    break;
+                case "--sorted":
+                    sortsByY = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + argument);
+            }
+        }
+    }
+
+    private void run() {
+        SplittableRandom random = new SplittableRandom(0);
+        //Once to warm up, then measured
+        fill(random);
+        long start = System.nanoTime();
+        RemovableArray<BenchmarkEntity> array = fill(random);
+        long fillNanos = System.nanoTime() - start;
+
+        ArrayList<BenchmarkEntity> alive = new ArrayList<>();
+        for (BenchmarkEntity entity : array) {
+            alive.add(entity);
+        }
+        long[] frameNanos = new long[frames];
+        for (int frame = 0; frame < frames; frame++) {
+            start = System.nanoTime();
+            for (int i = 0; i < churnPerFrame && !alive.isEmpty(); i++) {
+                int index = random.nextInt(alive.size());
+                array.remove(alive.get(index));
+                alive.set(index, alive.get(alive.size() - 1));
+                alive.remove(alive.size() - 1);
+
+                BenchmarkEntity spawned = createEntity(random);
+                array.add(spawned);
+                alive.add(spawned);
+            }
+            array.render(null);
+            frameNanos[frame] = System.nanoTime() - start;
+        }
+        Arrays.sort(frameNanos);
+
+        System.out.printf(Locale.ROOT, "%d entities, %s: filled in %.2f ms%n", entityCount, sortsByY ? "sorted by y" : "in added order", fillNanos / 1e6);
+        System.out.printf(Locale.ROOT, "%d frames with %d removed and %d added each: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", frames,
+                churnPerFrame, churnPerFrame, frameNanos[frames / 2] / 1e6, frameNanos[Math.max(0, (int) Math.ceil(frames * .99) - 1)] / 1e6,
+                frameNanos[frames - 1] / 1e6);
+    }
+
+    private RemovableArray<BenchmarkEntity> fill(SplittableRandom random) {
+        RemovableArray<BenchmarkEntity> array = new RemovableArray<>(sortsByY);
+        for (int i = 0; i < entityCount; i++) {
+            array.addInstantly(createEntity(random));
+        }
+        return array;
+    }
+
+    private BenchmarkEntity createEntity(SplittableRandom random) {
+        BenchmarkEntity entity = new BenchmarkEntity((float) random.nextDouble(2080), (float) random.nextDouble(2080), Z_ORDERS[random.nextInt(Z_ORDERS.length)]);
+        entity.yVel = (float) random.nextDouble(-1, 1);
+        return entity;
+    }
+}
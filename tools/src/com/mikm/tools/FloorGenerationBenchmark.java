@@ -0,0 +1,274 @@
+package com.mikm.tools;
+
+import com.mikm.rendering.cave.CaveFloorGenerator;
+import com.mikm.rendering.cave.CaveFloorLayout;
+import com.mikm.rendering.cave.FloorGenerationReport;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadataReader;
+import com.mikm.rendering.screens.CaveScreen;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates floors headlessly on a thread pool and reports how fast and how big they are, to size generation
+ * budgets and catch regressions. Run it with gradlew tools:run --args="..." from the root, which works in assets.
+ *
+ * Every floor in the range is generated once for every seed. Each pool thread has its own generator, since a
+ * generator can only be used by one thread at a time.
+ */
+public class FloorGenerationBenchmark {
+    private static final String USAGE = "Usage: FloorGenerationBenchmark [--floors 1-13] [--seeds 10] [--first-seed 0] "
+            + "[--threads <processors>] [--warmup 4] [--assets .] [--csv <file>]";
+
+    private int firstFloor = 1, lastFloor = CaveScreen.LAST_FLOOR - 1;
+    private int seedsPerFloor = 10;
+    private long firstSeed = 0;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int warmupFloors = 4;
+    private String assetsDirectory = ".";
+    private String csvFile;
+
+    private RuleCellMetadata caveTilesMetadata, holesMetadata;
+    private ThreadLocal<CaveFloorGenerator> generators;
+    //Held in a field so the floor being measured can't be collected early
+    private CaveFloorLayout retainedLayout;
+
+    //What's kept of each floor, so the layouts themselves can be collected
+    private static class FloorResult {
+        final int floor;
+        final long seed;
+        final long latencyNanos;
+        final long allocatedBytes;
+        final float openTileRatio;
+        final long rooms;
+        final int holes;
+        final FloorGenerationReport report;
+
+        FloorResult(int floor, long seed, long latencyNanos, CaveFloorLayout layout) {
+            this.floor = floor;
+            this.seed = seed;
+            this.latencyNanos = latencyNanos;
+            report = layout.generationReport;
+            allocatedBytes = report.getTotalAllocatedBytes();
+            openTileRatio = (float) report.getStage(CaveFloorGenerator.OPEN_TILES).outputSize / (layout.width * layout.height);
+            rooms = report.getStage(CaveFloorGenerator.ROOMS).outputSize;
+            holes = layout.holePositions.size();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        FloorGenerationBenchmark benchmark = new FloorGenerationBenchmark();
+        try {
+            benchmark.readArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        benchmark.run();
+    }
+
+    private void readArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String argument = args[i];
+            if (argument.equals("--help")) {
+                throw new IllegalArgumentException("");
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + argument);
+            }
+            String value = args[++i];
+            switch (argument) {
+                case "--floors":
+                    readFloorRange(value);
+                    break;
+                case "--seeds":
+                    seedsPerFloor = readPositiveInt(argument, value);
+                    break;
+                case "--first-seed":
+                    firstSeed = Long.parseLong(value);
+                    break;
+                case "--threads":
+                    threads = readPositiveInt(argument, value);
+                    break;
+                case "--warmup":
+                    warmupFloors = Integer.parseInt(value);
+                    break;
+                case "--assets":
+                    assetsDirectory = value;
+                    break;
+                case "--csv":
+                    csvFile = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + argument);
+            }
+        }
+    }
+
+    private void readFloorRange(String value) {
+        String[] ends = value.split("-");
+        firstFloor = Integer.parseInt(ends[0]);
+        lastFloor = Integer.parseInt(ends[ends.length - 1]);
+        //The spawn tables only go up to the floor before the last one
+        if (firstFloor < 1 || lastFloor >= CaveScreen.LAST_FLOOR || firstFloor > lastFloor) {
+            throw new IllegalArgumentException("Floors have to be within 1-" + (CaveScreen.LAST_FLOOR - 1));
+        }
+    }
+
+    private int readPositiveInt(String argument, String value) {
+        int number = Integer.parseInt(value);
+        if (number < 1) {
+            throw new IllegalArgumentException(argument + " has to be at least 1");
+        }
+        return number;
+    }
+
+    private void run() throws IOException, InterruptedException, ExecutionException {
+        RuleCellMetadataReader reader = new RuleCellMetadataReader();
+        caveTilesMetadata = reader.createMetadataFromString(readAsset("images/caveTiles.meta.txt"));
+        holesMetadata = reader.createMetadataFromString(readAsset("images/holes.meta.txt"));
+        generators = ThreadLocal.withInitial(() -> CaveFloorGenerator.createHeadless(caveTilesMetadata, holesMetadata));
+
+        final int floorCount = lastFloor - firstFloor + 1;
+        System.out.printf(Locale.ROOT, "Generating floors %d-%d, %d seeds each, on %d threads%n", firstFloor, lastFloor, seedsPerFloor, threads);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<CaveFloorLayout>> warmups = new ArrayList<>();
+            for (int i = 0; i < warmupFloors; i++) {
+                int floor = firstFloor + i % floorCount;
+                warmups.add(pool.submit(() -> generators.get().generate(floor, -1)));
+            }
+            for (Future<CaveFloorLayout> warmup : warmups) {
+                warmup.get();
+            }
+
+            ArrayList<Future<FloorResult>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (long seed = firstSeed; seed < firstSeed + seedsPerFloor; seed++) {
+                for (int floor = firstFloor; floor <= lastFloor; floor++) {
+                    final int generatedFloor = floor;
+                    final long generatedSeed = seed;
+                    futures.add(pool.submit(() -> generateFloor(generatedFloor, generatedSeed)));
+                }
+            }
+            ArrayList<FloorResult> results = new ArrayList<>();
+            for (Future<FloorResult> future : futures) {
+                results.add(future.get());
+            }
+            long wallNanos = System.nanoTime() - start;
+
+            printSummary(results, wallNanos);
+            printFloorTable(results);
+            if (csvFile != null) {
+                writeCsv(results);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private String readAsset(String path) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(assetsDirectory, path)), StandardCharsets.UTF_8);
+    }
+
+    private FloorResult generateFloor(int floor, long seed) {
+        long start = System.nanoTime();
+        CaveFloorLayout layout = generators.get().generate(floor, seed);
+        return new FloorResult(floor, seed, System.nanoTime() - start, layout);
+    }
+
+    private void printSummary(List<FloorResult> results, long wallNanos) {
+        long[] latencies = getLatencies(results);
+        System.out.printf(Locale.ROOT, "%d floors in %.2f s: %.2f floors/sec, p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                results.size(), wallNanos / 1e9, results.size() / (wallNanos / 1e9),
+                getPercentile(latencies, 0.5f) / 1e6, getPercentile(latencies, 0.99f) / 1e6, latencies[latencies.length - 1] / 1e6);
+    }
+
+    private void printFloorTable(List<FloorResult> results) {
+        System.out.printf(Locale.ROOT, "%-6s%-11s%10s%10s%12s%14s%8s%8s%8s%n", "floor", "size", "p50 ms", "p99 ms",
+                "alloc MB", "retained MB", "open", "rooms", "holes");
+        for (int floor = firstFloor; floor <= lastFloor; floor++) {
+            ArrayList<FloorResult> floorResults = new ArrayList<>();
+            for (FloorResult result : results) {
+                if (result.floor == floor) {
+                    floorResults.add(result);
+                }
+            }
+            FloorGenerationReport report = floorResults.get(0).report;
+            long[] latencies = getLatencies(floorResults);
+            double allocatedBytes = 0, openTileRatio = 0, rooms = 0, holes = 0;
+            for (FloorResult result : floorResults) {
+                allocatedBytes += result.allocatedBytes;
+                openTileRatio += result.openTileRatio;
+                rooms += result.rooms;
+                holes += result.holes;
+            }
+            final int count = floorResults.size();
+            boolean countsAllocations = report.getTotalAllocatedBytes() >= 0;
+            System.out.printf(Locale.ROOT, "%-6d%-11s%10.1f%10.1f%12s%14.1f%8.3f%8.1f%8.1f%n", floor,
+                    report.mapWidth + "x" + report.mapHeight, getPercentile(latencies, 0.5f) / 1e6, getPercentile(latencies, 0.99f) / 1e6,
+                    countsAllocations ? String.format(Locale.ROOT, "%.1f", allocatedBytes / count / 1e6) : "n/a",
+                    getRetainedBytes(floor) / 1e6, openTileRatio / count, rooms / count, holes / count);
+        }
+    }
+
+    //How much heap one finished floor keeps alive. Only a rough number, since it relies on System.gc().
+    private long getRetainedBytes(int floor) {
+        CaveFloorGenerator generator = CaveFloorGenerator.createHeadless(caveTilesMetadata, holesMetadata);
+        generator.generate(floor, firstSeed);
+        long before = getUsedHeap();
+        retainedLayout = generator.generate(floor, firstSeed);
+        long after = getUsedHeap();
+        retainedLayout = null;
+        return Math.max(0, after - before);
+    }
+
+    private long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void writeCsv(List<FloorResult> results) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(csvFile), StandardCharsets.UTF_8))) {
+            writer.println(FloorGenerationReport.CSV_HEADER + ",latencyMicros");
+            for (FloorResult result : results) {
+                for (String line : result.report.toCsv().split("\\R")) {
+                    writer.println(line + "," + result.latencyNanos / 1000);
+                }
+            }
+        }
+        System.out.println("Wrote stage timings to " + csvFile);
+    }
+
+    private long[] getLatencies(List<FloorResult> results) {
+        long[] latencies = new long[results.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = results.get(i).latencyNanos;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    //Nearest rank, on sorted values
+    private long getPercentile(long[] sortedValues, float percentile) {
+        int rank = (int) Math.ceil(percentile * sortedValues.length);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,63 @@
+package com.mikm.tools;
+
+import com.mikm.Vector2Int;
+import com.mikm.rendering.cave.ruleCell.RuleCellLookupTable;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadata;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadataBinary;
+import com.mikm.rendering.cave.ruleCell.RuleCellMetadataReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Compiles every .meta.txt in a directory into the .meta.bin the game loads, so a broken metadata file fails the
+ * build instead of the game launch. Each compiled file is read back to check it gives the same lookup table.
+ */
+public class RuleCellMetadataCompiler {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: RuleCellMetadataCompiler <directory with .meta.txt files>");
+            System.exit(1);
+        }
+        File[] textFiles = new File(args[0]).listFiles((directory, name) -> name.endsWith(".meta.txt"));
+        if (textFiles == null) {
+            System.err.println("Couldn't list " + args[0]);
+            System.exit(1);
+        }
+        boolean failed = false;
+        for (File textFile : textFiles) {
+            try {
+                compile(textFile);
+            } catch (RuntimeException e) {
+                System.err.println(textFile.getName() + ": " + e.getMessage());
+                failed = true;
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static void compile(File textFile) throws IOException {
+        String text = new String(Files.readAllBytes(textFile.toPath()), StandardCharsets.UTF_8);
+        RuleCellMetadata metadata = new RuleCellMetadataReader().createMetadataFromString(text);
+        byte[] compiled = RuleCellMetadataBinary.write(metadata);
+        checkSameLookupTable(metadata, RuleCellMetadataBinary.read(compiled));
+
+        File compiledFile = new File(RuleCellMetadataBinary.getCompiledPath(textFile.getPath()));
+        Files.write(compiledFile.toPath(), compiled);
+        System.out.println("Compiled " + textFile.getName() + " to " + compiledFile.getName() + ", " + compiled.length + " bytes");
+    }
+
+    private static void checkSameLookupTable(RuleCellMetadata expected, RuleCellMetadata actual) {
+        for (int mask = 0; mask < RuleCellLookupTable.MASK_COUNT; mask++) {
+            Vector2Int expectedPosition = expected.getLookupTable().getPositionInImage(mask);
+            Vector2Int actualPosition = actual.getLookupTable().getPositionInImage(mask);
+            if (expectedPosition == null ? actualPosition != null : !expectedPosition.equals(actualPosition)) {
+                throw new RuntimeException("Compiled metadata gives a different tile for neighbour mask " + mask);
+            }
+        }
+    }
+}